@@ -0,0 +1,49 @@
+package org.example.benchmark;
+
+import org.example.api.v1.model.response.CouponResponse;
+import org.example.entity.Coupon;
+import org.example.service.coupon.CouponMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CouponMapperBenchmark {
+
+    private CouponMapper mapper;
+    private Coupon coupon;
+
+    @Setup
+    public void setUp() {
+        mapper = Mappers.getMapper(CouponMapper.class);
+        coupon = Coupon.builder()
+                .id(1L)
+                .code("SUMMER2024")
+                .maxUses(1000)
+                .currentUses(42)
+                .country("PL")
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    @Benchmark
+    public CouponResponse toDto() {
+        return mapper.toDto(coupon);
+    }
+}
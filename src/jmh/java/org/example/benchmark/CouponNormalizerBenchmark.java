@@ -0,0 +1,34 @@
+package org.example.benchmark;
+
+import org.example.service.coupon.CouponNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Normalization runs on every redemption before anything else. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CouponNormalizerBenchmark {
+
+    // Already normal, needs upper-casing, needs trimming and upper-casing.
+    @Param({"SUMMER2024", "summer2024", "  Summer2024  "})
+    public String code;
+
+    @Benchmark
+    public String normalizeCode() {
+        return CouponNormalizer.normalizeCode(code);
+    }
+}
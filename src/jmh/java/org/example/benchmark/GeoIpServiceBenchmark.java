@@ -0,0 +1,69 @@
+package org.example.benchmark;
+
+import org.example.service.geo.GeoIpCircuitBreaker;
+import org.example.service.geo.GeoIpService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache hits only: every IP is resolved once in setup, so this measures the Caffeine read path and
+ * the future unwrapping, not the provider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class GeoIpServiceBenchmark {
+
+    private static final int IPS = 1024;
+
+    private GeoIpService geoIpService;
+    private String[] ips;
+
+    @Setup
+    public void setUp() {
+        geoIpService = new GeoIpService(new StubRestTemplate(), "http://stub/", "countryCode", 10_000,
+                3_600_000, 7_200_000, 30_000, new GeoIpCircuitBreaker(5, 30_000), Runnable::run);
+        ips = new String[IPS];
+        for (int i = 0; i < IPS; i++) {
+            ips[i] = "10.0." + (i >> 8) + "." + (i & 0xff);
+            geoIpService.getCountry(ips[i]);
+        }
+    }
+
+    @Benchmark
+    public String getCountry() {
+        return geoIpService.getCountry(ips[ThreadLocalRandom.current().nextInt(IPS)]);
+    }
+
+    @Benchmark
+    public String getCountryAsyncJoin() {
+        return geoIpService.getCountryAsync(ips[ThreadLocalRandom.current().nextInt(IPS)]).join();
+    }
+
+    private static final class StubRestTemplate extends RestTemplate {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> ResponseEntity<T> getForEntity(String url, Class<T> responseType, Object... uriVariables) {
+            return (ResponseEntity<T>) ResponseEntity.ok(Map.of("countryCode", "PL"));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.api.v1.model.response.ErrorResponse;
+import org.example.exception.api.CouponNotFoundException;
+import org.example.exception.handler.GlobalExceptionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejections are the common outcome under abuse. Measures constructing the exception (including its
+ * stack trace), building the response and serializing it the way the message converter would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlobalExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private ObjectMapper objectMapper;
+    private CouponNotFoundException prebuilt;
+
+    @Setup
+    public void setUp() {
+        handler = new GlobalExceptionHandler();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        prebuilt = new CouponNotFoundException("SUMMER2024");
+    }
+
+    @Benchmark
+    public byte[] renderPrebuiltException() throws JsonProcessingException {
+        ErrorResponse body = handler.handleApiException(prebuilt).getBody();
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    @Benchmark
+    public byte[] throwAndRender() throws JsonProcessingException {
+        ErrorResponse body = handler.handleApiException(new CouponNotFoundException("SUMMER2024")).getBody();
+        return objectMapper.writeValueAsBytes(body);
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.benchmark;
+
+import org.example.service.geo.IpRangeIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Binary search over 200k IPv4 ranges, comparable with {@link GeoIpServiceBenchmark}'s cache hits. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IpRangeIndexBenchmark {
+
+    private static final int RANGES = 200_000;
+    private static final int IPS = 1024;
+    private static final String[] COUNTRIES = {"PL", "DE", "US", "FR", "GB"};
+
+    private IpRangeIndex index;
+    private String[] ips;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path csv = Files.createTempFile("ranges", ".csv");
+        long step = (1L << 32) / RANGES;
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            for (int i = 0; i < RANGES; i++) {
+                writer.write(toIp(i * step) + "," + toIp((i + 1) * step - 1) + "," + COUNTRIES[i % COUNTRIES.length]);
+                writer.newLine();
+            }
+        }
+        index = IpRangeIndex.fromCsv(csv);
+        Files.delete(csv);
+        ips = new String[IPS];
+        for (int i = 0; i < IPS; i++) {
+            ips[i] = toIp(ThreadLocalRandom.current().nextLong(1L << 32));
+        }
+    }
+
+    @Benchmark
+    public String lookup() {
+        return index.lookup(ips[ThreadLocalRandom.current().nextInt(IPS)]);
+    }
+
+    private static String toIp(long address) {
+        return (address >>> 24 & 0xff) + "." + (address >>> 16 & 0xff) + "." + (address >>> 8 & 0xff) + "." + (address & 0xff);
+    }
+}
@@ -1,26 +1,51 @@
 package org.example.api.v1.controller;
 
 import jakarta.validation.Valid;
+import org.example.api.v1.model.request.BatchRedeemRequest;
+import org.example.api.v1.model.request.BulkCreateCouponRequest;
 import org.example.api.v1.model.request.CreateCouponRequest;
 import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.api.v1.model.response.BatchRedeemResponse;
+import org.example.api.v1.model.response.BulkCreateCouponResponse;
+import org.example.api.v1.model.response.CouponImportResponse;
 import org.example.api.v1.model.response.CouponResponse;
+import org.example.api.v1.model.response.ReservationResponse;
+import org.example.service.coupon.CouponImportService;
 import org.example.service.coupon.CouponService;
+import org.example.service.coupon.idempotency.IdempotentRedemptionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.util.UUID;
+
 
 @RestController
 @RequestMapping("/api/coupons")
 @SuppressWarnings("unused")
 public class CouponController {
 
+    private static final String TEXT_CSV = "text/csv";
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final CouponService couponService;
+    private final CouponImportService couponImportService;
+    private final IdempotentRedemptionService idempotentRedemptionService;
 
     @Autowired
-    public CouponController(CouponService couponService) {
+    public CouponController(
+            CouponService couponService,
+            CouponImportService couponImportService,
+            IdempotentRedemptionService idempotentRedemptionService
+    ) {
         this.couponService = couponService;
+        this.couponImportService = couponImportService;
+        this.idempotentRedemptionService = idempotentRedemptionService;
     }
 
     @PostMapping
@@ -29,9 +54,59 @@ public class CouponController {
         return ResponseEntity.ok(couponService.createCoupon(request));
     }
 
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkCreateCouponResponse> createCoupons(@RequestBody @Valid BulkCreateCouponRequest request) {
+        return ResponseEntity.ok(couponService.createCoupons(request.getCoupons()));
+    }
+
+    @PostMapping(value = "/import", consumes = {TEXT_CSV, APPLICATION_NDJSON})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CouponImportResponse> importCoupons(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) {
+        CouponImportResponse response = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? couponImportService.importCsv(body)
+                : couponImportService.importNdjson(body);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/{code}/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CouponResponse> reconcileCoupon(@PathVariable String code) {
+        return ResponseEntity.ok(couponService.reconcileCoupon(code));
+    }
+
     @PostMapping("/{code}/redeem")
-    public ResponseEntity<CouponResponse> redeemCoupon(@PathVariable String code, @RequestBody @Valid UseCouponRequest request) {
+    public ResponseEntity<CouponResponse> redeemCoupon(
+            @PathVariable String code,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestBody @Valid UseCouponRequest request
+    ) {
         request.setCode(code);
-        return ResponseEntity.ok(couponService.useCoupon(request));
+        return ResponseEntity.ok(idempotentRedemptionService.useCoupon(request, idempotencyKey));
+    }
+
+    @PostMapping("/{code}/reservations")
+    public ResponseEntity<ReservationResponse> reserveCoupon(@PathVariable String code, @RequestBody @Valid UseCouponRequest request) {
+        request.setCode(code);
+        return ResponseEntity.ok(couponService.reserveCoupon(request));
+    }
+
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public ResponseEntity<CouponResponse> confirmReservation(@PathVariable UUID reservationId) {
+        return ResponseEntity.ok(couponService.confirmReservation(reservationId));
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable UUID reservationId) {
+        couponService.releaseReservation(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/redeem:batch")
+    public ResponseEntity<BatchRedeemResponse> redeemCoupons(@RequestBody @Valid BatchRedeemRequest request) {
+        return ResponseEntity.ok(couponService.useCoupons(request.getItems()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package org.example.api.v1.controller;
+
+import org.example.api.v1.model.response.RedemptionEventResponse;
+import org.example.service.coupon.outbox.RedemptionEventStream;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/redemption-events")
+@PreAuthorize("hasRole('ADMIN')")
+@SuppressWarnings("unused")
+public class RedemptionEventController {
+
+    private final RedemptionEventStream redemptionEventStream;
+
+    public RedemptionEventController(RedemptionEventStream redemptionEventStream) {
+        this.redemptionEventStream = redemptionEventStream;
+    }
+
+    @GetMapping("/{consumer}")
+    public ResponseEntity<List<RedemptionEventResponse>> poll(
+            @PathVariable String consumer,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        List<RedemptionEventResponse> events = redemptionEventStream.poll(consumer, limit).stream()
+                .map(event -> new RedemptionEventResponse(event.getId(), event.getCouponId(), event.getUserId(), event.getUsedAt()))
+                .toList();
+        return ResponseEntity.ok(events);
+    }
+
+    @PostMapping("/{consumer}/ack")
+    public ResponseEntity<Void> acknowledge(@PathVariable String consumer, @RequestParam long lastId) {
+        redemptionEventStream.acknowledge(consumer, lastId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{consumer}")
+    public ResponseEntity<Void> remove(@PathVariable String consumer) {
+        redemptionEventStream.remove(consumer);
+        return ResponseEntity.noContent().build();
+    }
+}
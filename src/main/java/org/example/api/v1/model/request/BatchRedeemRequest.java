@@ -0,0 +1,18 @@
+package org.example.api.v1.model.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRedeemRequest {
+    @NotEmpty(message = "Items must not be empty")
+    @Size(max = 1000, message = "At most 1000 items per batch")
+    private List<@Valid UseCouponRequest> items;
+}
@@ -0,0 +1,18 @@
+package org.example.api.v1.model.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateCouponRequest {
+    @NotEmpty(message = "Coupons must not be empty")
+    @Size(max = 10000, message = "At most 10000 coupons per request, use the import endpoint for more")
+    private List<@Valid CreateCouponRequest> coupons;
+}
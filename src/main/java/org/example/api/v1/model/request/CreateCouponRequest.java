@@ -1,8 +1,10 @@
 package org.example.api.v1.model.request;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.*;
 
 @Getter
@@ -11,8 +13,10 @@ import lombok.*;
 @AllArgsConstructor
 public class CreateCouponRequest {
     @NotBlank(message = "Code must not be blank")
+    @Size(max = 50, message = "Code must be at most 50 characters")
     private String code;
 
+    @NotNull(message = "Max uses must not be null")
     @Positive(message = "Max uses must be positive")
     private Integer maxUses;
 
@@ -0,0 +1,16 @@
+package org.example.api.v1.model.response;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRedeemItemResponse {
+    private String code;
+    private String userId;
+    private boolean redeemed;
+    private CouponResponse coupon;
+    private String errorCode;
+    private String message;
+}
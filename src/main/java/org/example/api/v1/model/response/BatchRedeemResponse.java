@@ -0,0 +1,13 @@
+package org.example.api.v1.model.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRedeemResponse {
+    private List<BatchRedeemItemResponse> results;
+}
@@ -0,0 +1,14 @@
+package org.example.api.v1.model.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateCouponResponse {
+    private int created;
+    private List<String> duplicates;
+}
@@ -0,0 +1,17 @@
+package org.example.api.v1.model.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponImportResponse {
+    private long processed;
+    private long created;
+    private long duplicates;
+    private long rejected;
+    private List<String> errors;
+}
@@ -0,0 +1,16 @@
+package org.example.api.v1.model.response;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RedemptionEventResponse {
+    private long id;
+    private long couponId;
+    private String userId;
+    private Instant usedAt;
+}
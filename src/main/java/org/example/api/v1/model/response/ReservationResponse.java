@@ -0,0 +1,17 @@
+package org.example.api.v1.model.response;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationResponse {
+    private UUID reservationId;
+    private String code;
+    private String userId;
+    private Instant expiresAt;
+}
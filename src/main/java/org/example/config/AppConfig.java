@@ -4,9 +4,14 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @SuppressWarnings("unused")
@@ -16,9 +21,32 @@ public class AppConfig {
     public RestTemplate restTemplate(RestTemplateBuilder builder,
                                      @Value("${geoip.connect-timeout-ms}") int connectTimeout,
                                      @Value("${geoip.read-timeout-ms}") int readTimeout) {
+        // The JDK client does not pin virtual threads the way HttpURLConnection's synchronized I/O does.
         return builder
+                .requestFactory(JdkClientHttpRequestFactory.class)
                 .setConnectTimeout(Duration.ofMillis(connectTimeout))
                 .setReadTimeout(Duration.ofMillis(readTimeout))
                 .build();
     }
-}
\ No newline at end of file
+
+    @Bean
+    public AsyncTaskExecutor geoIpExecutor(@Value("${geoip.executor.pool-size:16}") int poolSize,
+                                           @Value("${geoip.executor.queue-capacity:1000}") int queueCapacity,
+                                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            // One virtual thread per lookup, still at most pool-size of them in flight against the API.
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("geoip-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(poolSize);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("geoip-");
+        // A saturated pool degrades to resolving on the request thread, still before the transaction.
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.config.datasource;
+
+import org.example.security.UserChangedEvent;
+import org.example.service.coupon.catalog.CouponChangedEvent;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Listens on the {@code coupon_changed} and {@code user_changed} channels and republishes notifications
+ * as {@link CouponChangedEvent}s and {@link UserChangedEvent}s. Uses its own connection outside the
+ * Hikari pool, since it is held for the life of the application. After every (re)connect RESYNC events
+ * are published because notifications sent while disconnected are lost.
+ */
+@Component
+public class DatabaseChangeListener implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseChangeListener.class);
+
+    private static final String COUPON_CHANNEL = "coupon_changed";
+    private static final String USER_CHANNEL = "user_changed";
+
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int pollMillis;
+    private final long reconnectMillis;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public DatabaseChangeListener(
+            DataSourceProperties dataSourceProperties,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${db.notifications.enabled:true}") boolean enabled,
+            @Value("${db.notifications.poll-ms:1000}") int pollMillis,
+            @Value("${db.notifications.reconnect-ms:5000}") long reconnectMillis
+    ) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.pollMillis = pollMillis;
+        this.reconnectMillis = reconnectMillis;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || !dataSourceProperties.determineUrl().startsWith("jdbc:postgresql:")) {
+            logger.info("Database change notifications disabled, caches rely on their TTLs");
+            return;
+        }
+        running = true;
+        thread = new Thread(this::listen, "database-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            closeQuietly(connection);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection listening = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                connection = listening;
+                try (Statement statement = listening.createStatement()) {
+                    statement.execute("LISTEN " + COUPON_CHANNEL);
+                    statement.execute("LISTEN " + USER_CHANNEL);
+                }
+                logger.info("Listening for changes on channels {} and {}", COUPON_CHANNEL, USER_CHANNEL);
+                publishResync();
+                PGConnection pgConnection = listening.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        Object event = switch (notification.getName()) {
+                            case COUPON_CHANNEL -> CouponChangedEvent.parse(notification.getParameter());
+                            case USER_CHANNEL -> UserChangedEvent.parse(notification.getParameter());
+                            default -> null;
+                        };
+                        if (event != null) {
+                            eventPublisher.publishEvent(event);
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Database change listener disconnected, retrying in {} ms: {}", reconnectMillis, e.getMessage());
+                // Whatever was cached may have changed while nobody was listening.
+                publishResync();
+                try {
+                    Thread.sleep(reconnectMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void publishResync() {
+        eventPublisher.publishEvent(CouponChangedEvent.resync());
+        eventPublisher.publishEvent(UserChangedEvent.resync());
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Only used to unblock the listener thread on shutdown.
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The replica pool behind read-only transactions. Its replay lag is checked every
+ * {@code db.replica.lag-check-interval-ms}; until the first check, while it is more than {@code maxLagMillis}
+ * behind, or while it cannot be reached, read-only transactions run on the primary instead.
+ */
+public class ReadReplica implements MeterBinder, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplica.class);
+
+    // A replica that has replayed everything it received is current, however old its last transaction.
+    private static final String LAG_SQL = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM NOW() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   END::BIGINT
+            """;
+
+    private static final long UNAVAILABLE = -1;
+
+    private final HikariDataSource pool;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxLagMillis;
+    private volatile long lagMillis = UNAVAILABLE;
+    private Counter laggingFallbacks;
+    private Counter failedFallbacks;
+
+    public ReadReplica(HikariDataSource pool, long maxLagMillis) {
+        this(pool, pool, maxLagMillis);
+    }
+
+    /** A replica whose connections are taken through {@code dataSource}, e.g. a {@link ConnectionLimitingDataSource} over the pool. */
+    public ReadReplica(HikariDataSource pool, DataSource dataSource, long maxLagMillis) {
+        this(pool, dataSource, maxLagMillis, new JdbcTemplate(dataSource));
+        this.jdbcTemplate.setQueryTimeout(Math.max(1, (int) (maxLagMillis / 1000)));
+    }
+
+    public ReadReplica(HikariDataSource pool, long maxLagMillis, JdbcTemplate jdbcTemplate) {
+        this(pool, pool, maxLagMillis, jdbcTemplate);
+    }
+
+    private ReadReplica(HikariDataSource pool, DataSource dataSource, long maxLagMillis, JdbcTemplate jdbcTemplate) {
+        this.pool = pool;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("db.replica.lag", this, replica -> replica.lagMillis).baseUnit("milliseconds").register(registry);
+        Gauge.builder("db.replica.usable", this, replica -> replica.isUsable() ? 1 : 0).register(registry);
+        laggingFallbacks = Counter.builder("db.replica.fallback").tag("reason", "lag").register(registry);
+        failedFallbacks = Counter.builder("db.replica.fallback").tag("reason", "error").register(registry);
+        if (dataSource instanceof MeterBinder limiter) {
+            limiter.bindTo(registry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${db.replica.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        try {
+            Long lag = jdbcTemplate.queryForObject(LAG_SQL, Long.class);
+            lagMillis = lag == null ? UNAVAILABLE : lag;
+        } catch (DataAccessException e) {
+            if (lagMillis != UNAVAILABLE) {
+                logger.warn("Replica unreachable, read-only transactions fall back to the primary: {}", e.getMessage());
+            }
+            lagMillis = UNAVAILABLE;
+        }
+    }
+
+    public boolean isUsable() {
+        long lag = lagMillis;
+        return lag != UNAVAILABLE && lag <= maxLagMillis;
+    }
+
+    /** A replica connection while it is usable and reachable, otherwise one from {@code primary}. */
+    Connection getConnection(DataSource primary) throws SQLException {
+        if (!isUsable()) {
+            count(laggingFallbacks);
+            return primary.getConnection();
+        }
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            count(failedFallbacks);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private static void count(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs {@code @Transactional(readOnly = true)} work on the {@link ReadReplica} and everything else on the
+ * primary. The physical connection is fetched on the first statement, because the transaction manager marks
+ * the connection read-only only after the transaction has begun.
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements MeterBinder, AutoCloseable {
+
+    private final HikariDataSource primary;
+    private final DataSource primaryConnections;
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, ReadReplica replica) {
+        this(primary, primary, replica);
+    }
+
+    /** Takes primary connections through {@code primaryConnections}, e.g. a {@link ConnectionLimitingDataSource} over the pool. */
+    public ReadWriteRoutingDataSource(HikariDataSource primary, DataSource primaryConnections, ReadReplica replica) {
+        super(primaryConnections);
+        this.primary = primary;
+        this.primaryConnections = primaryConnections;
+        setReadOnlyDataSource(new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return replica.getConnection(primaryConnections);
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return replica.getConnection(primaryConnections);
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (primaryConnections instanceof MeterBinder limiter) {
+            limiter.bindTo(registry);
+        }
+    }
+
+    @Override
+    public void close() {
+        primary.close();
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the auto-configured pool with a primary and a replica pool behind a
+ * {@link ReadWriteRoutingDataSource}. Both pools report {@code hikaricp.*} metrics tagged with their name.
+ * With virtual threads each pool gets its own {@link ConnectionLimitingDataSource}, sized to that pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.replica.enabled", havingValue = "true")
+@SuppressWarnings("unused")
+public class ReplicaDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReadReplica readReplica(
+            DataSourceProperties primaryProperties,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${db.replica.url}") String url,
+            @Value("${db.replica.username:${spring.datasource.username}}") String username,
+            @Value("${db.replica.password:${spring.datasource.password}}") String password,
+            @Value("${db.replica.max-lag-ms:1000}") long maxLagMillis
+    ) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(primaryProperties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        configure(replica, "replica", "db.replica.hikari", environment, meterRegistry);
+        replica.setReadOnly(true);
+        return new ReadReplica(replica, limited(replica, environment), maxLagMillis);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReadWriteRoutingDataSource dataSource(
+            DataSourceProperties primaryProperties,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ReadReplica readReplica
+    ) {
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        configure(primary, "primary", "spring.datasource.hikari", environment, meterRegistry);
+        return new ReadWriteRoutingDataSource(primary, limited(primary, environment), readReplica);
+    }
+
+    private static DataSource limited(HikariDataSource pool, Environment environment) {
+        if (!environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            return pool;
+        }
+        return new ConnectionLimitingDataSource(
+                pool, pool.getMaximumPoolSize(), pool.getConnectionTimeout(), pool.getPoolName());
+    }
+
+    private static void configure(HikariDataSource pool, String name, String prefix, Environment environment,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder.get(environment).bind(prefix, Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        meterRegistry.ifAvailable(pool::setMetricRegistry);
+    }
+}
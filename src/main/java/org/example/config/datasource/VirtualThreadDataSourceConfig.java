@@ -0,0 +1,34 @@
+package org.example.config.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@SuppressWarnings("unused")
+public class VirtualThreadDataSourceConfig {
+
+    // Static so wrapping the DataSource does not force this configuration to be created early. The routing
+    // DataSource of the replica setup is left alone: it limits each of its pools itself.
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionLimitingDataSource)
+                        && !(bean instanceof ReadWriteRoutingDataSource)) {
+                    return new ConnectionLimitingDataSource(
+                            dataSource,
+                            environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10),
+                            environment.getProperty("spring.datasource.hikari.connection-timeout", Long.class, 30000L));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,7 +1,12 @@
 package org.example.config.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.security.BoundedPasswordEncoder;
 import org.example.security.JwtAuthenticationFilter;
+import org.example.security.JwtAuthenticationMode;
 import org.example.security.JwtUtil;
+import org.example.security.TokenVersionTable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -35,7 +40,11 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/login").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        // Metrics carry coupon codes and traffic; scrapers authenticate as an admin.
+                        .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
                         .requestMatchers("/api/coupons/*/redeem").permitAll()
+                        .requestMatchers("/api/coupons/*/reservations", "/api/coupons/reservations/**").permitAll()
                         .requestMatchers("/api/coupons").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
@@ -44,15 +53,19 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                                  @Value("${security.bcrypt.threads:0}") int threads,
+                                                  @Value("${security.bcrypt.queue-capacity:32}") int queueCapacity) {
+        // BCrypt is CPU-bound, so by default leave half of the cores to everything else.
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), poolSize, queueCapacity, meterRegistry);
     }
 
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService);
-        provider.setPasswordEncoder(passwordEncoder());
+        provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
@@ -62,7 +75,12 @@ public class SecurityConfig {
     }
 
     @Bean
-    public JwtAuthenticationFilter jwtAuthenticationFilter(UserDetailsService userDetailsService, JwtUtil jwtUtil) {
-        return new JwtAuthenticationFilter(jwtUtil, userDetailsService);
+    public JwtAuthenticationFilter jwtAuthenticationFilter(
+            UserDetailsService userDetailsService,
+            JwtUtil jwtUtil,
+            TokenVersionTable tokenVersions,
+            @Value("${jwt.mode:LOOKUP}") JwtAuthenticationMode mode
+    ) {
+        return new JwtAuthenticationFilter(jwtUtil, userDetailsService, tokenVersions, mode);
     }
 }
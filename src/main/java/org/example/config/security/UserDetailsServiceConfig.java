@@ -1,6 +1,9 @@
 package org.example.config.security;
 
 import org.example.repository.UserRepository;
+import org.example.security.CachedUserDetailsService;
+import org.example.security.VersionedUser;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.core.userdetails.User;
@@ -18,13 +21,17 @@ public class UserDetailsServiceConfig {
     }
 
     @Bean
-    public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByUsername(username)
-                .map(user -> User.builder()
+    public CachedUserDetailsService userDetailsService(
+            @Value("${security.user-cache.maximum-size:10000}") long maximumSize,
+            @Value("${security.user-cache.ttl-ms:60000}") long ttlMillis
+    ) {
+        UserDetailsService repositoryLookup = username -> userRepository.findByUsername(username)
+                .map(user -> new VersionedUser(User.builder()
                         .username(user.getUsername())
                         .password(user.getPassword())
                         .roles(user.getRole())
-                        .build())
+                        .build(), user.getTokenVersion()))
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        return new CachedUserDetailsService(repositoryLookup, maximumSize, ttlMillis);
     }
 }
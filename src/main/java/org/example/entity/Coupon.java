@@ -14,7 +14,8 @@ import java.time.Instant;
 @Builder
 public class Coupon {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupons_id_seq")
+    @SequenceGenerator(name = "coupons_id_seq", sequenceName = "coupons_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "code", nullable = false, unique = true)
@@ -26,6 +27,10 @@ public class Coupon {
     @Column(name = "current_uses", nullable = false)
     private Integer currentUses;
 
+    @Column(name = "leased_uses", nullable = false)
+    @Builder.Default
+    private Integer leasedUses = 0;
+
     @Column(name = "country", nullable = false, length = 2)
     private String country;
 
@@ -40,6 +45,7 @@ public class Coupon {
     public void prePersist() {
         this.code = this.code.trim().toUpperCase();
         this.currentUses = 0;
+        this.leasedUses = 0;
         this.createdAt = Instant.now();
         this.country = this.country.toUpperCase();
     }
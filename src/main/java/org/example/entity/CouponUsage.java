@@ -14,7 +14,8 @@ import java.time.Instant;
 @Builder
 public class CouponUsage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coupon_usages_id_seq")
+    @SequenceGenerator(name = "coupon_usages_id_seq", sequenceName = "coupon_usages_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -24,4 +24,7 @@ public class User {
 
     @Column(nullable = false)
     private String role;
+
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package org.example.exception.api;
+
+import org.springframework.http.HttpStatus;
+
+public class CouponAlreadyReservedException extends ApiException {
+    public CouponAlreadyReservedException(String userId, String code) {
+        super("CouponAlreadyReserved", "User " + userId + " already holds a reservation for coupon: " + code);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.exception.api;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.UUID;
+
+public class CouponReservationNotFoundException extends ApiException {
+    public CouponReservationNotFoundException(UUID reservationId) {
+        super("ReservationNotFound", "Reservation not found or expired: " + reservationId);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.NOT_FOUND;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.exception.api;
+
+import org.springframework.http.HttpStatus;
+
+public class CouponReservationUnsupportedException extends ApiException {
+    public CouponReservationUnsupportedException() {
+        super("CouponReservationUnsupported", "Coupon reservations are not supported while coupon budgets are held in slots");
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.exception.api;
+
+import org.springframework.http.HttpStatus;
+
+public class GeoIpUnavailableException extends ApiException {
+
+    public GeoIpUnavailableException(String ipAddress) {
+        super("GeoIpUnavailable", "GeoIP provider unavailable, cannot resolve country for IP: " + ipAddress);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.exception.api;
+
+import org.springframework.http.HttpStatus;
+
+public class IdempotencyKeyReusedException extends ApiException {
+    public IdempotencyKeyReusedException(String key, String code) {
+        super("IdempotencyKeyReused", "Idempotency key " + key + " was already used to redeem coupon: " + code);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.UNPROCESSABLE_ENTITY;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.exception.api;
+
+import org.springframework.http.HttpStatus;
+
+public class IdempotentRequestInProgressException extends ApiException {
+    public IdempotentRequestInProgressException(String key) {
+        super("IdempotentRequestInProgress", "A request with idempotency key " + key + " is still being processed");
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.CONFLICT;
+    }
+}
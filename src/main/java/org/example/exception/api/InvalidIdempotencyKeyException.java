@@ -0,0 +1,14 @@
+package org.example.exception.api;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidIdempotencyKeyException extends ApiException {
+    public InvalidIdempotencyKeyException(int maxLength) {
+        super("InvalidIdempotencyKey", "Idempotency key must be 1 to " + maxLength + " characters");
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.BAD_REQUEST;
+    }
+}
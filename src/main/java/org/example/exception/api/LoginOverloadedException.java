@@ -0,0 +1,15 @@
+package org.example.exception.api;
+
+import org.springframework.http.HttpStatus;
+
+public class LoginOverloadedException extends ApiException {
+
+    public LoginOverloadedException() {
+        super("LoginOverloaded", "Too many concurrent logins, try again shortly");
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+}
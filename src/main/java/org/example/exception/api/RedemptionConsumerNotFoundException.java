@@ -0,0 +1,14 @@
+package org.example.exception.api;
+
+import org.springframework.http.HttpStatus;
+
+public class RedemptionConsumerNotFoundException extends ApiException {
+    public RedemptionConsumerNotFoundException(String consumer) {
+        super("RedemptionConsumerNotFound", "Redemption event consumer not found: " + consumer);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.NOT_FOUND;
+    }
+}
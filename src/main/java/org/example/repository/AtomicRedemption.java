@@ -0,0 +1,12 @@
+package org.example.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.entity.Coupon;
+
+@Getter
+@AllArgsConstructor
+public class AtomicRedemption {
+    private final Coupon coupon;
+    private final boolean usageInserted;
+}
@@ -9,9 +9,11 @@ import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
-public interface CouponRepository extends JpaRepository<Coupon, Long> {
+public interface CouponRepository extends JpaRepository<Coupon, Long>, CouponRepositoryCustom {
     boolean existsByCodeIgnoreCase(String code);
 
+    Optional<Coupon> findByCodeIgnoreCase(String code);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT c FROM Coupon c WHERE UPPER(c.code) = UPPER(:code)")
     Optional<Coupon> findByCodeIgnoreCaseForUpdate(@Param("code") String code);
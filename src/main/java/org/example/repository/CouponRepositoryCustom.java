@@ -0,0 +1,94 @@
+package org.example.repository;
+
+import org.example.entity.Coupon;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface CouponRepositoryCustom {
+    /**
+     * Increments the usage counter and records the usage in one statement. Returns empty when the
+     * coupon does not exist, is exhausted, is not valid in the given country or was already used by
+     * the user; the caller has to find out which of these applied.
+     */
+    Optional<AtomicRedemption> redeemAtomically(String code, String country, String userId);
+
+    /**
+     * Moves up to {@code blockSize} uses of the remaining budget into {@code leased_uses} and returns
+     * how many were granted, 0 when the coupon is exhausted.
+     */
+    int leaseUses(long couponId, int blockSize);
+
+    /**
+     * Turns leased budget into {@code current_uses} ({@code used}) or hands it back ({@code released}).
+     */
+    void settleLeases(List<LeaseSettlement> settlements);
+
+    /**
+     * Inserts the coupons in one statement, skipping codes that collide on {@code uq_coupons_code_ci}
+     * (including collisions within the list), and returns the codes that were actually inserted.
+     */
+    Set<String> insertIgnoringDuplicates(List<Coupon> coupons);
+
+    /**
+     * Streams every coupon code to {@code action} without materializing the result set. Must run inside
+     * a transaction, otherwise the driver fetches all rows at once.
+     */
+    void forEachCode(Consumer<String> action);
+
+    /**
+     * Moves one use into {@code leased_uses} and records a reservation expiring after {@code ttlMillis},
+     * in one statement. Returns empty like {@link #redeemAtomically}; a result that is not applied
+     * means the user already holds a reservation for the coupon.
+     */
+    Optional<CouponReservation> reserve(UUID id, String code, String country, String userId, long ttlMillis);
+
+    /**
+     * Turns an unexpired reservation into a usage: deletes it, moves its use from {@code leased_uses}
+     * to {@code current_uses} and inserts into {@code coupon_usages}. Returns empty if the reservation
+     * does not exist or has expired.
+     */
+    Optional<CouponReservation> confirmReservation(UUID id);
+
+    /** Deletes the reservations and returns their uses to the budget; returns how many existed. */
+    int releaseReservations(Collection<UUID> ids);
+
+    /** Like {@link #releaseReservations} but skips reservations that have not expired yet. */
+    int releaseExpiredReservations(Collection<UUID> ids);
+
+    /** Releases up to {@code limit} expired reservations, whichever node created them. */
+    int releaseExpiredReservations(int limit);
+
+    /** Releases the user's reservation for the coupon if it has expired; returns 1 if there was one. */
+    int releaseExpiredReservation(String code, String userId);
+
+    /**
+     * Rebuilds the coupon's counters from what is recorded: {@code current_uses} from its usages (including
+     * unflushed outbox rows), {@code leased_uses} from its reservations and free slot uses. Budget leased by
+     * HOT nodes is dropped, so this must only run while no live node holds a lease on the coupon. Must run
+     * inside a transaction; returns empty for an unknown code.
+     */
+    Optional<Coupon> reconcileUses(String code);
+
+    /**
+     * Splits the remaining budget of each listed coupon that has no slots yet into at most {@code slotCount}
+     * slots of equal size and moves it into {@code leased_uses}. Returns how many coupons were slotted.
+     */
+    int createSlots(Collection<String> codes, int slotCount);
+
+    /**
+     * Takes one use from any free slot of the coupon, and records the usage, in one statement. With
+     * {@code skipLocked} slots held by other transactions are passed over; without it the claim waits for them.
+     */
+    SlotClaim claimSlot(long couponId, String userId, boolean skipLocked);
+
+    /**
+     * Moves uses spent from slots into {@code current_uses}, skipping slots that are being claimed right
+     * now. Returns the number of uses rolled up.
+     */
+    int rollUpSlots();
+}
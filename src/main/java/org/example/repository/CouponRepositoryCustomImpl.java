@@ -0,0 +1,456 @@
+package org.example.repository;
+
+import org.example.entity.Coupon;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public class CouponRepositoryCustomImpl implements CouponRepositoryCustom {
+
+    private static final String REDEEM_ATOMICALLY_SQL = """
+            WITH claimed AS (
+                UPDATE coupons c
+                   SET current_uses = c.current_uses + 1,
+                       version = c.version + 1
+                 WHERE UPPER(c.code) = UPPER(:code)
+                   AND c.country = UPPER(:country)
+                   AND c.current_uses + c.leased_uses < c.max_uses
+                   AND NOT EXISTS (
+                       SELECT 1 FROM coupon_usages u WHERE u.coupon_id = c.id AND u.user_id = :userId)
+                   AND NOT EXISTS (
+                       SELECT 1 FROM redemption_outbox o WHERE o.coupon_id = c.id AND o.user_id = :userId)
+                RETURNING c.id, c.code, c.max_uses, c.current_uses, c.leased_uses, c.country, c.created_at, c.version
+            ), inserted AS (
+                INSERT INTO coupon_usages (coupon_id, user_id, used_at)
+                SELECT id, :userId, NOW() FROM claimed
+                ON CONFLICT ON CONSTRAINT uq_coupon_user DO NOTHING
+                RETURNING coupon_id
+            )
+            SELECT claimed.*, EXISTS (SELECT 1 FROM inserted) AS usage_inserted
+              FROM claimed
+            """;
+
+    private static final String LEASE_USES_SQL = """
+            UPDATE coupons c
+               SET leased_uses = c.leased_uses + g.granted
+              FROM (SELECT id, LEAST(:blockSize, max_uses - current_uses - leased_uses) AS granted
+                      FROM coupons
+                     WHERE id = :couponId
+                       FOR UPDATE) g
+             WHERE c.id = g.id
+               AND g.granted > 0
+            RETURNING g.granted
+            """;
+
+    private static final String SETTLE_LEASE_SQL = """
+            UPDATE coupons
+               SET current_uses = current_uses + :used,
+                   leased_uses = leased_uses - :used - :released,
+                   version = version + 1
+             WHERE id = :couponId
+            """;
+
+    private static final String INSERT_IGNORING_DUPLICATES_SQL = """
+            INSERT INTO coupons (code, max_uses, country)
+            SELECT code, max_uses, country
+              FROM UNNEST(CAST(? AS VARCHAR[]), CAST(? AS INTEGER[]), CAST(? AS VARCHAR[])) AS t (code, max_uses, country)
+            ON CONFLICT ((UPPER(code))) DO NOTHING
+            RETURNING code
+            """;
+
+    private static final String SELECT_CODES_SQL = "SELECT code FROM coupons";
+
+    // Still one UPDATE of the coupon row per reservation, so reservations of one code serialize on its row
+    // lock like LOCKING mode; only the hold between reserve and confirm is taken off the row.
+    private static final String RESERVE_SQL = """
+            WITH reserved AS (
+                UPDATE coupons c
+                   SET leased_uses = c.leased_uses + 1,
+                       version = c.version + 1
+                 WHERE UPPER(c.code) = UPPER(:code)
+                   AND c.country = UPPER(:country)
+                   AND c.current_uses + c.leased_uses < c.max_uses
+                   AND NOT EXISTS (
+                       SELECT 1 FROM coupon_usages u WHERE u.coupon_id = c.id AND u.user_id = :userId)
+                   AND NOT EXISTS (
+                       SELECT 1 FROM redemption_outbox o WHERE o.coupon_id = c.id AND o.user_id = :userId)
+                RETURNING c.id, c.code, c.max_uses, c.current_uses, c.leased_uses, c.country, c.created_at, c.version
+            ), inserted AS (
+                INSERT INTO coupon_reservations (id, coupon_id, user_id, expires_at)
+                SELECT :id, id, :userId, NOW() + :ttlMillis * INTERVAL '1 millisecond' FROM reserved
+                ON CONFLICT ON CONSTRAINT uq_reservation_coupon_user DO NOTHING
+                RETURNING expires_at
+            )
+            SELECT reserved.*, :userId AS user_id, inserted.expires_at, inserted.expires_at IS NOT NULL AS applied
+              FROM reserved LEFT JOIN inserted ON TRUE
+            """;
+
+    private static final String LOCK_RESERVED_COUPON_SQL = """
+            SELECT c.id
+              FROM coupons c
+              JOIN coupon_reservations r ON r.coupon_id = c.id
+             WHERE r.id = :id
+               FOR UPDATE OF c
+            """;
+
+    private static final String CONFIRM_RESERVATION_SQL = """
+            WITH confirmed AS (
+                DELETE FROM coupon_reservations
+                 WHERE id = :id
+                   AND expires_at > NOW()
+                RETURNING coupon_id, user_id, expires_at
+            ), claimed AS (
+                UPDATE coupons c
+                   SET current_uses = c.current_uses + 1,
+                       leased_uses = c.leased_uses - 1,
+                       version = c.version + 1
+                  FROM confirmed r
+                 WHERE c.id = r.coupon_id
+                RETURNING c.id, c.code, c.max_uses, c.current_uses, c.leased_uses, c.country, c.created_at, c.version,
+                          r.user_id, r.expires_at
+            ), inserted AS (
+                INSERT INTO coupon_usages (coupon_id, user_id, used_at)
+                SELECT id, user_id, NOW() FROM claimed
+                 WHERE NOT EXISTS (
+                       SELECT 1 FROM redemption_outbox o WHERE o.coupon_id = claimed.id AND o.user_id = claimed.user_id)
+                ON CONFLICT ON CONSTRAINT uq_coupon_user DO NOTHING
+                RETURNING coupon_id
+            )
+            SELECT claimed.*, EXISTS (SELECT 1 FROM inserted) AS applied
+              FROM claimed
+            """;
+
+    // Deletes the matching reservations and hands their uses back, one UPDATE per affected coupon.
+    private static final String RELEASE_RESERVATIONS_SQL = """
+            WITH released AS (
+                DELETE FROM coupon_reservations
+                 WHERE %s
+                RETURNING coupon_id
+            ), counts AS (
+                SELECT coupon_id, COUNT(*) AS released FROM released GROUP BY coupon_id
+            )
+            UPDATE coupons c
+               SET leased_uses = c.leased_uses - counts.released,
+                   version = c.version + 1
+              FROM counts
+             WHERE c.id = counts.coupon_id
+            RETURNING counts.released
+            """;
+
+    private static final String RELEASE_BY_ID_SQL = RELEASE_RESERVATIONS_SQL.formatted("id IN (:ids)");
+
+    private static final String RELEASE_EXPIRED_BY_ID_SQL =
+            RELEASE_RESERVATIONS_SQL.formatted("id IN (:ids) AND expires_at <= NOW()");
+
+    private static final String RELEASE_EXPIRED_SQL = RELEASE_RESERVATIONS_SQL.formatted("""
+            id IN (SELECT id FROM coupon_reservations
+                            WHERE expires_at <= NOW()
+                            ORDER BY expires_at
+                            LIMIT :limit
+                              FOR UPDATE SKIP LOCKED)""");
+
+    private static final String RELEASE_EXPIRED_FOR_USER_SQL = RELEASE_RESERVATIONS_SQL.formatted("""
+            coupon_id = (SELECT id FROM coupons WHERE UPPER(code) = UPPER(:code))
+                   AND user_id = :userId
+                   AND expires_at <= NOW()""");
+
+    private static final String LOCK_COUPON_SQL = "SELECT id FROM coupons WHERE UPPER(code) = UPPER(:code) FOR UPDATE";
+
+    // Uses are counted where they are recorded: coupon_usages plus outbox rows not flushed yet. Spent slot
+    // uses are in coupon_usages already, so the slots are marked settled and only their free uses stay leased.
+    private static final String RECONCILE_USES_SQL = """
+            WITH settled_slots AS (
+                UPDATE coupon_slots s
+                   SET capacity = s.remaining
+                  FROM coupons c
+                 WHERE s.coupon_id = c.id
+                   AND UPPER(c.code) = UPPER(:code)
+                RETURNING s.remaining
+            )
+            UPDATE coupons c
+               SET current_uses = (SELECT COUNT(*) FROM coupon_usages u WHERE u.coupon_id = c.id)
+                       + (SELECT COUNT(*) FROM redemption_outbox o WHERE o.coupon_id = c.id AND o.flushed_at IS NULL),
+                   leased_uses = (SELECT COUNT(*) FROM coupon_reservations r WHERE r.coupon_id = c.id)
+                       + (SELECT COALESCE(SUM(remaining), 0) FROM settled_slots),
+                   version = c.version + 1
+             WHERE UPPER(c.code) = UPPER(:code)
+            RETURNING c.id, c.code, c.max_uses, c.current_uses, c.leased_uses, c.country, c.created_at, c.version
+            """;
+
+    private static final int CODE_FETCH_SIZE = 10_000;
+
+    // Slot size is ceil(uses / slotCount), written so it cannot overflow, which caps a coupon at slotCount rows.
+    private static final String CREATE_SLOTS_SQL = """
+            WITH budget AS (
+                SELECT id, max_uses - current_uses - leased_uses AS uses
+                  FROM coupons
+                 WHERE UPPER(code) IN (:codes)
+                   AND current_uses + leased_uses < max_uses
+                   AND NOT EXISTS (SELECT 1 FROM coupon_slots s WHERE s.coupon_id = coupons.id)
+                   FOR UPDATE
+            ), slotted AS (
+                UPDATE coupons c
+                   SET leased_uses = c.leased_uses + b.uses,
+                       version = c.version + 1
+                  FROM budget b
+                 WHERE c.id = b.id
+                RETURNING c.id, b.uses, (b.uses - 1) / :slotCount + 1 AS size
+            ), inserted AS (
+                INSERT INTO coupon_slots (coupon_id, slot, capacity, remaining)
+                SELECT slotted.id, n, LEAST(slotted.size, slotted.uses - n * slotted.size),
+                       LEAST(slotted.size, slotted.uses - n * slotted.size)
+                  FROM slotted, generate_series(0, (slotted.uses - 1) / slotted.size) AS n
+                RETURNING coupon_id
+            )
+            SELECT COUNT(DISTINCT coupon_id) FROM inserted
+            """;
+
+    // %s is the lock clause: SKIP LOCKED, or nothing to wait for slots held by in-flight claims.
+    private static final String CLAIM_SLOT_SQL = """
+            WITH free AS (
+                SELECT coupon_id, slot
+                  FROM coupon_slots
+                 WHERE coupon_id = :couponId
+                   AND remaining > 0
+                 ORDER BY slot
+                 LIMIT 1
+                   FOR UPDATE %s
+            ), claimed AS (
+                UPDATE coupon_slots s
+                   SET remaining = s.remaining - 1
+                  FROM free
+                 WHERE s.coupon_id = free.coupon_id
+                   AND s.slot = free.slot
+                RETURNING s.coupon_id
+            ), inserted AS (
+                INSERT INTO coupon_usages (coupon_id, user_id, used_at)
+                SELECT coupon_id, :userId, NOW() FROM claimed
+                 WHERE NOT EXISTS (
+                       SELECT 1 FROM redemption_outbox o WHERE o.coupon_id = claimed.coupon_id AND o.user_id = :userId)
+                ON CONFLICT ON CONSTRAINT uq_coupon_user DO NOTHING
+                RETURNING coupon_id
+            )
+            SELECT EXISTS (SELECT 1 FROM claimed) AS claimed,
+                   EXISTS (SELECT 1 FROM inserted) AS usage_inserted,
+                   EXISTS (SELECT 1 FROM coupon_slots WHERE coupon_id = :couponId) AS slotted,
+                   -- The statement's snapshot does not see its own claim yet.
+                   (SELECT COALESCE(SUM(capacity - remaining), 0) FROM coupon_slots WHERE coupon_id = :couponId)
+                       + (SELECT COUNT(*) FROM claimed) AS unsettled,
+                   (SELECT COALESCE(SUM(remaining), 0) FROM coupon_slots WHERE coupon_id = :couponId)
+                       - (SELECT COUNT(*) FROM claimed) AS free
+            """;
+
+    private static final String CLAIM_UNLOCKED_SLOT_SQL = CLAIM_SLOT_SQL.formatted("SKIP LOCKED");
+
+    private static final String CLAIM_ANY_SLOT_SQL = CLAIM_SLOT_SQL.formatted("");
+
+    // SKIP LOCKED: slots held by an in-flight claim are rolled up next time rather than waited for.
+    private static final String ROLL_UP_SLOTS_SQL = """
+            WITH spent AS (
+                SELECT coupon_id, slot, capacity - remaining AS used
+                  FROM coupon_slots
+                 WHERE capacity > remaining
+                   FOR UPDATE SKIP LOCKED
+            ), settled AS (
+                UPDATE coupon_slots s
+                   SET capacity = s.capacity - spent.used
+                  FROM spent
+                 WHERE s.coupon_id = spent.coupon_id
+                   AND s.slot = spent.slot
+                RETURNING s.coupon_id, spent.used
+            ), totals AS (
+                SELECT coupon_id, SUM(used) AS used FROM settled GROUP BY coupon_id
+            )
+            UPDATE coupons c
+               SET current_uses = c.current_uses + totals.used,
+                   leased_uses = c.leased_uses - totals.used,
+                   version = c.version + 1
+              FROM totals
+             WHERE c.id = totals.coupon_id
+            RETURNING totals.used
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public CouponRepositoryCustomImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<AtomicRedemption> redeemAtomically(String code, String country, String userId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("code", code)
+                .addValue("country", country)
+                .addValue("userId", userId);
+        List<AtomicRedemption> rows = jdbcTemplate.query(REDEEM_ATOMICALLY_SQL, params,
+                (rs, rowNum) -> new AtomicRedemption(mapCoupon(rs), rs.getBoolean("usage_inserted")));
+        return rows.stream().findFirst();
+    }
+
+    @Override
+    public int leaseUses(long couponId, int blockSize) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("couponId", couponId)
+                .addValue("blockSize", blockSize);
+        List<Integer> granted = jdbcTemplate.queryForList(LEASE_USES_SQL, params, Integer.class);
+        return granted.isEmpty() ? 0 : granted.get(0);
+    }
+
+    @Override
+    public void settleLeases(List<LeaseSettlement> settlements) {
+        SqlParameterSource[] batch = settlements.stream()
+                .map(settlement -> new MapSqlParameterSource()
+                        .addValue("couponId", settlement.getCouponId())
+                        .addValue("used", settlement.getUsed())
+                        .addValue("released", settlement.getReleased()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(SETTLE_LEASE_SQL, batch);
+    }
+
+    @Override
+    public Set<String> insertIgnoringDuplicates(List<Coupon> coupons) {
+        if (coupons.isEmpty()) {
+            return new HashSet<>();
+        }
+        String[] codes = new String[coupons.size()];
+        Integer[] maxUses = new Integer[coupons.size()];
+        String[] countries = new String[coupons.size()];
+        for (int i = 0; i < coupons.size(); i++) {
+            codes[i] = coupons.get(i).getCode();
+            maxUses[i] = coupons.get(i).getMaxUses();
+            countries[i] = coupons.get(i).getCountry();
+        }
+        // One array-bound statement per chunk: a single round-trip, and an exact count of what got inserted.
+        List<String> inserted = jdbcTemplate.getJdbcOperations().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_IGNORING_DUPLICATES_SQL);
+            ps.setArray(1, connection.createArrayOf("varchar", codes));
+            ps.setArray(2, connection.createArrayOf("integer", maxUses));
+            ps.setArray(3, connection.createArrayOf("varchar", countries));
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1));
+        return new HashSet<>(inserted);
+    }
+
+    @Override
+    public void forEachCode(Consumer<String> action) {
+        jdbcTemplate.getJdbcOperations().query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_CODES_SQL);
+            ps.setFetchSize(CODE_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(rs.getString(1)));
+    }
+
+    @Override
+    public Optional<CouponReservation> reserve(UUID id, String code, String country, String userId, long ttlMillis) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("code", code)
+                .addValue("country", country)
+                .addValue("userId", userId)
+                .addValue("ttlMillis", ttlMillis);
+        return jdbcTemplate.query(RESERVE_SQL, params, (rs, rowNum) -> mapReservation(id, rs)).stream().findFirst();
+    }
+
+    @Override
+    public Optional<CouponReservation> confirmReservation(UUID id) {
+        MapSqlParameterSource params = new MapSqlParameterSource("id", id);
+        // Locked by a statement of its own, so that the confirmation's snapshot is taken after any
+        // redemption holding the row has committed, and sees a usage it wrote to the outbox.
+        jdbcTemplate.queryForList(LOCK_RESERVED_COUPON_SQL, params, Long.class);
+        return jdbcTemplate.query(CONFIRM_RESERVATION_SQL, params,
+                (rs, rowNum) -> mapReservation(id, rs)).stream().findFirst();
+    }
+
+    @Override
+    public Optional<Coupon> reconcileUses(String code) {
+        MapSqlParameterSource params = new MapSqlParameterSource("code", code);
+        // Locked first, like confirmReservation, so the counts are read after any redemption holding the row.
+        jdbcTemplate.queryForList(LOCK_COUPON_SQL, params, Long.class);
+        return jdbcTemplate.query(RECONCILE_USES_SQL, params, (rs, rowNum) -> mapCoupon(rs)).stream().findFirst();
+    }
+
+    @Override
+    public int releaseReservations(Collection<UUID> ids) {
+        return ids.isEmpty() ? 0 : release(RELEASE_BY_ID_SQL, new MapSqlParameterSource("ids", ids));
+    }
+
+    @Override
+    public int releaseExpiredReservations(Collection<UUID> ids) {
+        return ids.isEmpty() ? 0 : release(RELEASE_EXPIRED_BY_ID_SQL, new MapSqlParameterSource("ids", ids));
+    }
+
+    @Override
+    public int releaseExpiredReservations(int limit) {
+        return release(RELEASE_EXPIRED_SQL, new MapSqlParameterSource("limit", limit));
+    }
+
+    @Override
+    public int releaseExpiredReservation(String code, String userId) {
+        return release(RELEASE_EXPIRED_FOR_USER_SQL, new MapSqlParameterSource()
+                .addValue("code", code)
+                .addValue("userId", userId));
+    }
+
+    @Override
+    public int createSlots(Collection<String> codes, int slotCount) {
+        if (codes.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("codes", codes)
+                .addValue("slotCount", slotCount);
+        Integer slotted = jdbcTemplate.queryForObject(CREATE_SLOTS_SQL, params, Integer.class);
+        return slotted == null ? 0 : slotted;
+    }
+
+    @Override
+    public SlotClaim claimSlot(long couponId, String userId, boolean skipLocked) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("couponId", couponId)
+                .addValue("userId", userId);
+        return jdbcTemplate.queryForObject(skipLocked ? CLAIM_UNLOCKED_SLOT_SQL : CLAIM_ANY_SLOT_SQL, params,
+                (rs, rowNum) -> new SlotClaim(rs.getBoolean("claimed"), rs.getBoolean("usage_inserted"),
+                        rs.getBoolean("slotted"), rs.getInt("unsettled"), rs.getInt("free")));
+    }
+
+    @Override
+    public int rollUpSlots() {
+        return release(ROLL_UP_SLOTS_SQL, new MapSqlParameterSource());
+    }
+
+    private int release(String sql, SqlParameterSource params) {
+        return jdbcTemplate.queryForList(sql, params, Integer.class).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static CouponReservation mapReservation(UUID id, ResultSet rs) throws SQLException {
+        Timestamp expiresAt = rs.getTimestamp("expires_at");
+        return new CouponReservation(id, mapCoupon(rs), rs.getString("user_id"),
+                expiresAt == null ? null : expiresAt.toInstant(), rs.getBoolean("applied"));
+    }
+
+    static Coupon mapCoupon(ResultSet rs) throws SQLException {
+        return Coupon.builder()
+                .id(rs.getLong("id"))
+                .code(rs.getString("code"))
+                .maxUses(rs.getInt("max_uses"))
+                .currentUses(rs.getInt("current_uses"))
+                .leasedUses(rs.getInt("leased_uses"))
+                .country(rs.getString("country"))
+                .createdAt(rs.getTimestamp("created_at").toInstant())
+                .version(rs.getLong("version"))
+                .build();
+    }
+}
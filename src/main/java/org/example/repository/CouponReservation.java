@@ -0,0 +1,22 @@
+package org.example.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.entity.Coupon;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Result of reserving or confirming. {@code applied} is false when the coupon row was updated but the
+ * reservation (or, on confirm, the usage) row collided with an existing one; the caller must roll back.
+ */
+@Getter
+@AllArgsConstructor
+public class CouponReservation {
+    private final UUID id;
+    private final Coupon coupon;
+    private final String userId;
+    private final Instant expiresAt;
+    private final boolean applied;
+}
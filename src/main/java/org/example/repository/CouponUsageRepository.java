@@ -3,10 +3,28 @@ package org.example.repository;
 import org.example.entity.Coupon;
 import org.example.entity.CouponUsage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface CouponUsageRepository extends JpaRepository<CouponUsage, Long> {
-    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN true ELSE false END FROM CouponUsage u WHERE u.coupon = :coupon AND u.userId = :userId")
+import java.util.Collection;
+import java.util.List;
+
+public interface CouponUsageRepository extends JpaRepository<CouponUsage, Long>, CouponUsageRepositoryCustom {
+    // Usages still pending in redemption_outbox count too, whether or not the outbox is switched on now.
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM coupon_usages WHERE coupon_id = :#{#coupon.id} AND user_id = :userId) "
+            + "OR EXISTS (SELECT 1 FROM redemption_outbox WHERE coupon_id = :#{#coupon.id} AND user_id = :userId)",
+            nativeQuery = true)
     boolean existsByCouponAndUserId(@Param("coupon") Coupon coupon, @Param("userId") String userId);
+
+    @Query("SELECT u.userId FROM CouponUsage u WHERE u.coupon = :coupon AND u.userId IN :userIds")
+    List<String> findUserIdsByCouponAndUserIdIn(@Param("coupon") Coupon coupon, @Param("userIds") Collection<String> userIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO coupon_usages (coupon_id, user_id, used_at) SELECT :couponId, :userId, NOW() "
+            + "WHERE NOT EXISTS (SELECT 1 FROM redemption_outbox WHERE coupon_id = :couponId AND user_id = :userId) "
+            + "ON CONFLICT ON CONSTRAINT uq_coupon_user DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("couponId") Long couponId, @Param("userId") String userId);
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package org.example.repository;
+
+import org.example.entity.CouponUsage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface CouponUsageRepositoryCustom {
+    /**
+     * Inserts all usages with a single JDBC batch, bypassing the IDENTITY round-trip per row.
+     */
+    void insertAll(List<CouponUsage> usages);
+
+    /**
+     * Streams the ids of the users that redeemed the coupon. Must run inside a transaction, otherwise the
+     * driver fetches all rows at once.
+     */
+    void forEachUserId(long couponId, Consumer<String> action);
+
+    /**
+     * Records the usage in {@code redemption_outbox} unless the user already redeemed the coupon, pending
+     * or flushed. Returns 0 if they had.
+     */
+    int enqueueIfAbsent(long couponId, String userId);
+
+    /** Records all usages in {@code redemption_outbox} with a single JDBC batch. */
+    void enqueueAll(List<CouponUsage> usages);
+
+    /** The users among {@code userIds} whose usage of the coupon is still in {@code redemption_outbox}. */
+    List<String> findEnqueuedUserIds(long couponId, Collection<String> userIds);
+
+    /** Copies up to {@code limit} pending outbox rows into {@code coupon_usages} and returns how many it copied. */
+    int flushOutbox(int limit);
+
+    /**
+     * Deletes up to {@code limit} outbox rows flushed more than {@code retentionMillis} ago that every
+     * registered consumer has acknowledged.
+     */
+    int purgeOutbox(long retentionMillis, int limit);
+
+    /** Registers an outbox consumer with its cursor before the first row, unless it exists. */
+    void registerOutboxConsumer(String consumer);
+
+    /** Moves the consumer's cursor forward to {@code lastId}; returns 0 for an unknown consumer. */
+    int acknowledgeOutbox(String consumer, long lastId);
+
+    /** Deletes the consumer and its cursor, so it no longer holds back purging. */
+    int removeOutboxConsumer(String consumer);
+
+    /** The highest outbox id handed out so far, or 0 if none was. */
+    long outboxHighWaterMark();
+
+    /**
+     * Waits until every transaction that was writing to the outbox when it was called has finished. Ids read
+     * by {@link #outboxHighWaterMark()} before this call can then no longer appear. Must not run inside a
+     * transaction, or the writers stay blocked until it ends.
+     */
+    void awaitOutboxWriters();
+
+    /** Up to {@code limit} outbox rows past the consumer's cursor and not above {@code maxId}, in id order. */
+    List<OutboxEvent> readOutbox(String consumer, long maxId, int limit);
+}
@@ -0,0 +1,206 @@
+package org.example.repository;
+
+import org.example.entity.CouponUsage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class CouponUsageRepositoryCustomImpl implements CouponUsageRepositoryCustom {
+
+    private static final String INSERT_SQL = "INSERT INTO coupon_usages (coupon_id, user_id, used_at) VALUES (?, ?, ?)";
+
+    private static final String SELECT_USER_IDS_SQL = "SELECT user_id FROM coupon_usages WHERE coupon_id = ?";
+
+    // Writers hold this lock shared from before they take an id until they commit, so that a consumer can
+    // wait for every id below the high-water mark to commit or roll back before reading past it.
+    private static final long OUTBOX_WRITER_LOCK = 0x6f7574626f78L;
+
+    private static final String ENQUEUE_SQL = """
+            INSERT INTO redemption_outbox (coupon_id, user_id, used_at)
+            SELECT ?, ?, ? FROM (SELECT pg_advisory_xact_lock_shared(%d)) writer
+            """.formatted(OUTBOX_WRITER_LOCK);
+
+    // The check reads coupon_usages and the outbox in one snapshot, so a row being flushed is seen in one of them.
+    private static final String ENQUEUE_IF_ABSENT_SQL = """
+            INSERT INTO redemption_outbox (coupon_id, user_id, used_at)
+            SELECT ?, ?, NOW() FROM (SELECT pg_advisory_xact_lock_shared(%d)) writer
+             WHERE NOT EXISTS (SELECT 1 FROM coupon_usages WHERE coupon_id = ? AND user_id = ?)
+            ON CONFLICT ON CONSTRAINT uq_outbox_coupon_user DO NOTHING
+            """.formatted(OUTBOX_WRITER_LOCK);
+
+    private static final String SELECT_ENQUEUED_USER_IDS_SQL =
+            "SELECT user_id FROM redemption_outbox WHERE coupon_id = ? AND user_id = ANY (?)";
+
+    private static final String FLUSH_OUTBOX_SQL = """
+            WITH pending AS (
+                SELECT id, coupon_id, user_id, used_at
+                  FROM redemption_outbox
+                 WHERE flushed_at IS NULL
+                 ORDER BY id
+                 LIMIT ?
+                   FOR UPDATE SKIP LOCKED
+            ), flushed AS (
+                UPDATE redemption_outbox o
+                   SET flushed_at = NOW()
+                  FROM pending
+                 WHERE o.id = pending.id
+            ), inserted AS (
+                INSERT INTO coupon_usages (coupon_id, user_id, used_at)
+                SELECT coupon_id, user_id, used_at FROM pending ORDER BY id
+                ON CONFLICT ON CONSTRAINT uq_coupon_user DO NOTHING
+            )
+            SELECT COUNT(*) FROM pending
+            """;
+
+    private static final String PURGE_OUTBOX_SQL = """
+            DELETE FROM redemption_outbox
+             WHERE id IN (SELECT id FROM redemption_outbox
+                           WHERE flushed_at < NOW() - ? * INTERVAL '1 millisecond'
+                             AND id <= (SELECT COALESCE(MIN(last_id), 9223372036854775807)
+                                          FROM redemption_outbox_consumers)
+                           LIMIT ?)
+            """;
+
+    private static final String REGISTER_CONSUMER_SQL =
+            "INSERT INTO redemption_outbox_consumers (name) VALUES (?) ON CONFLICT (name) DO NOTHING";
+
+    private static final String ACKNOWLEDGE_SQL = """
+            UPDATE redemption_outbox_consumers
+               SET last_id = GREATEST(last_id, ?),
+                   acknowledged_at = NOW()
+             WHERE name = ?
+            """;
+
+    private static final String REMOVE_CONSUMER_SQL = "DELETE FROM redemption_outbox_consumers WHERE name = ?";
+
+    private static final String HIGH_WATER_MARK_SQL =
+            "SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM redemption_outbox_id_seq";
+
+    private static final String AWAIT_WRITERS_SQL = "SELECT pg_advisory_xact_lock(%d)".formatted(OUTBOX_WRITER_LOCK);
+
+    private static final String READ_OUTBOX_SQL = """
+            SELECT o.id, o.coupon_id, o.user_id, o.used_at
+              FROM redemption_outbox o
+              JOIN redemption_outbox_consumers c ON c.name = ?
+             WHERE o.id > c.last_id
+               AND o.id <= ?
+             ORDER BY o.id
+             LIMIT ?
+            """;
+
+    private static final int USER_ID_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CouponUsageRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<CouponUsage> usages) {
+        if (usages.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, usages, usages.size(), (ps, usage) -> {
+            ps.setLong(1, usage.getCoupon().getId());
+            ps.setString(2, usage.getUserId());
+            ps.setTimestamp(3, usage.getUsedAt() != null ? Timestamp.from(usage.getUsedAt()) : now);
+        });
+    }
+
+    @Override
+    public int enqueueIfAbsent(long couponId, String userId) {
+        return jdbcTemplate.update(ENQUEUE_IF_ABSENT_SQL, couponId, userId, couponId, userId);
+    }
+
+    @Override
+    public void enqueueAll(List<CouponUsage> usages) {
+        if (usages.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(ENQUEUE_SQL, usages, usages.size(), (ps, usage) -> {
+            ps.setLong(1, usage.getCoupon().getId());
+            ps.setString(2, usage.getUserId());
+            ps.setTimestamp(3, usage.getUsedAt() != null ? Timestamp.from(usage.getUsedAt()) : now);
+        });
+    }
+
+    @Override
+    public List<String> findEnqueuedUserIds(long couponId, Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_ENQUEUED_USER_IDS_SQL);
+            ps.setLong(1, couponId);
+            ps.setArray(2, connection.createArrayOf("varchar", userIds.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1));
+    }
+
+    @Override
+    public int flushOutbox(int limit) {
+        Integer flushed = jdbcTemplate.queryForObject(FLUSH_OUTBOX_SQL, Integer.class, limit);
+        return flushed == null ? 0 : flushed;
+    }
+
+    @Override
+    public int purgeOutbox(long retentionMillis, int limit) {
+        return jdbcTemplate.update(PURGE_OUTBOX_SQL, retentionMillis, limit);
+    }
+
+    @Override
+    public void registerOutboxConsumer(String consumer) {
+        jdbcTemplate.update(REGISTER_CONSUMER_SQL, consumer);
+    }
+
+    @Override
+    public int acknowledgeOutbox(String consumer, long lastId) {
+        return jdbcTemplate.update(ACKNOWLEDGE_SQL, lastId, consumer);
+    }
+
+    @Override
+    public int removeOutboxConsumer(String consumer) {
+        return jdbcTemplate.update(REMOVE_CONSUMER_SQL, consumer);
+    }
+
+    @Override
+    public long outboxHighWaterMark() {
+        Long highWaterMark = jdbcTemplate.queryForObject(HIGH_WATER_MARK_SQL, Long.class);
+        return highWaterMark == null ? 0 : highWaterMark;
+    }
+
+    @Override
+    public void awaitOutboxWriters() {
+        // Outside a transaction the lock is released as soon as the statement returns.
+        jdbcTemplate.execute(AWAIT_WRITERS_SQL);
+    }
+
+    @Override
+    public List<OutboxEvent> readOutbox(String consumer, long maxId, int limit) {
+        return jdbcTemplate.query(READ_OUTBOX_SQL, (rs, rowNum) -> new OutboxEvent(
+                rs.getLong("id"),
+                rs.getLong("coupon_id"),
+                rs.getString("user_id"),
+                rs.getTimestamp("used_at").toInstant()
+        ), consumer, maxId, limit);
+    }
+
+    @Override
+    public void forEachUserId(long couponId, Consumer<String> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_USER_IDS_SQL);
+            ps.setLong(1, couponId);
+            ps.setFetchSize(USER_ID_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(rs.getString(1)));
+    }
+}
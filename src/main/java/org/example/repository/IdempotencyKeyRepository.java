@@ -0,0 +1,116 @@
+package org.example.repository;
+
+import org.example.api.v1.model.response.CouponResponse;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class IdempotencyKeyRepository {
+
+    private static final String FIND_SQL = """
+            SELECT code, current_uses, max_uses, country, coupon_created_at
+              FROM idempotency_keys
+             WHERE user_id = :userId
+               AND idempotency_key = :key
+               AND expires_at > NOW()
+            """;
+
+    // Inserts a pending row, or takes over one whose claim or result has expired. Only one request wins.
+    private static final String CLAIM_SQL = """
+            INSERT INTO idempotency_keys (user_id, idempotency_key, code, expires_at)
+            VALUES (:userId, :key, :code, NOW() + :timeoutMillis * INTERVAL '1 millisecond')
+            ON CONFLICT (user_id, idempotency_key) DO UPDATE
+               SET code = EXCLUDED.code,
+                   current_uses = NULL,
+                   max_uses = NULL,
+                   country = NULL,
+                   coupon_created_at = NULL,
+                   expires_at = EXCLUDED.expires_at
+             WHERE idempotency_keys.expires_at <= NOW()
+            """;
+
+    private static final String COMPLETE_SQL = """
+            UPDATE idempotency_keys
+               SET code = :code,
+                   current_uses = :currentUses,
+                   max_uses = :maxUses,
+                   country = :country,
+                   coupon_created_at = :createdAt,
+                   expires_at = NOW() + :ttlMillis * INTERVAL '1 millisecond'
+             WHERE user_id = :userId
+               AND idempotency_key = :key
+            """;
+
+    private static final String RELEASE_SQL = """
+            DELETE FROM idempotency_keys
+             WHERE user_id = :userId
+               AND idempotency_key = :key
+               AND current_uses IS NULL
+            """;
+
+    private static final String DELETE_EXPIRED_SQL = """
+            DELETE FROM idempotency_keys
+             WHERE (user_id, idempotency_key) IN (SELECT user_id, idempotency_key
+                                                    FROM idempotency_keys
+                                                   WHERE expires_at <= NOW()
+                                                   LIMIT :limit
+                                                     FOR UPDATE SKIP LOCKED)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<IdempotencyRecord> find(String userId, String key) {
+        List<IdempotencyRecord> found = jdbcTemplate.query(FIND_SQL, keyParams(userId, key), (rs, rowNum) -> {
+            Timestamp createdAt = rs.getTimestamp("coupon_created_at");
+            CouponResponse response = createdAt == null ? null : new CouponResponse(
+                    rs.getString("code"),
+                    rs.getInt("current_uses"),
+                    rs.getInt("max_uses"),
+                    createdAt.toInstant(),
+                    rs.getString("country"));
+            return new IdempotencyRecord(rs.getString("code"), response);
+        });
+        return found.stream().findFirst();
+    }
+
+    /** Claims the key for redeeming {@code code}; false while another request holds it or its result is live. */
+    public boolean claim(String userId, String key, String code, long timeoutMillis) {
+        return jdbcTemplate.update(CLAIM_SQL, keyParams(userId, key)
+                .addValue("code", code)
+                .addValue("timeoutMillis", timeoutMillis)) == 1;
+    }
+
+    public void complete(String userId, String key, CouponResponse response, long ttlMillis) {
+        jdbcTemplate.update(COMPLETE_SQL, keyParams(userId, key)
+                .addValue("code", response.getCode())
+                .addValue("currentUses", response.getCurrentUses())
+                .addValue("maxUses", response.getMaxUses())
+                .addValue("country", response.getCountry())
+                .addValue("createdAt", Timestamp.from(response.getCreatedAt()))
+                .addValue("ttlMillis", ttlMillis));
+    }
+
+    /** Gives up a claim whose redemption failed, so that a retry redeems again. */
+    public void release(String userId, String key) {
+        jdbcTemplate.update(RELEASE_SQL, keyParams(userId, key));
+    }
+
+    public int deleteExpired(int limit) {
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, new MapSqlParameterSource("limit", limit));
+    }
+
+    private static MapSqlParameterSource keyParams(String userId, String key) {
+        return new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("key", key);
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.api.v1.model.response.CouponResponse;
+
+/**
+ * A row of {@code idempotency_keys}: the coupon the key was claimed for and, once that redemption has
+ * committed, its response. A {@code null} response means the claiming request is still redeeming.
+ */
+@Getter
+@AllArgsConstructor
+public class IdempotencyRecord {
+    private final String code;
+    private final CouponResponse response;
+
+    public boolean isCompleted() {
+        return response != null;
+    }
+}
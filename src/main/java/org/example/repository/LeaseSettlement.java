@@ -0,0 +1,12 @@
+package org.example.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LeaseSettlement {
+    private final long couponId;
+    private final int used;
+    private final int released;
+}
@@ -0,0 +1,16 @@
+package org.example.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/** A redemption recorded in {@code redemption_outbox}; {@code id} is the position consumers keep their cursor on. */
+@Getter
+@AllArgsConstructor
+public class OutboxEvent {
+    private final long id;
+    private final long couponId;
+    private final String userId;
+    private final Instant usedAt;
+}
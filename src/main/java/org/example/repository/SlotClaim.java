@@ -0,0 +1,20 @@
+package org.example.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of claiming a redemption slot. Nothing was {@code claimed} when every free slot was taken or
+ * locked, or when the coupon has no slots at all ({@code slotted} false). A claim whose usage was not
+ * inserted collided with an earlier usage by the same user and must be rolled back. {@code freeUses} counts
+ * the uses left in the coupon's slots, including slots locked by in-flight claims that may still roll back.
+ */
+@Getter
+@AllArgsConstructor
+public class SlotClaim {
+    private final boolean claimed;
+    private final boolean usageInserted;
+    private final boolean slotted;
+    private final int unsettledUses;
+    private final int freeUses;
+}
@@ -2,9 +2,21 @@ package org.example.repository;
 
 import org.example.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    @Transactional(readOnly = true)
     Optional<User> findByUsername(String username);
+
+    // Read from the primary: this table is what revokes tokens, and a lagging replica would miss the revocation.
+    @Query("SELECT u.username, u.tokenVersion FROM User u")
+    List<Object[]> findAllTokenVersions();
+
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.username = :username")
+    Optional<Integer> findTokenVersionByUsername(@Param("username") String username);
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package org.example.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, short-lived cache in front of another {@link UserDetailsService}, so that authenticated
+ * requests do not query {@code users} every time. Users are evicted by {@link UserChangedEvent}s when
+ * their password or role changes; the TTL bounds staleness if a notification is lost. Unknown users
+ * are not cached.
+ */
+public class CachedUserDetailsService implements UserDetailsService, MeterBinder {
+
+    private final UserDetailsService delegate;
+    private final Cache<String, UserDetails> cache;
+
+    public CachedUserDetailsService(UserDetailsService delegate, long maximumSize, long ttlMillis) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "users");
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        // A copy each time: ProviderManager erases the credentials of the instance it authenticated.
+        UserDetails cached = cache.get(username, delegate::loadUserByUsername);
+        return cached instanceof VersionedUser versioned
+                ? new VersionedUser(versioned, versioned.getTokenVersion())
+                : User.withUserDetails(cached).build();
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.isResync()) {
+            evictAll();
+        } else {
+            evict(event.getUsername());
+        }
+    }
+}
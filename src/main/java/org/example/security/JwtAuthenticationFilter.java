@@ -1,29 +1,43 @@
 package org.example.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.annotation.Nonnull;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final TokenVersionTable tokenVersions;
+    private final JwtAuthenticationMode mode;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(
+            JwtUtil jwtUtil,
+            UserDetailsService userDetailsService,
+            TokenVersionTable tokenVersions,
+            @Value("${jwt.mode:LOOKUP}") JwtAuthenticationMode mode
+    ) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.tokenVersions = tokenVersions;
+        this.mode = mode;
     }
 
     @Override
@@ -32,10 +46,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            String username = jwtUtil.extractUsername(token);
+            Claims claims = jwtUtil.parseVerifiedClaims(token);
+            String username = claims == null ? null : claims.getSubject();
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                if (jwtUtil.validateToken(token, userDetails)) {
+                UserDetails userDetails = mode == JwtAuthenticationMode.STATELESS && tokenVersions.isLoaded()
+                        ? fromClaims(username, claims)
+                        : loadUser(username);
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -45,4 +62,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails fromClaims(String username, Claims claims) {
+        Integer version = claims.get(JwtUtil.VERSION_CLAIM, Integer.class);
+        List<?> roles = claims.get(JwtUtil.ROLES_CLAIM, List.class);
+        if (version == null || roles == null) {
+            // Issued before stateless mode was enabled.
+            return loadUser(username);
+        }
+        if (!tokenVersions.isCurrent(username, version)) {
+            return null;
+        }
+        return User.withUsername(username)
+                .password("")
+                .authorities(roles.stream().map(String::valueOf).toArray(String[]::new))
+                .build();
+    }
+
+    // A validly signed token for a user deleted since it was issued is treated as no token at all.
+    private UserDetails loadUser(String username) {
+        try {
+            return userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
 }
\ No newline at end of file
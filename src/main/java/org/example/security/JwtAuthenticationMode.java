@@ -0,0 +1,15 @@
+package org.example.security;
+
+public enum JwtAuthenticationMode {
+    /**
+     * Loads the token's subject through the {@code UserDetailsService} on every request, so role
+     * changes and deletions apply immediately.
+     */
+    LOOKUP,
+
+    /**
+     * Trusts the roles embedded in the token and only checks its version against the in-memory
+     * {@link TokenVersionTable}, so authenticated requests do not touch {@code users} at all.
+     */
+    STATELESS
+}
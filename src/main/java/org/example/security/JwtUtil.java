@@ -1,6 +1,8 @@
 package org.example.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
@@ -9,6 +11,7 @@ import io.jsonwebtoken.security.WeakKeyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
@@ -23,6 +26,9 @@ public class JwtUtil {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtil.class);
     private static final MacAlgorithm ALGORITHM = Jwts.SIG.HS256;
 
+    public static final String ROLES_CLAIM = "roles";
+    public static final String VERSION_CLAIM = "ver";
+
     private final SecretKey signingKey;
     private final Long expiration;
     private final JwtParser jwtParser;
@@ -38,24 +44,39 @@ public class JwtUtil {
         this.expiration = expiration;
     }
 
+    /**
+     * Embeds the user's authorities and, for a {@link VersionedUser}, its token version, so that
+     * {@link JwtAuthenticationMode#STATELESS} can authenticate from the claims alone.
+     */
     public String generateToken(UserDetails userDetails) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration * 1000);
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .subject(userDetails.getUsername())
+                .claim(ROLES_CLAIM, userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList())
                 .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(signingKey, ALGORITHM)
-                .compact();
+                .expiration(expiryDate);
+        if (userDetails instanceof VersionedUser versioned) {
+            builder.claim(VERSION_CLAIM, versioned.getTokenVersion());
+        }
+        return builder.signWith(signingKey, ALGORITHM).compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
+        Claims claims = parseVerifiedClaims(token);
+        return claims != null && userDetails.getUsername().equals(claims.getSubject());
+    }
+
+    /**
+     * Verifies the signature and expiry in a single parse and returns the claims, or null if the token
+     * is malformed, forged or expired.
+     */
+    public Claims parseVerifiedClaims(String token) {
         try {
-            String username = extractUsername(token);
-            return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
-        } catch (Exception e) {
+            return extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
             logger.warn("Invalid JWT token: {}", e.getMessage());
-            return false;
+            return null;
         }
     }
 
@@ -75,8 +96,4 @@ public class JwtUtil {
     private Claims extractAllClaims(String token) {
         return jwtParser.parseSignedClaims(token).getPayload();
     }
-
-    private Boolean isTokenExpired(String token) {
-        return getExpirationDateFromToken(token).before(new Date());
-    }
 }
\ No newline at end of file
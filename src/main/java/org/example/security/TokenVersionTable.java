@@ -0,0 +1,105 @@
+package org.example.security;
+
+import org.example.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory copy of every user's {@code token_version}, used by {@link JwtAuthenticationMode#STATELESS}
+ * to reject tokens of deleted users and tokens issued before a password or role change without a
+ * per-request query. Reloaded periodically and on a {@code user_changed} resync; a single user's
+ * change only refreshes that user's entry. Only kept in stateless mode.
+ */
+@Component
+public class TokenVersionTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenVersionTable.class);
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    // Serializes reloads with single-user updates, so that an update made while the full table is being
+    // loaded is applied to the new table rather than to the one about to be replaced.
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile Map<String, Integer> versions;
+
+    public TokenVersionTable(UserRepository userRepository, @Value("${jwt.mode:LOOKUP}") JwtAuthenticationMode mode) {
+        this.userRepository = userRepository;
+        this.enabled = mode == JwtAuthenticationMode.STATELESS;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.version-refresh-ms:30000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        updateLock.lock();
+        try {
+            Map<String, Integer> loaded = new ConcurrentHashMap<>();
+            for (Object[] row : userRepository.findAllTokenVersions()) {
+                loaded.put((String) row[0], ((Number) row[1]).intValue());
+            }
+            versions = loaded;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (versions == null) {
+            return;
+        }
+        if (event.isResync()) {
+            refreshQuietly();
+            return;
+        }
+        updateLock.lock();
+        try {
+            Map<String, Integer> current = versions;
+            try {
+                Optional<Integer> version = userRepository.findTokenVersionByUsername(event.getUsername());
+                if (version.isPresent()) {
+                    current.put(event.getUsername(), version.get());
+                } else {
+                    current.remove(event.getUsername());
+                }
+            } catch (RuntimeException e) {
+                // Never leave a possibly revoked token valid: reject the user until the next full refresh.
+                current.remove(event.getUsername());
+                logger.warn("Token version lookup for {} failed: {}", event.getUsername(), e.getMessage());
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    // Runs on the listener thread, which must survive a database that is down.
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.warn("Token version refresh failed, keeping the previous table: {}", e.getMessage());
+        }
+    }
+
+    /** False until the first refresh completes; callers then have to look the user up. */
+    public boolean isLoaded() {
+        return versions != null;
+    }
+
+    /** Whether a token with this version is still valid for the user; false for unknown users. */
+    public boolean isCurrent(String username, int tokenVersion) {
+        Map<String, Integer> current = versions;
+        Integer version = current == null ? null : current.get(username);
+        return version != null && version == tokenVersion;
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A user whose credentials or role changed, or who was deleted, reported by Postgres on the
+ * {@code user_changed} channel. A null username means notifications may have been missed and every
+ * cached user is suspect.
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+
+    private final String username;
+
+    public static UserChangedEvent resync() {
+        return new UserChangedEvent(null);
+    }
+
+    public boolean isResync() {
+        return username == null;
+    }
+
+    /** Parses a payload written by the V4 trigger; returns null for anything else. */
+    public static UserChangedEvent parse(String payload) {
+        return payload == null || payload.isEmpty() ? null : new UserChangedEvent(payload);
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.security;
+
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/** A {@link User} carrying {@code users.token_version}, which {@link JwtUtil} embeds in issued tokens. */
+public class VersionedUser extends User {
+
+    private final int tokenVersion;
+
+    public VersionedUser(UserDetails user, int tokenVersion) {
+        super(user.getUsername(), user.getPassword(), user.isEnabled(), user.isAccountNonExpired(),
+                user.isCredentialsNonExpired(), user.isAccountNonLocked(), user.getAuthorities());
+        this.tokenVersion = tokenVersion;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.service.coupon;
+
+import org.example.api.v1.model.response.CouponImportResponse;
+
+import java.io.InputStream;
+
+public interface CouponImportService {
+    CouponImportResponse importCsv(InputStream input);
+    CouponImportResponse importNdjson(InputStream input);
+}
@@ -0,0 +1,156 @@
+package org.example.service.coupon;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.example.api.v1.model.request.CreateCouponRequest;
+import org.example.api.v1.model.response.BulkCreateCouponResponse;
+import org.example.api.v1.model.response.CouponImportResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the input line by line and hands it to {@link CouponService#createCoupons} one batch at a time,
+ * so only a single batch is ever held in memory whatever the size of the file.
+ */
+@Service
+public class CouponImportServiceImpl implements CouponImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponImportServiceImpl.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final CouponService couponService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public CouponImportServiceImpl(
+            CouponService couponService,
+            Validator validator,
+            ObjectMapper objectMapper,
+            @Value("${coupon.import.batch-size:1000}") int batchSize
+    ) {
+        this.couponService = couponService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public CouponImportResponse importCsv(InputStream input) {
+        return importLines(input, this::parseCsvLine);
+    }
+
+    @Override
+    public CouponImportResponse importNdjson(InputStream input) {
+        return importLines(input, this::parseJsonLine);
+    }
+
+    private CouponImportResponse importLines(InputStream input, LineParser parser) {
+        ImportProgress progress = new ImportProgress();
+        List<CreateCouponRequest> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                CreateCouponRequest request;
+                try {
+                    request = parser.parse(line, lineNumber);
+                } catch (IllegalArgumentException e) {
+                    progress.reject(lineNumber, e.getMessage());
+                    continue;
+                }
+                if (request == null) {
+                    continue;
+                }
+                Set<ConstraintViolation<CreateCouponRequest>> violations = validator.validate(request);
+                if (!violations.isEmpty()) {
+                    progress.reject(lineNumber, violations.iterator().next().getMessage());
+                    continue;
+                }
+                batch.add(request);
+                if (batch.size() == batchSize) {
+                    progress.record(couponService.createCoupons(batch));
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read coupon import", e);
+        }
+        if (!batch.isEmpty()) {
+            progress.record(couponService.createCoupons(batch));
+        }
+        logger.info("Coupon import finished: {} processed, {} created, {} duplicates, {} rejected",
+                progress.processed, progress.created, progress.duplicates, progress.rejected);
+        return new CouponImportResponse(progress.processed, progress.created, progress.duplicates,
+                progress.rejected, progress.errors);
+    }
+
+    private CreateCouponRequest parseCsvLine(String line, long lineNumber) {
+        String[] fields = line.split(",", -1);
+        if (lineNumber == 1 && fields[0].trim().equalsIgnoreCase("code")) {
+            return null;
+        }
+        if (fields.length != 3) {
+            throw new IllegalArgumentException("Expected 3 columns (code,maxUses,country) but got " + fields.length);
+        }
+        try {
+            return new CreateCouponRequest(fields[0].trim(), Integer.valueOf(fields[1].trim()), fields[2].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("maxUses is not a number: " + fields[1].trim());
+        }
+    }
+
+    private CreateCouponRequest parseJsonLine(String line, long lineNumber) {
+        try {
+            return objectMapper.readValue(line, CreateCouponRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineParser {
+        CreateCouponRequest parse(String line, long lineNumber);
+    }
+
+    private static final class ImportProgress {
+        private long processed;
+        private long created;
+        private long duplicates;
+        private long rejected;
+        private final List<String> errors = new ArrayList<>();
+
+        void record(BulkCreateCouponResponse response) {
+            processed += response.getCreated() + response.getDuplicates().size();
+            created += response.getCreated();
+            duplicates += response.getDuplicates().size();
+        }
+
+        void reject(long lineNumber, String message) {
+            processed++;
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + lineNumber + ": " + message);
+            }
+        }
+    }
+}
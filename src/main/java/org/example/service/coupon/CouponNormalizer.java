@@ -0,0 +1,15 @@
+package org.example.service.coupon;
+
+public final class CouponNormalizer {
+
+    private CouponNormalizer() {
+    }
+
+    public static String normalizeCode(String code) {
+        return code.trim().toUpperCase();
+    }
+
+    public static String normalizeCountry(String country) {
+        return country.trim().toUpperCase();
+    }
+}
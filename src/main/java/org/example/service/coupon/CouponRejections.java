@@ -0,0 +1,36 @@
+package org.example.service.coupon;
+
+import org.example.entity.Coupon;
+import org.example.exception.api.ApiException;
+import org.example.exception.api.CouponAlreadyUsedByUserException;
+import org.example.exception.api.CouponCountryNotAllowedException;
+import org.example.exception.api.CouponNotFoundException;
+import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.repository.CouponRepository;
+import org.example.repository.CouponUsageRepository;
+
+/** Works out why a conditional statement that checks everything at once matched no coupon row. */
+public final class CouponRejections {
+
+    private CouponRejections() {
+    }
+
+    public static ApiException explain(CouponRepository couponRepository, CouponUsageRepository couponUsageRepository,
+                                       String normalizedCode, String userCountry, String userId) {
+        Coupon coupon = couponRepository.findByCodeIgnoreCase(normalizedCode).orElse(null);
+        if (coupon == null) {
+            return new CouponNotFoundException(normalizedCode);
+        }
+        if (coupon.getCurrentUses() + coupon.getLeasedUses() >= coupon.getMaxUses()) {
+            return new CouponUseLimitExceededException(coupon.getCode());
+        }
+        if (!coupon.getCountry().equalsIgnoreCase(userCountry)) {
+            return new CouponCountryNotAllowedException(coupon.getCode(), userCountry);
+        }
+        if (couponUsageRepository.existsByCouponAndUserId(coupon, userId)) {
+            return new CouponAlreadyUsedByUserException(userId, coupon.getCode());
+        }
+        // Nothing explains the miss any more, so the counter must have moved in between.
+        return new CouponUseLimitExceededException(coupon.getCode());
+    }
+}
@@ -2,9 +2,21 @@ package org.example.service.coupon;
 
 import org.example.api.v1.model.request.CreateCouponRequest;
 import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.api.v1.model.response.BatchRedeemResponse;
+import org.example.api.v1.model.response.BulkCreateCouponResponse;
 import org.example.api.v1.model.response.CouponResponse;
+import org.example.api.v1.model.response.ReservationResponse;
+
+import java.util.List;
+import java.util.UUID;
 
 public interface CouponService {
     CouponResponse createCoupon(CreateCouponRequest request);
+    BulkCreateCouponResponse createCoupons(List<CreateCouponRequest> requests);
     CouponResponse useCoupon(UseCouponRequest request);
+    BatchRedeemResponse useCoupons(List<UseCouponRequest> requests);
+    ReservationResponse reserveCoupon(UseCouponRequest request);
+    CouponResponse confirmReservation(UUID reservationId);
+    void releaseReservation(UUID reservationId);
+    CouponResponse reconcileCoupon(String code);
 }
\ No newline at end of file
@@ -2,50 +2,100 @@ package org.example.service.coupon;
 
 import org.example.api.v1.model.request.CreateCouponRequest;
 import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.api.v1.model.response.BatchRedeemItemResponse;
+import org.example.api.v1.model.response.BatchRedeemResponse;
+import org.example.api.v1.model.response.BulkCreateCouponResponse;
 import org.example.api.v1.model.response.CouponResponse;
+import org.example.api.v1.model.response.ReservationResponse;
 import org.example.entity.Coupon;
 import org.example.entity.CouponUsage;
+import org.example.exception.api.ApiException;
+import org.example.exception.api.CouponAlreadyReservedException;
 import org.example.exception.api.CouponAlreadyUsedByUserException;
 import org.example.exception.api.CouponCodeAlreadyExistsException;
 import org.example.exception.api.CouponCountryNotAllowedException;
 import org.example.exception.api.CouponNotFoundException;
+import org.example.exception.api.CouponReservationNotFoundException;
+import org.example.exception.api.CouponReservationUnsupportedException;
 import org.example.exception.api.CouponUseLimitExceededException;
 import org.example.repository.CouponRepository;
+import org.example.repository.CouponReservation;
 import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.catalog.CouponCatalog;
+import org.example.service.coupon.outbox.RedemptionOutbox;
+import org.example.service.coupon.redemption.RedemptionStrategy;
+import org.example.service.coupon.reservation.ReservationSweeper;
+import org.example.service.coupon.usage.CouponUsageFilter;
 import org.example.service.geo.CountryResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class CouponServiceImpl implements CouponService {
 
     private static final Logger logger = LoggerFactory.getLogger(CouponServiceImpl.class);
 
+    private static final int BULK_INSERT_CHUNK_SIZE = 1000;
+
     private final CouponRepository couponRepository;
     private final CouponUsageRepository couponUsageRepository;
     private final CountryResolver countryResolver;
     private final CouponMapper couponMapper;
+    private final CouponCatalog couponCatalog;
+    private final CouponUsageFilter couponUsageFilter;
+    private final RedemptionMetrics redemptionMetrics;
+    private final ReservationSweeper reservationSweeper;
+    private final RedemptionOutbox redemptionOutbox;
+    private final RedemptionStrategy redemptionStrategy;
+    private final TransactionTemplate transactionTemplate;
 
     public CouponServiceImpl(
             CouponRepository couponRepository,
             CouponUsageRepository couponUsageRepository,
             CountryResolver countryResolver,
-            CouponMapper couponMapper
+            CouponMapper couponMapper,
+            CouponCatalog couponCatalog,
+            CouponUsageFilter couponUsageFilter,
+            RedemptionMetrics redemptionMetrics,
+            ReservationSweeper reservationSweeper,
+            RedemptionOutbox redemptionOutbox,
+            RedemptionStrategy redemptionStrategy,
+            PlatformTransactionManager transactionManager
     ) {
         this.couponRepository = couponRepository;
         this.couponUsageRepository = couponUsageRepository;
         this.countryResolver = countryResolver;
         this.couponMapper = couponMapper;
+        this.couponCatalog = couponCatalog;
+        this.couponUsageFilter = couponUsageFilter;
+        this.redemptionMetrics = redemptionMetrics;
+        this.reservationSweeper = reservationSweeper;
+        this.redemptionOutbox = redemptionOutbox;
+        this.redemptionStrategy = redemptionStrategy;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
     @Transactional
     public CouponResponse createCoupon(CreateCouponRequest request) {
-        String normalizedCode = request.getCode().trim().toUpperCase();
+        String normalizedCode = CouponNormalizer.normalizeCode(request.getCode());
         if (couponRepository.existsByCodeIgnoreCase(normalizedCode)) {
             throw new CouponCodeAlreadyExistsException(normalizedCode);
         }
@@ -53,48 +103,330 @@ public class CouponServiceImpl implements CouponService {
         Coupon coupon = Coupon.builder()
                 .code(normalizedCode)
                 .maxUses(request.getMaxUses())
-                .country(request.getCountry().trim().toUpperCase())
+                .country(CouponNormalizer.normalizeCountry(request.getCountry()))
                 .currentUses(0)
                 .createdAt(Instant.now())
                 .build();
 
         couponRepository.save(coupon);
+        redemptionStrategy.onCreated(List.of(coupon.getCode()));
+        couponCatalog.register(coupon.getCode());
         logger.info("Coupon created: {}", coupon.getCode());
 
         return couponMapper.toDto(coupon);
     }
 
     @Override
-    @Transactional
+    public BulkCreateCouponResponse createCoupons(List<CreateCouponRequest> requests) {
+        int created = 0;
+        List<String> duplicates = new ArrayList<>();
+        List<Coupon> chunk = new ArrayList<>(Math.min(requests.size(), BULK_INSERT_CHUNK_SIZE));
+        for (CreateCouponRequest request : requests) {
+            chunk.add(Coupon.builder()
+                    .code(CouponNormalizer.normalizeCode(request.getCode()))
+                    .maxUses(request.getMaxUses())
+                    .country(CouponNormalizer.normalizeCountry(request.getCountry()))
+                    .build());
+            if (chunk.size() == BULK_INSERT_CHUNK_SIZE) {
+                created += insertChunk(chunk, duplicates);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += insertChunk(chunk, duplicates);
+        }
+        logger.info("Bulk created {} coupons, {} duplicates skipped", created, duplicates.size());
+        return new BulkCreateCouponResponse(created, duplicates);
+    }
+
+    // Each chunk commits on its own: a failure part way through keeps the chunks already inserted.
+    private int insertChunk(List<Coupon> chunk, List<String> duplicates) {
+        Set<String> inserted = couponRepository.insertIgnoringDuplicates(chunk);
+        if (!inserted.isEmpty()) {
+            redemptionStrategy.onCreated(List.copyOf(inserted));
+        }
+        int created = 0;
+        for (Coupon coupon : chunk) {
+            // remove() so that a code repeated within the chunk is reported as a duplicate the second time.
+            if (inserted.remove(coupon.getCode())) {
+                couponCatalog.register(coupon.getCode());
+                created++;
+            } else {
+                duplicates.add(coupon.getCode());
+            }
+        }
+        return created;
+    }
+
+    @Override
     public CouponResponse useCoupon(UseCouponRequest request) {
-        String normalizedCode = request.getCode().trim().toUpperCase();
+        long started = System.nanoTime();
+        String outcome = "InternalError";
+        try {
+            CouponResponse response = redeem(request);
+            outcome = RedemptionMetrics.SUCCESS;
+            return response;
+        } catch (ApiException e) {
+            outcome = e.getErrorCode();
+            throw e;
+        } finally {
+            redemptionMetrics.recordRedemption(outcome, System.nanoTime() - started);
+        }
+    }
+
+    private CouponResponse redeem(UseCouponRequest request) {
+        String normalizedCode = CouponNormalizer.normalizeCode(request.getCode());
         logger.info("User {} attempts to use coupon {} from IP {}", request.getUserId(), normalizedCode, request.getIpAddress());
 
-        Coupon coupon = couponRepository.findByCodeIgnoreCaseForUpdate(normalizedCode)
-                .orElseThrow(() -> new CouponNotFoundException(normalizedCode));
+        // Started before any connection is taken so the lookup never extends the time the row lock and
+        // the connection are held; with the catalog enabled it is awaited before the transaction starts.
+        CompletableFuture<String> userCountry = countryResolver.getCountryAsync(request.getIpAddress());
 
-        if (coupon.getCurrentUses() >= coupon.getMaxUses()) {
-            throw new CouponUseLimitExceededException(coupon.getCode());
+        // Unknown codes and wrong countries are rejected from the catalog without touching the database.
+        couponCatalog.checkRedeemable(normalizedCode, () -> awaitCountry(userCountry));
+
+        Coupon coupon = redemptionStrategy.redeem(normalizedCode, request, () -> awaitCountry(userCountry));
+        return couponMapper.toDto(coupon);
+    }
+
+    @Override
+    public BatchRedeemResponse useCoupons(List<UseCouponRequest> requests) {
+        logger.info("Batch redemption of {} items", requests.size());
+
+        // GeoIP is resolved once per distinct IP, concurrently, and before any row is locked.
+        Map<String, CompletableFuture<String>> lookups = new HashMap<>();
+        for (UseCouponRequest request : requests) {
+            lookups.computeIfAbsent(request.getIpAddress(), countryResolver::getCountryAsync);
         }
+        Map<String, String> countries = new HashMap<>();
+        Map<String, ApiException> countryFailures = new HashMap<>();
+        lookups.forEach((ipAddress, lookup) -> {
+            try {
+                countries.put(ipAddress, awaitCountry(lookup));
+            } catch (ApiException e) {
+                countryFailures.put(ipAddress, e);
+            }
+        });
 
-        String userCountry = countryResolver.getCountry(request.getIpAddress());
-        if (!coupon.getCountry().equalsIgnoreCase(userCountry)) {
-            throw new CouponCountryNotAllowedException(coupon.getCode(), userCountry);
+        BatchRedeemItemResponse[] results = new BatchRedeemItemResponse[requests.size()];
+        // With the budget held outside the coupon rows, there is nothing to lock and check per coupon.
+        if (!redemptionStrategy.spendsFromCouponRow()) {
+            for (int i = 0; i < requests.size(); i++) {
+                UseCouponRequest request = requests.get(i);
+                results[i] = redeemItem(request, countries.get(request.getIpAddress()), countryFailures.get(request.getIpAddress()));
+            }
+            return batchResponse(results);
         }
 
-        if (couponUsageRepository.existsByCouponAndUserId(coupon, request.getUserId())) {
-            throw new CouponAlreadyUsedByUserException(request.getUserId(), coupon.getCode());
+        // Sorted so that concurrent batches lock coupon rows in the same order.
+        Map<String, List<Integer>> itemsByCode = new TreeMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String normalizedCode = CouponNormalizer.normalizeCode(requests.get(i).getCode());
+            itemsByCode.computeIfAbsent(normalizedCode, code -> new ArrayList<>()).add(i);
         }
 
-        coupon.setCurrentUses(coupon.getCurrentUses() + 1);
-        couponRepository.save(coupon);
+        transactionTemplate.executeWithoutResult(status -> {
+            List<CouponUsage> usages = new ArrayList<>();
+            itemsByCode.forEach((normalizedCode, items) ->
+                    redeemGroup(normalizedCode, items, requests, countries, countryFailures, usages, results));
+            long insertStarted = System.nanoTime();
+            if (redemptionOutbox.isEnabled()) {
+                couponUsageRepository.enqueueAll(usages);
+            } else {
+                couponUsageRepository.insertAll(usages);
+            }
+            redemptionMetrics.recordStage(RedemptionMetrics.Stage.INSERT, System.nanoTime() - insertStarted);
+            for (CouponUsage usage : usages) {
+                couponUsageFilter.recordUse(usage.getCoupon().getId(), usage.getUserId());
+            }
+        });
+        return batchResponse(results);
+    }
 
-        CouponUsage usage = CouponUsage.builder()
-                .coupon(coupon)
-                .userId(request.getUserId())
-                .build();
-        couponUsageRepository.save(usage);
+    private BatchRedeemResponse batchResponse(BatchRedeemItemResponse[] results) {
+        for (BatchRedeemItemResponse result : results) {
+            redemptionMetrics.recordBatchItem(result.isRedeemed() ? RedemptionMetrics.SUCCESS : result.getErrorCode());
+        }
+        return new BatchRedeemResponse(Arrays.asList(results));
+    }
+
+    // Each item commits on its own, as a single redemption would.
+    private BatchRedeemItemResponse redeemItem(UseCouponRequest request, String userCountry, ApiException countryFailure) {
+        try {
+            Coupon coupon = redemptionStrategy.redeem(CouponNormalizer.normalizeCode(request.getCode()), request, () -> {
+                if (userCountry == null) {
+                    throw countryFailure;
+                }
+                return userCountry;
+            });
+            return new BatchRedeemItemResponse(coupon.getCode(), request.getUserId(), true, couponMapper.toDto(coupon), null, null);
+        } catch (ApiException e) {
+            return rejected(request, e);
+        }
+    }
+
+    private void redeemGroup(
+            String normalizedCode,
+            List<Integer> items,
+            List<UseCouponRequest> requests,
+            Map<String, String> countries,
+            Map<String, ApiException> countryFailures,
+            List<CouponUsage> usages,
+            BatchRedeemItemResponse[] results
+    ) {
+        long lockStarted = System.nanoTime();
+        Coupon coupon = couponRepository.findByCodeIgnoreCaseForUpdate(normalizedCode).orElse(null);
+        redemptionMetrics.recordStage(RedemptionMetrics.Stage.LOCK, System.nanoTime() - lockStarted);
+        if (coupon == null) {
+            for (int item : items) {
+                results[item] = rejected(requests.get(item), new CouponNotFoundException(normalizedCode));
+            }
+            return;
+        }
+
+        Set<String> userIds = new HashSet<>();
+        for (int item : items) {
+            userIds.add(requests.get(item).getUserId());
+        }
+        long checkStarted = System.nanoTime();
+        Set<String> usedBy = new HashSet<>(couponUsageRepository.findUserIdsByCouponAndUserIdIn(coupon, userIds));
+        // Also while the outbox is off: rows enqueued before it was switched off may still be draining.
+        usedBy.addAll(couponUsageRepository.findEnqueuedUserIds(coupon.getId(), userIds));
+        redemptionMetrics.recordStage(RedemptionMetrics.Stage.DUPLICATE_CHECK, System.nanoTime() - checkStarted);
+
+        int startingUses = coupon.getCurrentUses();
+        int accepted = 0;
+        for (int item : items) {
+            UseCouponRequest request = requests.get(item);
+            String userCountry = countries.get(request.getIpAddress());
+            ApiException rejection = null;
+            if (startingUses + accepted + coupon.getLeasedUses() >= coupon.getMaxUses()) {
+                rejection = new CouponUseLimitExceededException(coupon.getCode());
+            } else if (userCountry == null) {
+                rejection = countryFailures.get(request.getIpAddress());
+            } else if (!coupon.getCountry().equalsIgnoreCase(userCountry)) {
+                rejection = new CouponCountryNotAllowedException(coupon.getCode(), userCountry);
+            } else if (!usedBy.add(request.getUserId())) {
+                rejection = new CouponAlreadyUsedByUserException(request.getUserId(), coupon.getCode());
+            }
+            if (rejection != null) {
+                results[item] = rejected(request, rejection);
+                continue;
+            }
+
+            accepted++;
+            usages.add(CouponUsage.builder().coupon(coupon).userId(request.getUserId()).usedAt(Instant.now()).build());
+            CouponResponse response = couponMapper.toDto(coupon);
+            response.setCurrentUses(startingUses + accepted);
+            results[item] = new BatchRedeemItemResponse(coupon.getCode(), request.getUserId(), true, response, null, null);
+        }
+
+        if (accepted > 0) {
+            coupon.setCurrentUses(startingUses + accepted);
+            couponRepository.save(coupon);
+        }
+    }
+
+    private static BatchRedeemItemResponse rejected(UseCouponRequest request, ApiException rejection) {
+        return new BatchRedeemItemResponse(request.getCode(), request.getUserId(), false, null,
+                rejection.getErrorCode(), rejection.getMessage());
+    }
 
+    @Override
+    public ReservationResponse reserveCoupon(UseCouponRequest request) {
+        if (!redemptionStrategy.spendsFromCouponRow()) {
+            throw new CouponReservationUnsupportedException();
+        }
+        String normalizedCode = CouponNormalizer.normalizeCode(request.getCode());
+        CompletableFuture<String> userCountry = countryResolver.getCountryAsync(request.getIpAddress());
+        couponCatalog.checkRedeemable(normalizedCode, () -> awaitCountry(userCountry));
+        String country = awaitCountry(userCountry);
+
+        CouponReservation reservation;
+        try {
+            reservation = transactionTemplate.execute(status -> reserve(normalizedCode, country, request.getUserId()));
+        } catch (CouponAlreadyReservedException e) {
+            // An expired reservation that has not been swept yet still blocks the user; free it and retry once.
+            if (couponRepository.releaseExpiredReservation(normalizedCode, request.getUserId()) == 0) {
+                throw e;
+            }
+            redemptionMetrics.recordReservations("expired", 1);
+            reservation = transactionTemplate.execute(status -> reserve(normalizedCode, country, request.getUserId()));
+        }
+        reservationSweeper.schedule(reservation.getId());
+        redemptionMetrics.recordReservations("reserved", 1);
+        logger.info("User {} reserved coupon {} until {}", request.getUserId(), normalizedCode, reservation.getExpiresAt());
+        return new ReservationResponse(reservation.getId(), reservation.getCoupon().getCode(), request.getUserId(),
+                reservation.getExpiresAt());
+    }
+
+    private CouponReservation reserve(String normalizedCode, String userCountry, String userId) {
+        CouponReservation reservation = couponRepository
+                .reserve(UUID.randomUUID(), normalizedCode, userCountry, userId, reservationSweeper.getTtlMillis())
+                .orElseThrow(() -> CouponRejections.explain(couponRepository, couponUsageRepository, normalizedCode, userCountry, userId));
+        // The budget was taken but the user already holds a reservation; throwing rolls it back.
+        if (!reservation.isApplied()) {
+            throw new CouponAlreadyReservedException(userId, normalizedCode);
+        }
+        return reservation;
+    }
+
+    @Override
+    public CouponResponse confirmReservation(UUID reservationId) {
+        if (!redemptionStrategy.spendsFromCouponRow()) {
+            throw new CouponReservationUnsupportedException();
+        }
+        CouponReservation confirmed;
+        try {
+            confirmed = transactionTemplate.execute(status -> {
+                CouponReservation reservation = couponRepository.confirmReservation(reservationId)
+                        .orElseThrow(() -> new CouponReservationNotFoundException(reservationId));
+                if (!reservation.isApplied()) {
+                    throw new CouponAlreadyUsedByUserException(reservation.getUserId(), reservation.getCoupon().getCode());
+                }
+                return reservation;
+            });
+        } catch (CouponAlreadyUsedByUserException e) {
+            // Redeemed directly in the meantime; the reservation cannot be confirmed any more.
+            releaseReservation(reservationId);
+            throw e;
+        }
+        couponUsageFilter.recordUse(confirmed.getCoupon().getId(), confirmed.getUserId());
+        redemptionMetrics.recordReservations("confirmed", 1);
+        logger.info("User {} confirmed reservation of coupon {}", confirmed.getUserId(), confirmed.getCoupon().getCode());
+        return couponMapper.toDto(confirmed.getCoupon());
+    }
+
+    @Override
+    public void releaseReservation(UUID reservationId) {
+        if (couponRepository.releaseReservations(List.of(reservationId)) == 0) {
+            throw new CouponReservationNotFoundException(reservationId);
+        }
+        redemptionMetrics.recordReservations("released", 1);
+    }
+
+    @Override
+    @Transactional
+    public CouponResponse reconcileCoupon(String code) {
+        String normalizedCode = CouponNormalizer.normalizeCode(code);
+        Coupon coupon = couponRepository.reconcileUses(normalizedCode)
+                .orElseThrow(() -> new CouponNotFoundException(normalizedCode));
+        logger.warn("Reconciled coupon {}: {} uses, {} leased", coupon.getCode(), coupon.getCurrentUses(), coupon.getLeasedUses());
         return couponMapper.toDto(coupon);
     }
+
+    private String awaitCountry(CompletableFuture<String> country) {
+        boolean resolvedAhead = country.isDone();
+        long started = System.nanoTime();
+        try {
+            return country.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            redemptionMetrics.recordGeoIpWait(resolvedAhead, System.nanoTime() - started);
+        }
+    }
 }
@@ -0,0 +1,122 @@
+package org.example.service.coupon;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for {@link CouponServiceImpl}'s redemption path. Callers pass elapsed nanos rather than
+ * wrapping code in timers so the service keeps its control flow.
+ *
+ * <ul>
+ *   <li>{@code coupon.redemption} – whole redemptions by {@code mode} and {@code outcome} (SUCCESS or
+ *   the {@code ApiException} error code)</li>
+ *   <li>{@code coupon.redemption.stage} – time per {@code stage}; {@code lock} includes the wait for the
+ *   row lock</li>
+ *   <li>{@code coupon.redemption.geoip.wait} – time blocked on the country, by whether it was already
+ *   resolved ({@code ahead}) or had to be {@code waited} for</li>
+ *   <li>{@code coupon.redemption.usage.check} – already-used checks {@code skipped} thanks to the usage
+ *   filter versus {@code queried}</li>
+ *   <li>{@code coupon.reservation} – reservations {@code reserved}, {@code confirmed}, {@code released}
+ *   by the client and {@code expired}</li>
+ * </ul>
+ */
+@Component
+public class RedemptionMetrics {
+
+    public static final String SUCCESS = "SUCCESS";
+
+    public enum Stage {
+        LOCK("lock"),
+        DUPLICATE_CHECK("duplicate_check"),
+        INSERT("insert"),
+        ATOMIC_UPDATE("atomic_update"),
+        SLOT_CLAIM("slot_claim");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final String mode;
+    private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+    private final ConcurrentMap<String, Timer> outcomes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> batchOutcomes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> reservations = new ConcurrentHashMap<>();
+    private final Timer geoIpAhead;
+    private final Timer geoIpWaited;
+    private final Counter usageCheckSkipped;
+    private final Counter usageCheckQueried;
+
+    public RedemptionMetrics(MeterRegistry registry, @Value("${coupon.redemption.mode:LOCKING}") RedemptionMode mode) {
+        this.registry = registry;
+        this.mode = mode.name();
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, Timer.builder("coupon.redemption.stage")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        this.geoIpAhead = geoIpTimer("ahead");
+        this.geoIpWaited = geoIpTimer("waited");
+        this.usageCheckSkipped = usageCheckCounter("skipped");
+        this.usageCheckQueried = usageCheckCounter("queried");
+    }
+
+    public void recordRedemption(String outcome, long nanos) {
+        outcomes.computeIfAbsent(outcome, key -> Timer.builder("coupon.redemption")
+                        .tag("mode", mode)
+                        .tag("outcome", key)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatchItem(String outcome) {
+        batchOutcomes.computeIfAbsent(outcome, key -> Counter.builder("coupon.redemption.batch.items")
+                        .tag("outcome", key)
+                        .register(registry))
+                .increment();
+    }
+
+    public void recordReservations(String action, int count) {
+        reservations.computeIfAbsent(action, key -> Counter.builder("coupon.reservation")
+                        .tag("action", key)
+                        .register(registry))
+                .increment(count);
+    }
+
+    public void recordStage(Stage stage, long nanos) {
+        stages.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordGeoIpWait(boolean resolvedAhead, long nanos) {
+        (resolvedAhead ? geoIpAhead : geoIpWaited).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordUsageCheck(boolean skipped) {
+        (skipped ? usageCheckSkipped : usageCheckQueried).increment();
+    }
+
+    private Timer geoIpTimer(String resolved) {
+        return Timer.builder("coupon.redemption.geoip.wait")
+                .tag("resolved", resolved)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter usageCheckCounter(String result) {
+        return Counter.builder("coupon.redemption.usage.check").tag("result", result).register(registry);
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.service.coupon;
+
+public enum RedemptionMode {
+    /**
+     * Locks the coupon row with SELECT ... FOR UPDATE and runs every check while holding it.
+     */
+    LOCKING,
+
+    /**
+     * Decides and applies the redemption in a single conditional UPDATE paired with an
+     * INSERT ... ON CONFLICT DO NOTHING, so the row lock lasts for one statement only.
+     */
+    ATOMIC,
+
+    /**
+     * Spends budget leased into node-local striped counters and flushes {@code current_uses} in
+     * batches, so redemptions of a single hot coupon do not serialize on its row.
+     */
+    HOT,
+
+    /**
+     * Claims one of the coupon's pre-allocated {@code coupon_slots} rows with FOR UPDATE SKIP LOCKED,
+     * so concurrent redemptions take different rows; {@code current_uses} is rolled up in the background.
+     */
+    SLOTS
+}
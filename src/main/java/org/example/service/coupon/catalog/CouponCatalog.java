@@ -0,0 +1,116 @@
+package org.example.service.coupon.catalog;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.exception.api.CouponCountryNotAllowedException;
+import org.example.exception.api.CouponNotFoundException;
+import org.example.repository.CouponRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of coupon metadata keyed by normalized code, including codes that do not exist.
+ * Entries are invalidated by {@link CouponChangedEvent}s from the {@code coupon_changed} channel; the TTLs
+ * only bound staleness if notifications are lost without the listener noticing.
+ */
+@Component
+public class CouponCatalog implements MeterBinder {
+
+    private final CouponRepository couponRepository;
+    private final CouponCodeFilter codeFilter;
+    private final boolean enabled;
+    private final LoadingCache<String, Optional<CouponMetadata>> cache;
+
+    public CouponCatalog(
+            CouponRepository couponRepository,
+            CouponCodeFilter codeFilter,
+            @Value("${coupon.catalog.enabled:true}") boolean enabled,
+            @Value("${coupon.catalog.maximum-size:100000}") long maximumSize,
+            @Value("${coupon.catalog.ttl-ms:600000}") long ttlMillis,
+            @Value("${coupon.catalog.missing-ttl-ms:10000}") long missingTtlMillis
+    ) {
+        this.couponRepository = couponRepository;
+        this.codeFilter = codeFilter;
+        this.enabled = enabled;
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        long missingTtlNanos = TimeUnit.MILLISECONDS.toNanos(missingTtlMillis);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Optional<CouponMetadata>>() {
+                    @Override
+                    public long expireAfterCreate(String code, Optional<CouponMetadata> metadata, long currentTime) {
+                        return metadata.isPresent() ? ttlNanos : missingTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String code, Optional<CouponMetadata> metadata, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(code, metadata, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String code, Optional<CouponMetadata> metadata, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build(code -> couponRepository.findByCodeIgnoreCase(code).map(CouponMetadata::of));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "coupon_catalog");
+    }
+
+    public Optional<CouponMetadata> find(String normalizedCode) {
+        return cache.get(normalizedCode);
+    }
+
+    /**
+     * Rejects redemptions that cannot succeed whatever the counter says: unknown code or wrong country.
+     * The country is only asked for once the code is known to exist.
+     */
+    public void checkRedeemable(String normalizedCode, Supplier<String> userCountry) {
+        if (!enabled) {
+            return;
+        }
+        if (!codeFilter.mightExist(normalizedCode)) {
+            throw new CouponNotFoundException(normalizedCode);
+        }
+        Optional<CouponMetadata> found = find(normalizedCode);
+        if (found.isEmpty()) {
+            codeFilter.recordFalsePositive();
+            throw new CouponNotFoundException(normalizedCode);
+        }
+        CouponMetadata metadata = found.get();
+        String country = userCountry.get();
+        if (!metadata.getCountry().equalsIgnoreCase(country)) {
+            throw new CouponCountryNotAllowedException(metadata.getCode(), country);
+        }
+    }
+
+    /** Makes a code created on this node visible at once, ahead of its change notification. */
+    public void register(String normalizedCode) {
+        codeFilter.add(normalizedCode);
+        cache.invalidate(normalizedCode);
+    }
+
+    @EventListener
+    public void onCouponChanged(CouponChangedEvent event) {
+        if (event.getType() == CouponChangedEvent.Type.RESYNC) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidateAll(event.getCodes());
+        }
+    }
+}
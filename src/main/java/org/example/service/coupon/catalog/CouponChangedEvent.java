@@ -0,0 +1,43 @@
+package org.example.service.coupon.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A coupon change reported by Postgres on the {@code coupon_changed} channel, from any node.
+ * {@link Type#RESYNC} carries no codes: notifications may have been missed and everything is suspect.
+ */
+@Getter
+@AllArgsConstructor
+public class CouponChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        RESYNC
+    }
+
+    private final Type type;
+    private final List<String> codes;
+
+    public static CouponChangedEvent resync() {
+        return new CouponChangedEvent(Type.RESYNC, List.of());
+    }
+
+    /** Parses a payload written by the V3 triggers; returns null for anything else. */
+    public static CouponChangedEvent parse(String payload) {
+        if (payload == null || payload.length() < 2) {
+            return null;
+        }
+        Type type = switch (payload.charAt(0)) {
+            case '+' -> Type.CREATED;
+            case '~' -> Type.UPDATED;
+            case '-' -> Type.DELETED;
+            default -> null;
+        };
+        return type == null ? null : new CouponChangedEvent(type, List.of(payload.substring(1).split("\n")));
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.service.coupon.catalog;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.repository.CouponRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filter of every existing normalized coupon code, so that guessed codes are answered with 404
+ * without a database round-trip. Codes are added as they are created here or reported by
+ * the {@code coupon_changed} channel; the filter is rebuilt from the table periodically to drop deleted codes
+ * and to resize it as the table grows. Until the first build completes every code might exist.
+ */
+@Component
+public class CouponCodeFilter implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponCodeFilter.class);
+
+    // Room for codes created between rebuilds before the false-positive rate degrades noticeably.
+    private static final long MIN_HEADROOM = 10_000;
+
+    private final CouponRepository couponRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final double fpp;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+
+    public CouponCodeFilter(
+            CouponRepository couponRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${coupon.catalog.filter.enabled:true}") boolean enabled,
+            @Value("${coupon.catalog.filter.fpp:0.01}") double fpp
+    ) {
+        this.couponRepository = couponRepository;
+        // Not read-only, so never routed to a replica: codes created just before the scan but not replayed
+        // there yet would be missing from the filter, and rejected, until the next rebuild.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.fpp = fpp;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("coupon.code.filter.memory", this, CouponCodeFilter::getMemoryBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("coupon.code.filter.fpp.expected", this, CouponCodeFilter::getExpectedFpp).register(registry);
+        Gauge.builder("coupon.code.filter.fpp.observed", this, CouponCodeFilter::getObservedFpp).register(registry);
+        FunctionCounter.builder("coupon.code.filter.rejected", this, CouponCodeFilter::getRejected).register(registry);
+    }
+
+    /** False means the code definitely does not exist. */
+    public boolean mightExist(String normalizedCode) {
+        BloomFilter current = filter;
+        if (current == null || current.mightContain(normalizedCode)) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public void add(String normalizedCode) {
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(normalizedCode);
+        }
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(normalizedCode);
+        }
+    }
+
+    /** Called when {@link #mightExist} let a code through that the database then did not have. */
+    public void recordFalsePositive() {
+        falsePositives.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.catalog.filter.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        long count = couponRepository.count();
+        BloomFilter next = BloomFilter.create(count + Math.max(count / 4, MIN_HEADROOM), fpp);
+        // Codes created while the table is scanned may not be visible to the scan, so add() writes them
+        // to the filter being built as well.
+        building = next;
+        try {
+            transactionTemplate.executeWithoutResult(status -> couponRepository.forEachCode(next::put));
+            filter = next;
+        } finally {
+            building = null;
+        }
+        logger.info("Coupon code filter rebuilt for {} codes in {} ms: {} KiB, {} hash functions, expected fpp {}",
+                count, (System.nanoTime() - started) / 1_000_000, next.memoryBytes() / 1024, next.hashFunctions(),
+                String.format("%.4f", next.expectedFpp()));
+    }
+
+    @EventListener
+    public void onCouponChanged(CouponChangedEvent event) {
+        switch (event.getType()) {
+            case CREATED, UPDATED -> event.getCodes().forEach(this::add);
+            // Creations may have been missed while disconnected; only a rescan can recover them.
+            case RESYNC -> {
+                if (filter != null) {
+                    rebuildQuietly();
+                }
+            }
+            case DELETED -> {
+                // Bloom filters cannot forget; the code stays a false positive until the next rebuild.
+            }
+        }
+    }
+
+    // Runs on the listener thread, which must survive a database that is down.
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Coupon code filter rebuild failed, keeping the previous one: {}", e.getMessage());
+        }
+    }
+
+    public boolean isBuilt() {
+        return filter != null;
+    }
+
+    public long getMemoryBytes() {
+        BloomFilter current = filter;
+        return current == null ? 0 : current.memoryBytes();
+    }
+
+    public double getExpectedFpp() {
+        BloomFilter current = filter;
+        return current == null ? 0 : current.expectedFpp();
+    }
+
+    /** Share of lookups for non-existent codes that the filter let through to the database. */
+    public double getObservedFpp() {
+        long passed = falsePositives.get();
+        long total = passed + rejected.get();
+        return total == 0 ? 0 : (double) passed / total;
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.service.coupon.catalog;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the coupon code filter's size and accuracy under {@code /actuator/health}. Always UP: an
+ * unbuilt or overfull filter only lets more lookups through to the database.
+ */
+@Component("couponCodeFilter")
+public class CouponCodeFilterHealthIndicator implements HealthIndicator {
+
+    private final CouponCodeFilter codeFilter;
+
+    public CouponCodeFilterHealthIndicator(CouponCodeFilter codeFilter) {
+        this.codeFilter = codeFilter;
+    }
+
+    @Override
+    public Health health() {
+        return Health.up()
+                .withDetail("built", codeFilter.isBuilt())
+                .withDetail("memoryBytes", codeFilter.getMemoryBytes())
+                .withDetail("expectedFpp", codeFilter.getExpectedFpp())
+                .withDetail("observedFpp", codeFilter.getObservedFpp())
+                .withDetail("rejected", codeFilter.getRejected())
+                .build();
+    }
+}
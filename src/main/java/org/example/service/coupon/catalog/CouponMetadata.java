@@ -0,0 +1,19 @@
+package org.example.service.coupon.catalog;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.example.entity.Coupon;
+
+/** The part of a coupon that only changes when an admin edits it; the usage counters are not kept. */
+@Getter
+@AllArgsConstructor
+public class CouponMetadata {
+    private final Long id;
+    private final String code;
+    private final String country;
+    private final int maxUses;
+
+    public static CouponMetadata of(Coupon coupon) {
+        return new CouponMetadata(coupon.getId(), coupon.getCode(), coupon.getCountry(), coupon.getMaxUses());
+    }
+}
@@ -0,0 +1,197 @@
+package org.example.service.coupon.hot;
+
+import jakarta.annotation.PreDestroy;
+import org.example.repository.CouponRepository;
+import org.example.repository.LeaseSettlement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node-local redemption budget for hot coupons. Budget is leased from the coupon row in blocks
+ * ({@code leased_uses}), handed out from striped in-memory counters and written back to
+ * {@code current_uses} in batches. A node can only spend what it has leased, so the row never
+ * oversells. Budget leased by a node that dies, and uses it spent without flushing, stay stranded in
+ * {@code leased_uses} until the coupon is reconciled from its usages ({@code POST /api/coupons/{code}/reconcile});
+ * zeroing {@code leased_uses} instead would hand out the spent uses a second time.
+ * Leases that went idle are returned and dropped once settled, so only recently redeemed coupons
+ * stay in memory.
+ */
+@Component
+public class HotCouponBudget {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotCouponBudget.class);
+
+    private final CouponRepository couponRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+    private final int stripes;
+    private final long leaseIdleMillis;
+    private final ConcurrentMap<Long, CouponLease> leases = new ConcurrentHashMap<>();
+
+    public HotCouponBudget(
+            CouponRepository couponRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${coupon.hot.lease-block-size:100}") int blockSize,
+            @Value("${coupon.hot.stripes:8}") int stripes,
+            @Value("${coupon.hot.lease-idle-ms:30000}") long leaseIdleMillis
+    ) {
+        this.couponRepository = couponRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+        this.stripes = stripes;
+        this.leaseIdleMillis = leaseIdleMillis;
+    }
+
+    public boolean tryAcquire(long couponId) {
+        while (true) {
+            CouponLease lease = leases.computeIfAbsent(couponId, id -> new CouponLease(id, stripes));
+            lease.lastAcquiredAt = System.currentTimeMillis();
+            if (lease.permits.tryAcquire() || refill(lease)) {
+                lease.used.increment();
+                if (lease.retired) {
+                    // Evicted between taking the permit and counting it.
+                    moveUses(lease);
+                }
+                return true;
+            }
+            if (!lease.retired) {
+                return false;
+            }
+        }
+    }
+
+    public void release(long couponId) {
+        CouponLease lease = leases.get(couponId);
+        if (lease != null) {
+            lease.used.decrement();
+            lease.permits.release();
+            if (lease.retired) {
+                moveUses(lease);
+            }
+        }
+    }
+
+    public int pendingUses(long couponId) {
+        CouponLease lease = leases.get(couponId);
+        return lease == null ? 0 : lease.used.intValue();
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.hot.flush-interval-ms:1000}")
+    public void flush() {
+        settle(false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        settle(true);
+    }
+
+    private boolean refill(CouponLease lease) {
+        synchronized (lease) {
+            if (lease.retired) {
+                return false;
+            }
+            if (lease.permits.tryAcquire()) {
+                return true;
+            }
+            Integer granted = transactionTemplate.execute(status -> couponRepository.leaseUses(lease.couponId, blockSize));
+            if (granted == null || granted == 0) {
+                return false;
+            }
+            logger.debug("Leased {} uses of coupon {}", granted, lease.couponId);
+            lease.permits.add(granted - 1);
+            return true;
+        }
+    }
+
+    private synchronized void settle(boolean releaseAll) {
+        long idleSince = System.currentTimeMillis() - leaseIdleMillis;
+        List<LeaseSettlement> settlements = new ArrayList<>();
+        List<CouponLease> drained = new ArrayList<>();
+        for (CouponLease lease : leases.values()) {
+            int used = (int) lease.used.sumThenReset();
+            boolean idle = lease.lastAcquiredAt < idleSince;
+            int released = releaseAll || idle ? lease.permits.drain() : 0;
+            if (used != 0 || released != 0) {
+                settlements.add(new LeaseSettlement(lease.couponId, used, released));
+            }
+            if (idle) {
+                drained.add(lease);
+            }
+        }
+        if (!settlements.isEmpty() && !writeBack(settlements)) {
+            return;
+        }
+        drained.forEach(lease -> evict(lease, idleSince));
+    }
+
+    private boolean writeBack(List<LeaseSettlement> settlements) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> couponRepository.settleLeases(settlements));
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to flush hot coupon usage for {} coupons, will retry: {}", settlements.size(), e.getMessage());
+            for (LeaseSettlement settlement : settlements) {
+                CouponLease lease = leases.get(settlement.getCouponId());
+                lease.used.add(settlement.getUsed());
+                lease.permits.add(settlement.getReleased());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Drops a settled idle lease. Refills are blocked once it is retired, and uses or permits that
+     * callers racing the eviction still put on it are moved to the coupon's live lease, so they settle.
+     */
+    private void evict(CouponLease lease, long idleSince) {
+        synchronized (lease) {
+            if (lease.lastAcquiredAt >= idleSince) {
+                return;
+            }
+            lease.retired = true;
+            leases.remove(lease.couponId, lease);
+        }
+        moveUses(lease);
+    }
+
+    private void moveUses(CouponLease retired) {
+        long uses = retired.used.sumThenReset();
+        int permits = retired.permits.drain();
+        if (uses != 0 || permits != 0) {
+            CouponLease live = leases.computeIfAbsent(retired.couponId, id -> new CouponLease(id, stripes));
+            live.used.add(uses);
+            live.permits.add(permits);
+        }
+    }
+
+    int leaseCount() {
+        return leases.size();
+    }
+
+    private static class CouponLease {
+        private final long couponId;
+        private final StripedPermits permits;
+        private final LongAdder used = new LongAdder();
+        private volatile long lastAcquiredAt = System.currentTimeMillis();
+        private volatile boolean retired;
+
+        private CouponLease(long couponId, int stripes) {
+            this.couponId = couponId;
+            this.permits = new StripedPermits(stripes);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.service.coupon.hot;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Permit counter split into independently CAS-ed stripes, in the spirit of {@link java.util.concurrent.atomic.LongAdder},
+ * but able to refuse an acquire once every stripe is empty.
+ */
+class StripedPermits {
+
+    // 16 ints = 64 bytes, keeps every stripe on its own cache line.
+    private static final int PADDING = 16;
+
+    private final AtomicIntegerArray cells;
+    private final int stripes;
+
+    StripedPermits(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripes);
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicIntegerArray(stripes * PADDING);
+    }
+
+    boolean tryAcquire() {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PADDING;
+            int available;
+            while ((available = cells.get(index)) > 0) {
+                if (cells.compareAndSet(index, available, available - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void release() {
+        cells.incrementAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING);
+    }
+
+    void add(int permits) {
+        int share = permits / stripes;
+        int remainder = permits % stripes;
+        for (int i = 0; i < stripes; i++) {
+            int amount = share + (i < remainder ? 1 : 0);
+            if (amount > 0) {
+                cells.addAndGet(i * PADDING, amount);
+            }
+        }
+    }
+
+    int drain() {
+        int drained = 0;
+        for (int i = 0; i < stripes; i++) {
+            drained += cells.getAndSet(i * PADDING, 0);
+        }
+        return drained;
+    }
+
+    int available() {
+        int available = 0;
+        for (int i = 0; i < stripes; i++) {
+            available += cells.get(i * PADDING);
+        }
+        return available;
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.service.coupon.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.api.v1.model.response.CouponResponse;
+import org.example.exception.api.IdempotencyKeyReusedException;
+import org.example.exception.api.IdempotentRequestInProgressException;
+import org.example.exception.api.InvalidIdempotencyKeyException;
+import org.example.repository.IdempotencyKeyRepository;
+import org.example.repository.IdempotencyRecord;
+import org.example.service.coupon.CouponNormalizer;
+import org.example.service.coupon.CouponService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redemptions made with an {@code Idempotency-Key}. A request claims the user's key with a pending row in
+ * {@code idempotency_keys} before redeeming and stores the response in it once the redemption commits; it is
+ * also cached in memory. A retry with the same key is answered with that response without going near
+ * {@code coupons}, and one arriving while the first is still redeeming waits for it. Failures give the key up,
+ * so a retry after one redeems again.
+ */
+@Service
+public class IdempotentRedemptionService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentRedemptionService.class);
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    private final CouponService couponService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final long ttlMillis;
+    private final long pendingTimeoutMillis;
+    private final long pollIntervalMillis;
+    private final int cleanupBatchSize;
+    private final Cache<String, CouponResponse> cache;
+    private Counter cacheReplays;
+    private Counter databaseReplays;
+
+    public IdempotentRedemptionService(
+            CouponService couponService,
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            @Value("${coupon.idempotency.ttl-ms:86400000}") long ttlMillis,
+            @Value("${coupon.idempotency.pending-timeout-ms:30000}") long pendingTimeoutMillis,
+            @Value("${coupon.idempotency.poll-interval-ms:50}") long pollIntervalMillis,
+            @Value("${coupon.idempotency.cache.maximum-size:100000}") long maximumSize,
+            @Value("${coupon.idempotency.cleanup-batch-size:1000}") int cleanupBatchSize
+    ) {
+        this.couponService = couponService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.ttlMillis = ttlMillis;
+        this.pendingTimeoutMillis = pendingTimeoutMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.cleanupBatchSize = cleanupBatchSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "idempotency_keys");
+        cacheReplays = Counter.builder("coupon.redemption.replayed").tag("source", "cache").register(registry);
+        databaseReplays = Counter.builder("coupon.redemption.replayed").tag("source", "database").register(registry);
+    }
+
+    public CouponResponse useCoupon(UseCouponRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return couponService.useCoupon(request);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(MAX_KEY_LENGTH);
+        }
+        String normalizedCode = CouponNormalizer.normalizeCode(request.getCode());
+        String userId = request.getUserId();
+        CouponResponse cached = cache.getIfPresent(cacheKey(userId, idempotencyKey));
+        if (cached != null) {
+            count(cacheReplays);
+            return replayed(cached.getCode(), cached, normalizedCode, idempotencyKey);
+        }
+
+        long deadline = System.currentTimeMillis() + pendingTimeoutMillis;
+        while (true) {
+            Optional<IdempotencyRecord> record = idempotencyKeyRepository.find(userId, idempotencyKey);
+            if (record.isPresent()) {
+                CouponResponse stored = replayed(record.get().getCode(), record.get().getResponse(), normalizedCode,
+                        idempotencyKey);
+                if (record.get().isCompleted()) {
+                    cache.put(cacheKey(userId, idempotencyKey), stored);
+                    count(databaseReplays);
+                    return stored;
+                }
+            } else if (idempotencyKeyRepository.claim(userId, idempotencyKey, normalizedCode, pendingTimeoutMillis)) {
+                return redeem(request, idempotencyKey);
+            } else {
+                // Claimed by a concurrent request between the two statements.
+                continue;
+            }
+            // Another request with this key is still redeeming; wait for its result.
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IdempotentRequestInProgressException(idempotencyKey);
+            }
+            pause(idempotencyKey);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.idempotency.cleanup-interval-ms:60000}")
+    public void deleteExpired() {
+        int deleted;
+        do {
+            deleted = idempotencyKeyRepository.deleteExpired(cleanupBatchSize);
+        } while (deleted == cleanupBatchSize);
+    }
+
+    private CouponResponse redeem(UseCouponRequest request, String idempotencyKey) {
+        CouponResponse response;
+        try {
+            response = couponService.useCoupon(request);
+        } catch (RuntimeException e) {
+            releaseQuietly(request.getUserId(), idempotencyKey);
+            throw e;
+        }
+        try {
+            idempotencyKeyRepository.complete(request.getUserId(), idempotencyKey, response, ttlMillis);
+        } catch (RuntimeException e) {
+            // The redemption has committed; retries wait for the claim to expire and then get CouponAlreadyUsed.
+            logger.warn("Storing idempotency key {} of user {} failed: {}",
+                    idempotencyKey, request.getUserId(), e.getMessage());
+        }
+        cache.put(cacheKey(request.getUserId(), idempotencyKey), response);
+        return response;
+    }
+
+    // A claim left behind expires after the pending timeout, so a failure here only delays retries.
+    private void releaseQuietly(String userId, String idempotencyKey) {
+        try {
+            idempotencyKeyRepository.release(userId, idempotencyKey);
+        } catch (RuntimeException e) {
+            logger.warn("Releasing idempotency key {} of user {} failed: {}", idempotencyKey, userId, e.getMessage());
+        }
+    }
+
+    private void pause(String idempotencyKey) {
+        try {
+            Thread.sleep(pollIntervalMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotentRequestInProgressException(idempotencyKey);
+        }
+    }
+
+    /** The stored response, null while the key is still pending; fails if the key was claimed for another coupon. */
+    private static CouponResponse replayed(String storedCode, CouponResponse stored, String normalizedCode,
+                                           String idempotencyKey) {
+        if (!storedCode.equalsIgnoreCase(normalizedCode)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey, storedCode);
+        }
+        return stored;
+    }
+
+    private static String cacheKey(String userId, String idempotencyKey) {
+        return userId + '\n' + idempotencyKey;
+    }
+
+    private static void count(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
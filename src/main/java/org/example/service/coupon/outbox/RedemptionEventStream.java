@@ -0,0 +1,52 @@
+package org.example.service.coupon.outbox;
+
+import org.example.exception.api.RedemptionConsumerNotFoundException;
+import org.example.repository.CouponUsageRepository;
+import org.example.repository.OutboxEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Redemption events for downstream consumers, read straight from {@code redemption_outbox}. Each consumer
+ * keeps a cursor on the outbox id: {@link #poll} returns the rows past it and {@link #acknowledge} moves it.
+ * Delivery is at least once, in id order; rows are purged only once every registered consumer has
+ * acknowledged them, so a consumer that is gone for good must be {@linkplain #remove removed}.
+ */
+@Component
+public class RedemptionEventStream {
+
+    private final CouponUsageRepository couponUsageRepository;
+    private final int maxBatchSize;
+
+    public RedemptionEventStream(
+            CouponUsageRepository couponUsageRepository,
+            @Value("${coupon.usage.outbox.batch-size:1000}") int maxBatchSize
+    ) {
+        this.couponUsageRepository = couponUsageRepository;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /** Registers the consumer on its first poll. Must not run inside a transaction. */
+    public List<OutboxEvent> poll(String consumer, int limit) {
+        couponUsageRepository.registerOutboxConsumer(consumer);
+        // Ids are taken before their rows commit, so a smaller id can still appear after a larger one was
+        // read. Reading only up to a mark whose writers have all finished keeps the cursor from skipping it.
+        long highWaterMark = couponUsageRepository.outboxHighWaterMark();
+        couponUsageRepository.awaitOutboxWriters();
+        return couponUsageRepository.readOutbox(consumer, highWaterMark, Math.max(1, Math.min(limit, maxBatchSize)));
+    }
+
+    public void acknowledge(String consumer, long lastId) {
+        if (couponUsageRepository.acknowledgeOutbox(consumer, lastId) == 0) {
+            throw new RedemptionConsumerNotFoundException(consumer);
+        }
+    }
+
+    public void remove(String consumer) {
+        if (couponUsageRepository.removeOutboxConsumer(consumer) == 0) {
+            throw new RedemptionConsumerNotFoundException(consumer);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.service.coupon.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.RedemptionMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind of coupon usages. When enabled, LOCKING redemptions only record the usage in
+ * {@code redemption_outbox}; this flusher copies pending rows into {@code coupon_usages} in large batches.
+ * Prior-use checks in every mode read both tables, whether or not the outbox is enabled, and flushed rows
+ * are kept for {@code retentionMillis} so that no check can miss a usage while it moves or drains, and until
+ * every {@link RedemptionEventStream} consumer has acknowledged them.
+ */
+@Component
+public class RedemptionOutbox implements MeterBinder {
+
+    private final CouponUsageRepository couponUsageRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long retentionMillis;
+    private volatile boolean drained;
+    private Counter flushed;
+
+    public RedemptionOutbox(
+            CouponUsageRepository couponUsageRepository,
+            @Value("${coupon.usage.outbox.enabled:false}") boolean enabled,
+            @Value("${coupon.usage.outbox.batch-size:1000}") int batchSize,
+            @Value("${coupon.usage.outbox.retention-ms:3600000}") long retentionMillis,
+            @Value("${coupon.redemption.mode:LOCKING}") RedemptionMode redemptionMode
+    ) {
+        // The other modes insert into coupon_usages in the same statement that takes the budget.
+        if (enabled && redemptionMode != RedemptionMode.LOCKING) {
+            throw new IllegalStateException("The redemption outbox requires coupon.redemption.mode=LOCKING");
+        }
+        this.couponUsageRepository = couponUsageRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retentionMillis = retentionMillis;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        flushed = Counter.builder("coupon.usage.outbox.flushed").register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Also runs when disabled, until rows left from before switching it off have reached coupon_usages;
+    // nothing enqueues once it is off, so polling stops after the first drain that comes back short.
+    @Scheduled(fixedDelayString = "${coupon.usage.outbox.flush-interval-ms:500}")
+    public void flush() {
+        if (drained) {
+            return;
+        }
+        int count;
+        do {
+            count = couponUsageRepository.flushOutbox(batchSize);
+            if (count != 0 && flushed != null) {
+                flushed.increment(count);
+            }
+        } while (count == batchSize);
+        drained = !enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.usage.outbox.purge-interval-ms:60000}")
+    public void purge() {
+        int purged;
+        do {
+            purged = couponUsageRepository.purgeOutbox(retentionMillis, batchSize);
+        } while (purged == batchSize);
+    }
+}
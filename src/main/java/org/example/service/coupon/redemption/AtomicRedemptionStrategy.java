@@ -0,0 +1,63 @@
+package org.example.service.coupon.redemption;
+
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.entity.Coupon;
+import org.example.exception.api.CouponAlreadyUsedByUserException;
+import org.example.repository.AtomicRedemption;
+import org.example.repository.CouponRepository;
+import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.CouponRejections;
+import org.example.service.coupon.RedemptionMetrics;
+import org.example.service.coupon.RedemptionMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/** {@link RedemptionMode#ATOMIC}: one conditional statement checks, increments and inserts the usage. */
+@Component
+@ConditionalOnProperty(name = "coupon.redemption.mode", havingValue = "ATOMIC")
+public class AtomicRedemptionStrategy implements RedemptionStrategy {
+
+    private final CouponRepository couponRepository;
+    private final CouponUsageRepository couponUsageRepository;
+    private final RedemptionMetrics redemptionMetrics;
+    private final TransactionTemplate transactionTemplate;
+
+    public AtomicRedemptionStrategy(
+            CouponRepository couponRepository,
+            CouponUsageRepository couponUsageRepository,
+            RedemptionMetrics redemptionMetrics,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.couponRepository = couponRepository;
+        this.couponUsageRepository = couponUsageRepository;
+        this.redemptionMetrics = redemptionMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Coupon redeem(String normalizedCode, UseCouponRequest request, Supplier<String> userCountry) {
+        // The statement needs the country, so there is nothing to overlap it with inside the transaction.
+        String country = userCountry.get();
+        return transactionTemplate.execute(status -> redeemAtomically(normalizedCode, country, request));
+    }
+
+    private Coupon redeemAtomically(String normalizedCode, String userCountry, UseCouponRequest request) {
+        long updateStarted = System.nanoTime();
+        Optional<AtomicRedemption> redeemed = couponRepository.redeemAtomically(normalizedCode, userCountry, request.getUserId());
+        redemptionMetrics.recordStage(RedemptionMetrics.Stage.ATOMIC_UPDATE, System.nanoTime() - updateStarted);
+        AtomicRedemption redemption = redeemed.orElseThrow(() -> CouponRejections.explain(
+                couponRepository, couponUsageRepository, normalizedCode, userCountry, request.getUserId()));
+
+        // The counter was incremented but a concurrent redemption by the same user inserted the usage
+        // first; throwing rolls the increment back.
+        if (!redemption.isUsageInserted()) {
+            throw new CouponAlreadyUsedByUserException(request.getUserId(), normalizedCode);
+        }
+        return redemption.getCoupon();
+    }
+}
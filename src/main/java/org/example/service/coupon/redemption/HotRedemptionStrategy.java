@@ -0,0 +1,75 @@
+package org.example.service.coupon.redemption;
+
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.entity.Coupon;
+import org.example.exception.api.CouponAlreadyUsedByUserException;
+import org.example.exception.api.CouponCountryNotAllowedException;
+import org.example.exception.api.CouponNotFoundException;
+import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.repository.CouponRepository;
+import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.RedemptionMetrics;
+import org.example.service.coupon.RedemptionMode;
+import org.example.service.coupon.hot.HotCouponBudget;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link RedemptionMode#HOT}: spends budget leased into {@link HotCouponBudget} and only inserts the usage.
+ * The coupon row is never touched on the request path, so no transaction is needed.
+ */
+@Component
+@ConditionalOnProperty(name = "coupon.redemption.mode", havingValue = "HOT")
+public class HotRedemptionStrategy implements RedemptionStrategy {
+
+    private final CouponRepository couponRepository;
+    private final CouponUsageRepository couponUsageRepository;
+    private final HotCouponBudget hotCouponBudget;
+    private final RedemptionMetrics redemptionMetrics;
+
+    public HotRedemptionStrategy(
+            CouponRepository couponRepository,
+            CouponUsageRepository couponUsageRepository,
+            HotCouponBudget hotCouponBudget,
+            RedemptionMetrics redemptionMetrics
+    ) {
+        this.couponRepository = couponRepository;
+        this.couponUsageRepository = couponUsageRepository;
+        this.hotCouponBudget = hotCouponBudget;
+        this.redemptionMetrics = redemptionMetrics;
+    }
+
+    @Override
+    public Coupon redeem(String normalizedCode, UseCouponRequest request, Supplier<String> country) {
+        Coupon coupon = couponRepository.findByCodeIgnoreCase(normalizedCode)
+                .orElseThrow(() -> new CouponNotFoundException(normalizedCode));
+
+        String userCountry = country.get();
+        if (!coupon.getCountry().equalsIgnoreCase(userCountry)) {
+            throw new CouponCountryNotAllowedException(coupon.getCode(), userCountry);
+        }
+
+        if (!hotCouponBudget.tryAcquire(coupon.getId())) {
+            throw new CouponUseLimitExceededException(coupon.getCode());
+        }
+        boolean inserted = false;
+        long insertStarted = System.nanoTime();
+        try {
+            inserted = couponUsageRepository.insertIfAbsent(coupon.getId(), request.getUserId()) == 1;
+        } finally {
+            redemptionMetrics.recordStage(RedemptionMetrics.Stage.INSERT, System.nanoTime() - insertStarted);
+            if (!inserted) {
+                hotCouponBudget.release(coupon.getId());
+            }
+        }
+        if (!inserted) {
+            throw new CouponAlreadyUsedByUserException(request.getUserId(), coupon.getCode());
+        }
+
+        // current_uses lags behind by whatever this node has not flushed yet.
+        coupon.setCurrentUses(coupon.getCurrentUses() + hotCouponBudget.pendingUses(coupon.getId()));
+        return coupon;
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.service.coupon.redemption;
+
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.entity.Coupon;
+import org.example.entity.CouponUsage;
+import org.example.exception.api.CouponAlreadyUsedByUserException;
+import org.example.exception.api.CouponCountryNotAllowedException;
+import org.example.exception.api.CouponNotFoundException;
+import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.repository.CouponRepository;
+import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.RedemptionMetrics;
+import org.example.service.coupon.RedemptionMode;
+import org.example.service.coupon.outbox.RedemptionOutbox;
+import org.example.service.coupon.usage.CouponUsageFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/** {@link RedemptionMode#LOCKING}: locks the coupon row, checks and increments it in one transaction. */
+@Component
+@ConditionalOnProperty(name = "coupon.redemption.mode", havingValue = "LOCKING", matchIfMissing = true)
+public class LockingRedemptionStrategy implements RedemptionStrategy {
+
+    private final CouponRepository couponRepository;
+    private final CouponUsageRepository couponUsageRepository;
+    private final CouponUsageFilter couponUsageFilter;
+    private final RedemptionMetrics redemptionMetrics;
+    private final RedemptionOutbox redemptionOutbox;
+    private final TransactionTemplate transactionTemplate;
+
+    public LockingRedemptionStrategy(
+            CouponRepository couponRepository,
+            CouponUsageRepository couponUsageRepository,
+            CouponUsageFilter couponUsageFilter,
+            RedemptionMetrics redemptionMetrics,
+            RedemptionOutbox redemptionOutbox,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.couponRepository = couponRepository;
+        this.couponUsageRepository = couponUsageRepository;
+        this.couponUsageFilter = couponUsageFilter;
+        this.redemptionMetrics = redemptionMetrics;
+        this.redemptionOutbox = redemptionOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Coupon redeem(String normalizedCode, UseCouponRequest request, Supplier<String> userCountry) {
+        return transactionTemplate.execute(status -> redeemLocked(normalizedCode, request, userCountry));
+    }
+
+    private Coupon redeemLocked(String normalizedCode, UseCouponRequest request, Supplier<String> country) {
+        long lockStarted = System.nanoTime();
+        Coupon coupon = couponRepository.findByCodeIgnoreCaseForUpdate(normalizedCode)
+                .orElseThrow(() -> new CouponNotFoundException(normalizedCode));
+        redemptionMetrics.recordStage(RedemptionMetrics.Stage.LOCK, System.nanoTime() - lockStarted);
+
+        if (coupon.getCurrentUses() + coupon.getLeasedUses() >= coupon.getMaxUses()) {
+            throw new CouponUseLimitExceededException(coupon.getCode());
+        }
+
+        String userCountry = country.get();
+        if (!coupon.getCountry().equalsIgnoreCase(userCountry)) {
+            throw new CouponCountryNotAllowedException(coupon.getCode(), userCountry);
+        }
+
+        if (redemptionOutbox.isEnabled()) {
+            // The outbox insert is the prior-use check; throwing rolls back the increment.
+            coupon.setCurrentUses(coupon.getCurrentUses() + 1);
+            couponRepository.save(coupon);
+            long insertStarted = System.nanoTime();
+            int enqueued = couponUsageRepository.enqueueIfAbsent(coupon.getId(), request.getUserId());
+            redemptionMetrics.recordStage(RedemptionMetrics.Stage.INSERT, System.nanoTime() - insertStarted);
+            if (enqueued == 0) {
+                throw new CouponAlreadyUsedByUserException(request.getUserId(), coupon.getCode());
+            }
+            couponUsageFilter.recordUse(coupon.getId(), request.getUserId());
+            return coupon;
+        }
+
+        boolean skipCheck = couponUsageFilter.definitelyNotUsed(coupon, request.getUserId());
+        redemptionMetrics.recordUsageCheck(skipCheck);
+        if (skipCheck) {
+            // No lookup; uq_coupon_user rejects the insert if the filter had not seen an earlier usage,
+            // and throwing rolls back the increment.
+            coupon.setCurrentUses(coupon.getCurrentUses() + 1);
+            couponRepository.save(coupon);
+            long insertStarted = System.nanoTime();
+            int inserted = couponUsageRepository.insertIfAbsent(coupon.getId(), request.getUserId());
+            redemptionMetrics.recordStage(RedemptionMetrics.Stage.INSERT, System.nanoTime() - insertStarted);
+            if (inserted == 0) {
+                throw new CouponAlreadyUsedByUserException(request.getUserId(), coupon.getCode());
+            }
+        } else {
+            long checkStarted = System.nanoTime();
+            boolean used = couponUsageRepository.existsByCouponAndUserId(coupon, request.getUserId());
+            redemptionMetrics.recordStage(RedemptionMetrics.Stage.DUPLICATE_CHECK, System.nanoTime() - checkStarted);
+            if (used) {
+                throw new CouponAlreadyUsedByUserException(request.getUserId(), coupon.getCode());
+            }
+
+            coupon.setCurrentUses(coupon.getCurrentUses() + 1);
+            couponRepository.save(coupon);
+
+            CouponUsage usage = CouponUsage.builder()
+                    .coupon(coupon)
+                    .userId(request.getUserId())
+                    .build();
+            long insertStarted = System.nanoTime();
+            couponUsageRepository.save(usage);
+            redemptionMetrics.recordStage(RedemptionMetrics.Stage.INSERT, System.nanoTime() - insertStarted);
+        }
+        couponUsageFilter.recordUse(coupon.getId(), request.getUserId());
+
+        return coupon;
+    }
+}
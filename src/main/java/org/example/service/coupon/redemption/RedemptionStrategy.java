@@ -0,0 +1,35 @@
+package org.example.service.coupon.redemption;
+
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.entity.Coupon;
+import org.example.service.coupon.RedemptionMode;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * How a single redemption takes a use of a coupon. There is one implementation per {@link RedemptionMode},
+ * and only the one selected by {@code coupon.redemption.mode} is a bean.
+ */
+public interface RedemptionStrategy {
+
+    /**
+     * Redeems the coupon for the request's user and returns it with its uses after the redemption; rejections
+     * are thrown as {@code ApiException}s. {@code userCountry} blocks until the GeoIP lookup has finished, so
+     * implementations ask for it as late as they can.
+     */
+    Coupon redeem(String normalizedCode, UseCouponRequest request, Supplier<String> userCountry);
+
+    /**
+     * Whether the coupon's remaining budget is taken from its own row, as batch redemptions and reservations
+     * do. When it is held elsewhere, batches are redeemed item by item through {@link #redeem} and
+     * reservations are rejected.
+     */
+    default boolean spendsFromCouponRow() {
+        return true;
+    }
+
+    /** Prepares coupons that were just inserted, inside the creating transaction if there is one. */
+    default void onCreated(Collection<String> codes) {
+    }
+}
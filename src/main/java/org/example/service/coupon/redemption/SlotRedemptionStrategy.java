@@ -0,0 +1,108 @@
+package org.example.service.coupon.redemption;
+
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.entity.Coupon;
+import org.example.exception.api.CouponAlreadyUsedByUserException;
+import org.example.exception.api.CouponCountryNotAllowedException;
+import org.example.exception.api.CouponNotFoundException;
+import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.repository.CouponRepository;
+import org.example.repository.SlotClaim;
+import org.example.service.coupon.RedemptionMetrics;
+import org.example.service.coupon.RedemptionMode;
+import org.example.service.coupon.slots.CouponSlots;
+import org.example.service.coupon.usage.CouponUsageFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/** {@link RedemptionMode#SLOTS}: claims one of the coupon's {@link CouponSlots} rows instead of its own row. */
+@Component
+@ConditionalOnProperty(name = "coupon.redemption.mode", havingValue = "SLOTS")
+public class SlotRedemptionStrategy implements RedemptionStrategy {
+
+    // Bounds the waits when the slot waited for was emptied by its holder while others are still free.
+    private static final int MAX_WAITING_CLAIMS = 3;
+
+    private final CouponRepository couponRepository;
+    private final CouponSlots couponSlots;
+    private final CouponUsageFilter couponUsageFilter;
+    private final RedemptionMetrics redemptionMetrics;
+    private final TransactionTemplate transactionTemplate;
+
+    public SlotRedemptionStrategy(
+            CouponRepository couponRepository,
+            CouponSlots couponSlots,
+            CouponUsageFilter couponUsageFilter,
+            RedemptionMetrics redemptionMetrics,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.couponRepository = couponRepository;
+        this.couponSlots = couponSlots;
+        this.couponUsageFilter = couponUsageFilter;
+        this.redemptionMetrics = redemptionMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Coupon redeem(String normalizedCode, UseCouponRequest request, Supplier<String> country) {
+        String userCountry = country.get();
+        Coupon coupon = couponRepository.findByCodeIgnoreCase(normalizedCode)
+                .orElseThrow(() -> new CouponNotFoundException(normalizedCode));
+        if (!coupon.getCountry().equalsIgnoreCase(userCountry)) {
+            throw new CouponCountryNotAllowedException(coupon.getCode(), userCountry);
+        }
+
+        SlotClaim claim = claimSlot(coupon, request.getUserId(), true);
+        if (!claim.isSlotted()) {
+            // Created before the mode was switched on, or its slots were never created; slot it and retry.
+            couponSlots.create(coupon.getCode());
+            claim = claimSlot(coupon, request.getUserId(), true);
+        }
+        for (int attempt = 0; !claim.isClaimed() && claim.getFreeUses() > 0 && attempt < MAX_WAITING_CLAIMS; attempt++) {
+            // Every free slot was held by an in-flight claim, which may still roll back; wait for them this time.
+            claim = claimSlot(coupon, request.getUserId(), false);
+        }
+        if (!claim.isClaimed()) {
+            throw new CouponUseLimitExceededException(coupon.getCode());
+        }
+        couponUsageFilter.recordUse(coupon.getId(), request.getUserId());
+
+        // current_uses lags behind by the uses not rolled up yet.
+        coupon.setCurrentUses(Math.min(coupon.getMaxUses(), coupon.getCurrentUses() + claim.getUnsettledUses()));
+        return coupon;
+    }
+
+    // The budget sits in the slots, so batches go through redeem() and reservations are rejected.
+    @Override
+    public boolean spendsFromCouponRow() {
+        return false;
+    }
+
+    // Coupons left unslotted if this fails are slotted on their first redemption.
+    @Override
+    public void onCreated(Collection<String> codes) {
+        // The slots are created with a native statement, which must see coupons saved through JPA.
+        couponRepository.flush();
+        couponSlots.create(codes);
+    }
+
+    private SlotClaim claimSlot(Coupon coupon, String userId, boolean skipLocked) {
+        return transactionTemplate.execute(status -> claimSlotInTransaction(coupon, userId, skipLocked));
+    }
+
+    private SlotClaim claimSlotInTransaction(Coupon coupon, String userId, boolean skipLocked) {
+        long claimStarted = System.nanoTime();
+        SlotClaim claim = couponRepository.claimSlot(coupon.getId(), userId, skipLocked);
+        redemptionMetrics.recordStage(RedemptionMetrics.Stage.SLOT_CLAIM, System.nanoTime() - claimStarted);
+        // The slot was taken but the user had redeemed before; throwing rolls the claim back.
+        if (claim.isClaimed() && !claim.isUsageInserted()) {
+            throw new CouponAlreadyUsedByUserException(userId, coupon.getCode());
+        }
+        return claim;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.service.coupon.reservation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.repository.CouponRepository;
+import org.example.service.coupon.RedemptionMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Returns the budget of expired reservations. Reservations made on this node sit in a {@link TimerWheel}
+ * and are released in bulk, one statement per tick, when their deadline passes; confirmed or released
+ * ones simply no longer match. Reservations of nodes that died, or whose release failed, are picked up
+ * by a slower sweep over the whole table.
+ */
+@Component
+public class ReservationSweeper implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationSweeper.class);
+
+    private final CouponRepository couponRepository;
+    private final RedemptionMetrics redemptionMetrics;
+    private final long ttlMillis;
+    private final int batchSize;
+    private final TimerWheel<UUID> wheel;
+
+    public ReservationSweeper(
+            CouponRepository couponRepository,
+            RedemptionMetrics redemptionMetrics,
+            @Value("${coupon.reservation.ttl-ms:900000}") long ttlMillis,
+            @Value("${coupon.reservation.tick-ms:1000}") long tickMillis,
+            @Value("${coupon.reservation.wheel-size:1024}") int wheelSize,
+            @Value("${coupon.reservation.sweep-batch-size:1000}") int batchSize
+    ) {
+        this.couponRepository = couponRepository;
+        this.redemptionMetrics = redemptionMetrics;
+        this.ttlMillis = ttlMillis;
+        this.batchSize = batchSize;
+        this.wheel = new TimerWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("coupon.reservation.pending", wheel, TimerWheel::size).register(registry);
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Schedules a reservation that was just committed. The deadline is the TTL on this node's clock rather
+     * than the database's {@code expires_at}, so clock skew between the two cannot fire it early or late; it
+     * lands slightly after {@code expires_at}, which was computed when the reserving transaction started.
+     */
+    public void schedule(UUID reservationId) {
+        wheel.schedule(reservationId, System.currentTimeMillis() + ttlMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.reservation.tick-ms:1000}")
+    public void releaseDue() {
+        List<UUID> due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<UUID> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                redemptionMetrics.recordReservations("expired", couponRepository.releaseExpiredReservations(batch));
+            } catch (RuntimeException e) {
+                logger.warn("Releasing {} expired reservations failed, leaving them to the sweep: {}",
+                        batch.size(), e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.reservation.sweep-interval-ms:60000}")
+    public void sweep() {
+        int released;
+        do {
+            released = couponRepository.releaseExpiredReservations(batchSize);
+            redemptionMetrics.recordReservations("expired", released);
+        } while (released == batchSize);
+    }
+}
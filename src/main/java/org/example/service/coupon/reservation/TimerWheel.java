@@ -0,0 +1,73 @@
+package org.example.service.coupon.reservation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timer wheel: deadlines are rounded up to ticks of {@code tickMillis} and hashed into a ring of
+ * buckets, so scheduling is O(1) and {@link #advance} only visits the buckets of the ticks that passed
+ * instead of running one task per item. A deadline more than one revolution away stays in its bucket
+ * until the revolution in which it falls due. Items cannot be cancelled; whoever handles the expired
+ * items has to ignore the ones that were settled in the meantime.
+ */
+class TimerWheel<T> {
+
+    private record Timeout<T>(T item, long tick) {
+    }
+
+    private final long tickMillis;
+    private final List<Timeout<T>>[] buckets;
+    private final int mask;
+    private long lastTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimerWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        int buckets = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize : Integer.highestOneBit(wheelSize) << 1;
+        this.tickMillis = tickMillis;
+        this.buckets = new List[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.buckets[i] = new ArrayList<>();
+        }
+        this.mask = buckets - 1;
+        this.lastTick = nowMillis / tickMillis;
+    }
+
+    /** Schedules {@code item} to be returned by the first {@link #advance} at or after {@code deadlineMillis}. */
+    synchronized void schedule(T item, long deadlineMillis) {
+        // Never into a tick that has already been swept, or it would wait a whole revolution.
+        long tick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, lastTick + 1);
+        buckets[(int) (tick & mask)].add(new Timeout<>(item, tick));
+        size++;
+    }
+
+    /** Removes and returns every item whose deadline is at or before {@code nowMillis}. */
+    synchronized List<T> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        if (nowTick <= lastTick) {
+            return expired;
+        }
+        // After a pause longer than one revolution every bucket is due exactly once.
+        long lastDue = Math.min(nowTick, lastTick + buckets.length);
+        for (long tick = lastTick + 1; tick <= lastDue; tick++) {
+            buckets[(int) (tick & mask)].removeIf(timeout -> {
+                if (timeout.tick() > nowTick) {
+                    return false;
+                }
+                expired.add(timeout.item());
+                return true;
+            });
+        }
+        lastTick = nowTick;
+        size -= expired.size();
+        return expired;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
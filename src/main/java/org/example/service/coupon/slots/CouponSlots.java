@@ -0,0 +1,61 @@
+package org.example.service.coupon.slots;
+
+import org.example.repository.CouponRepository;
+import org.example.service.coupon.RedemptionMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Pre-allocated redemption slots for {@link RedemptionMode#SLOTS}. The remaining budget of a coupon is
+ * split into at most {@code slotCount} {@code coupon_slots} rows and held in {@code leased_uses};
+ * redeemers claim any slot no one else holds, so they do not queue on the coupon row. Uses spent from
+ * slots are rolled up into {@code current_uses} in the background.
+ */
+@Component
+public class CouponSlots {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponSlots.class);
+
+    private final CouponRepository couponRepository;
+    private final int slotCount;
+    private final boolean enabled;
+
+    public CouponSlots(
+            CouponRepository couponRepository,
+            @Value("${coupon.slots.count:64}") int slotCount,
+            @Value("${coupon.redemption.mode:LOCKING}") RedemptionMode redemptionMode
+    ) {
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("Slot count must be positive");
+        }
+        this.couponRepository = couponRepository;
+        this.slotCount = slotCount;
+        this.enabled = redemptionMode == RedemptionMode.SLOTS;
+    }
+
+    /** Slots the listed coupons that have free budget and no slots yet; returns how many were slotted. */
+    public int create(Collection<String> codes) {
+        return couponRepository.createSlots(codes, slotCount);
+    }
+
+    public int create(String code) {
+        return create(List.of(code));
+    }
+
+    @Scheduled(fixedDelayString = "${coupon.slots.rollup-interval-ms:1000}")
+    public void rollUp() {
+        if (!enabled) {
+            return;
+        }
+        int rolledUp = couponRepository.rollUpSlots();
+        if (rolledUp > 0) {
+            logger.debug("Rolled up {} slot uses", rolledUp);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.service.coupon.usage;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.entity.Coupon;
+import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.catalog.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Per-coupon Bloom filters of the users that redeemed it, for coupons redeemed recently on this node.
+ * A negative answer lets the locking path skip the "already used" query; the {@code uq_coupon_user}
+ * constraint stays the final guard, so usages the filter has not seen (inserted by other nodes, or
+ * while it was loading) cost a rejected insert, never a double redemption. A coupon's filter is
+ * loaded in the background on first use and is answered as "maybe used" until then.
+ */
+@Component
+public class CouponUsageFilter implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponUsageFilter.class);
+
+    private final CouponUsageRepository couponUsageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final double fpp;
+    private final long maxInsertions;
+    private final AsyncCache<Long, BloomFilter> filters;
+
+    public CouponUsageFilter(
+            CouponUsageRepository couponUsageRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${coupon.usage-filter.enabled:true}") boolean enabled,
+            @Value("${coupon.usage-filter.fpp:0.01}") double fpp,
+            @Value("${coupon.usage-filter.max-insertions:1000000}") long maxInsertions,
+            @Value("${coupon.usage-filter.max-memory-bytes:67108864}") long maxMemoryBytes,
+            @Value("${coupon.usage-filter.expire-after-access-ms:600000}") long expireAfterAccessMillis
+    ) {
+        this(couponUsageRepository, transactionManager, enabled, fpp, maxInsertions, maxMemoryBytes,
+                expireAfterAccessMillis, loaderExecutor());
+    }
+
+    CouponUsageFilter(CouponUsageRepository couponUsageRepository, PlatformTransactionManager transactionManager,
+                      boolean enabled, double fpp, long maxInsertions, long maxMemoryBytes,
+                      long expireAfterAccessMillis, Executor executor) {
+        this.couponUsageRepository = couponUsageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.fpp = fpp;
+        this.maxInsertions = maxInsertions;
+        this.filters = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((Long couponId, BloomFilter filter) -> (int) Math.min(Integer.MAX_VALUE, filter.memoryBytes()))
+                .expireAfterAccess(Duration.ofMillis(expireAfterAccessMillis))
+                .executor(executor)
+                .recordStats()
+                .buildAsync();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, filters, "coupon_usage_filters");
+    }
+
+    /**
+     * True only when {@code userId} has certainly not redeemed the coupon, as far as this node knows.
+     * False means the exact query has to decide.
+     */
+    public boolean definitelyNotUsed(Coupon coupon, String userId) {
+        if (!enabled) {
+            return false;
+        }
+        CompletableFuture<BloomFilter> filter = filters.get(coupon.getId(), (couponId, executor) ->
+                CompletableFuture.supplyAsync(() -> load(couponId, coupon.getMaxUses()), executor));
+        BloomFilter loaded = loadedOrNull(filter);
+        return loaded != null && !loaded.mightContain(userId);
+    }
+
+    public void recordUse(long couponId, String userId) {
+        CompletableFuture<BloomFilter> filter = filters.getIfPresent(couponId);
+        BloomFilter loaded = loadedOrNull(filter);
+        if (loaded != null) {
+            loaded.put(userId);
+        }
+    }
+
+    // A failed load is dropped by the cache and retried on the next redemption.
+    private static BloomFilter loadedOrNull(CompletableFuture<BloomFilter> filter) {
+        return filter == null || !filter.isDone() || filter.isCompletedExceptionally() ? null : filter.join();
+    }
+
+    private BloomFilter load(long couponId, int maxUses) {
+        // A coupon never has more usages than max_uses, so the filter is sized once and never fills up.
+        BloomFilter filter = BloomFilter.create(Math.min(maxUses, maxInsertions), fpp);
+        transactionTemplate.executeWithoutResult(status -> couponUsageRepository.forEachUserId(couponId, filter::put));
+        logger.debug("Loaded usage filter for coupon {}: {} KiB", couponId, filter.memoryBytes() / 1024);
+        return filter;
+    }
+
+    private static Executor loaderExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("usage-filter-");
+        executor.setConcurrencyLimit(2);
+        return executor;
+    }
+}
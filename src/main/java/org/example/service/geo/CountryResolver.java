@@ -1,5 +1,19 @@
 package org.example.service.geo;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface CountryResolver {
     String getCountry(String ipAddress);
-}
\ No newline at end of file
+
+    /**
+     * Starts resolving the country without blocking the caller. Implementations backed by a remote
+     * call should override this; the default resolves synchronously.
+     */
+    default CompletableFuture<String> getCountryAsync(String ipAddress) {
+        try {
+            return CompletableFuture.completedFuture(getCountry(ipAddress));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
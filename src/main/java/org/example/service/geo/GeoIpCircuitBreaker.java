@@ -0,0 +1,101 @@
+package org.example.service.geo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Opens after {@code geoip.breaker.failure-threshold} consecutive provider failures and rejects calls
+ * for {@code geoip.breaker.open-ms}; then a single trial call decides whether it closes or opens again.
+ */
+@Component
+public class GeoIpCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeoIpCircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long trips;
+
+    @Autowired
+    public GeoIpCircuitBreaker(
+            @Value("${geoip.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${geoip.breaker.open-ms:30000}") long openMillis
+    ) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    GeoIpCircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /** Returns whether a call may go to the provider; every permitted call must report its outcome. */
+    public boolean tryAcquire() {
+        // Closed is the common case and needs no lock.
+        return state == State.CLOSED || tryAcquireWhileOpen();
+    }
+
+    private synchronized boolean tryAcquireWhileOpen() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            logger.info("GeoIP circuit breaker closed");
+            state = State.CLOSED;
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            trips++;
+            logger.warn("GeoIP circuit breaker opened after {} consecutive failures", consecutiveFailures);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public synchronized long getTrips() {
+        return trips;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.service.geo;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the GeoIP circuit breaker under {@code /actuator/health}. An open breaker is DEGRADED rather
+ * than DOWN: redemptions from cached IPs still work and restarting the instance would not help.
+ */
+@Component("geoIp")
+public class GeoIpHealthIndicator implements HealthIndicator {
+
+    static final Status DEGRADED = new Status("DEGRADED");
+
+    private final GeoIpCircuitBreaker circuitBreaker;
+
+    public GeoIpHealthIndicator(GeoIpCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Health health() {
+        GeoIpCircuitBreaker.State state = circuitBreaker.getState();
+        return Health.status(state == GeoIpCircuitBreaker.State.OPEN ? DEGRADED : Status.UP)
+                .withDetail("circuitBreaker", state)
+                .withDetail("trips", circuitBreaker.getTrips())
+                .withDetail("consecutiveFailures", circuitBreaker.getConsecutiveFailures())
+                .build();
+    }
+}
@@ -1,46 +1,147 @@
 package org.example.service.geo;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.example.exception.api.GeoIpLookupException;
-import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.Cacheable;
+import org.example.exception.api.GeoIpUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.ResponseEntity;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+/**
+ * Looks countries up over HTTP behind an {@link AsyncLoadingCache}: concurrent misses for one IP share
+ * a single request, and entries past {@code geoip.cache.refresh-after-write-ms} keep being served while
+ * a background refresh replaces them. A failed refresh keeps the old value.
+ *
+ * <p>A failed lookup is remembered for {@code geoip.negative-cache-ttl-ms} so the same IP fails fast
+ * in the meantime, and provider errors feed a {@link GeoIpCircuitBreaker} which, once open, rejects
+ * lookups with {@link GeoIpUnavailableException} instead of waiting out the read timeout.
+ */
 @Service
-@CacheConfig(cacheNames = "geoIpCache")
-public class GeoIpService implements CountryResolver {
+public class GeoIpService implements CountryResolver, MeterBinder {
 
     private final RestTemplate restTemplate;
     private final String baseUrl;
     private final String fields;
+    private final AsyncLoadingCache<String, String> cache;
+    private final Cache<String, Boolean> failedLookups;
+    private final GeoIpCircuitBreaker circuitBreaker;
 
+    @Autowired
     public GeoIpService(
             RestTemplate restTemplate,
-            @org.springframework.beans.factory.annotation.Value("${geoip.base-url}") String baseUrl,
-            @org.springframework.beans.factory.annotation.Value("${geoip.fields}") String fields
+            @Value("${geoip.base-url}") String baseUrl,
+            @Value("${geoip.fields}") String fields,
+            @Value("${geoip.cache.maximum-size:10000}") long maximumSize,
+            @Value("${geoip.cache.refresh-after-write-ms:600000}") long refreshAfterWriteMillis,
+            @Value("${geoip.cache.expire-after-write-ms:3600000}") long expireAfterWriteMillis,
+            @Value("${geoip.negative-cache-ttl-ms:30000}") long negativeTtlMillis,
+            GeoIpCircuitBreaker circuitBreaker,
+            @Qualifier("geoIpExecutor") Executor executor
+    ) {
+        this(restTemplate, baseUrl, fields, maximumSize, refreshAfterWriteMillis, expireAfterWriteMillis,
+                negativeTtlMillis, circuitBreaker, executor, Ticker.systemTicker());
+    }
+
+    GeoIpService(
+            RestTemplate restTemplate,
+            String baseUrl,
+            String fields,
+            long maximumSize,
+            long refreshAfterWriteMillis,
+            long expireAfterWriteMillis,
+            long negativeTtlMillis,
+            GeoIpCircuitBreaker circuitBreaker,
+            Executor executor,
+            Ticker ticker
     ) {
         this.restTemplate = restTemplate;
         this.baseUrl = baseUrl;
         this.fields = fields;
+        this.circuitBreaker = circuitBreaker;
+        this.failedLookups = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(negativeTtlMillis))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(Duration.ofMillis(refreshAfterWriteMillis))
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMillis))
+                .executor(executor)
+                .ticker(ticker)
+                .recordStats()
+                .buildAsync(this::lookup);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "geoip");
+        CaffeineCacheMetrics.monitor(registry, failedLookups, "geoip_failures");
+        Gauge.builder("geoip.breaker.open", circuitBreaker,
+                        breaker -> breaker.getState() == GeoIpCircuitBreaker.State.OPEN ? 1 : 0)
+                .register(registry);
+        FunctionCounter.builder("geoip.breaker.trips", circuitBreaker, GeoIpCircuitBreaker::getTrips)
+                .register(registry);
     }
 
     @Override
-    @Cacheable
     public String getCountry(String ipAddress) {
+        try {
+            return cache.get(ipAddress).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> getCountryAsync(String ipAddress) {
+        return cache.get(ipAddress);
+    }
+
+    private String lookup(String ipAddress) {
+        if (failedLookups.getIfPresent(ipAddress) != null) {
+            throw new GeoIpLookupException(ipAddress);
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            throw new GeoIpUnavailableException(ipAddress);
+        }
         String url = baseUrl + ipAddress + "?fields=" + fields;
         ResponseEntity<Map> response;
         try {
             response = restTemplate.getForEntity(url, Map.class);
         } catch (Exception e) {
+            circuitBreaker.onFailure();
+            failedLookups.put(ipAddress, Boolean.TRUE);
             throw new GeoIpLookupException(ipAddress);
         }
+        // The provider answered; a body without a country is a problem with this IP, not with the provider.
+        circuitBreaker.onSuccess();
         Map<?, ?> body = response.getBody();
         if (body == null || body.get("countryCode") == null) {
+            failedLookups.put(ipAddress, Boolean.TRUE);
             throw new GeoIpLookupException(ipAddress);
         }
         return body.get("countryCode").toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package org.example.service.geo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves countries from an {@link IpRangeIndex}. The index is mapped from the snapshot when one
+ * exists, otherwise built from the CSV and written to the snapshot path for the next start.
+ * Addresses outside every range go to {@link GeoIpService}.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "geoip.resolver", havingValue = "range-index")
+public class IpRangeCountryResolver implements CountryResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(IpRangeCountryResolver.class);
+
+    private final GeoIpService fallback;
+    private final IpRangeIndex index;
+
+    public IpRangeCountryResolver(
+            GeoIpService fallback,
+            @Value("${geoip.range-index.csv-path:}") String csvPath,
+            @Value("${geoip.range-index.snapshot-path:}") String snapshotPath
+    ) {
+        this.fallback = fallback;
+        this.index = loadIndex(csvPath, snapshotPath);
+    }
+
+    @Override
+    public String getCountry(String ipAddress) {
+        String country = index.lookup(ipAddress);
+        return country != null ? country : fallback.getCountry(ipAddress);
+    }
+
+    @Override
+    public CompletableFuture<String> getCountryAsync(String ipAddress) {
+        String country = index.lookup(ipAddress);
+        return country != null ? CompletableFuture.completedFuture(country) : fallback.getCountryAsync(ipAddress);
+    }
+
+    private static IpRangeIndex loadIndex(String csvPath, String snapshotPath) {
+        try {
+            if (!snapshotPath.isBlank() && Files.exists(Path.of(snapshotPath))) {
+                IpRangeIndex index = IpRangeIndex.fromSnapshot(Path.of(snapshotPath));
+                logger.info("Mapped IP range index snapshot {} ({} ranges)", snapshotPath, index.size());
+                return index;
+            }
+            if (csvPath.isBlank()) {
+                throw new IllegalStateException("geoip.range-index.csv-path or an existing snapshot-path is required");
+            }
+            IpRangeIndex index = IpRangeIndex.fromCsv(Path.of(csvPath));
+            logger.info("Built IP range index from {} ({} ranges)", csvPath, index.size());
+            if (!snapshotPath.isBlank()) {
+                index.writeSnapshot(Path.of(snapshotPath));
+            }
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load IP range index", e);
+        }
+    }
+}
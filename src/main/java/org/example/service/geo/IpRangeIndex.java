@@ -0,0 +1,489 @@
+package org.example.service.geo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sorted IPv4 and IPv6 ranges kept in direct (or memory-mapped) buffers, looked up by binary search.
+ * Countries are stored as shorts indexing a table of the 676 possible two-letter codes, so a lookup
+ * parses the address in place and returns an interned String without allocating.
+ *
+ * <p>Snapshot layout (big-endian): magic, version, IPv4 count, IPv6 count, IPv4 starts and ends as
+ * unsigned ints, IPv6 starts and ends as (high, low) long pairs, IPv4 countries, IPv6 countries.
+ */
+public final class IpRangeIndex {
+
+    private static final int MAGIC = 0x49505258; // "IPRX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private static final String[] COUNTRIES = new String[26 * 26 + 1];
+
+    static {
+        for (char first = 'A'; first <= 'Z'; first++) {
+            for (char second = 'A'; second <= 'Z'; second++) {
+                COUNTRIES[countryIndex(first, second)] = String.valueOf(new char[]{first, second}).intern();
+            }
+        }
+    }
+
+    private final int v4Count;
+    private final int v6Count;
+    private final IntBuffer v4Starts;
+    private final IntBuffer v4Ends;
+    private final LongBuffer v6Starts;
+    private final LongBuffer v6Ends;
+    private final ShortBuffer v4Countries;
+    private final ShortBuffer v6Countries;
+    private final ByteBuffer storage;
+
+    private IpRangeIndex(ByteBuffer storage) {
+        this.storage = storage;
+        if (storage.getInt(0) != MAGIC || storage.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not an IP range index snapshot");
+        }
+        this.v4Count = storage.getInt(8);
+        this.v6Count = storage.getInt(12);
+        int offset = HEADER_BYTES;
+        this.v4Starts = slice(storage, offset, v4Count * 4).asIntBuffer();
+        offset += v4Count * 4;
+        this.v4Ends = slice(storage, offset, v4Count * 4).asIntBuffer();
+        offset += v4Count * 4;
+        this.v6Starts = slice(storage, offset, v6Count * 16).asLongBuffer();
+        offset += v6Count * 16;
+        this.v6Ends = slice(storage, offset, v6Count * 16).asLongBuffer();
+        offset += v6Count * 16;
+        this.v4Countries = slice(storage, offset, v4Count * 2).asShortBuffer();
+        offset += v4Count * 2;
+        this.v6Countries = slice(storage, offset, v6Count * 2).asShortBuffer();
+    }
+
+    /**
+     * Reads {@code start,end,country} lines (IPv4 or IPv6 literals, e.g. the DB-IP country lite CSV).
+     * Ranges must be sorted and must not overlap; rows whose country is not two letters are skipped.
+     */
+    public static IpRangeIndex fromCsv(Path csv) throws IOException {
+        RangeBuilder v4 = new RangeBuilder();
+        RangeBuilder v6 = new RangeBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String[] fields = line.split(",");
+                if (line.isBlank() || fields.length < 3) {
+                    continue;
+                }
+                String country = unquote(fields[2]);
+                if (country.length() != 2 || !isLetter(country.charAt(0)) || !isLetter(country.charAt(1))) {
+                    continue;
+                }
+                short countryIndex = (short) countryIndex(
+                        Character.toUpperCase(country.charAt(0)), Character.toUpperCase(country.charAt(1)));
+                InetAddress start = parseLiteral(unquote(fields[0]), lineNumber);
+                InetAddress end = parseLiteral(unquote(fields[1]), lineNumber);
+                if (start instanceof Inet4Address != end instanceof Inet4Address) {
+                    throw new IllegalArgumentException("Mixed address families on line " + lineNumber);
+                }
+                (start instanceof Inet4Address ? v4 : v6).add(start.getAddress(), end.getAddress(), countryIndex, lineNumber);
+            }
+        }
+        return new IpRangeIndex(layout(v4, v6, ByteBuffer.allocateDirect(size(v4.count, v6.count))));
+    }
+
+    /** Maps a snapshot written by {@link #writeSnapshot} without copying it onto the heap. */
+    public static IpRangeIndex fromSnapshot(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            return new IpRangeIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public void writeSnapshot(Path snapshot) throws IOException {
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer source = storage.duplicate().clear();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int size() {
+        return v4Count + v6Count;
+    }
+
+    /** Returns the country for an IP literal, or null when the address is unknown or not a literal. */
+    public String lookup(CharSequence ip) {
+        boolean v6 = false;
+        for (int i = 0; i < ip.length(); i++) {
+            if (ip.charAt(i) == ':') {
+                v6 = true;
+                break;
+            }
+        }
+        return COUNTRIES[v6 ? lookupV6(ip) : lookupV4(ip, 0, ip.length())];
+    }
+
+    private int lookupV4(CharSequence ip, int from, int to) {
+        long address = parseV4(ip, from, to);
+        return address < 0 ? 0 : findV4((int) address);
+    }
+
+    private int findV4(int address) {
+        int low = 0;
+        int high = v4Count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(v4Starts.get(mid), address) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // high is the last range starting at or before the address.
+        if (high < 0 || Integer.compareUnsigned(address, v4Ends.get(high)) > 0) {
+            return 0;
+        }
+        return v4Countries.get(high);
+    }
+
+    private int lookupV6(CharSequence ip) {
+        long headHigh = 0;
+        long headLow = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int groups = 0;
+        int gapAt = -1;
+        int i = 0;
+        int length = ip.length();
+        if (length >= 2 && ip.charAt(0) == ':' && ip.charAt(1) == ':') {
+            gapAt = 0;
+            i = 2;
+        }
+        while (i < length) {
+            int groupStart = i;
+            int value = 0;
+            while (i < length && ip.charAt(i) != ':' && ip.charAt(i) != '.') {
+                int digit = Character.digit(ip.charAt(i), 16);
+                if (digit < 0 || i - groupStart == 4) {
+                    return 0;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+            int words;
+            long bits;
+            if (i < length && ip.charAt(i) == '.') {
+                // Trailing dotted IPv4, e.g. ::ffff:1.2.3.4.
+                long v4 = parseV4(ip, groupStart, length);
+                if (v4 < 0) {
+                    return 0;
+                }
+                if (gapAt == 0 && groups == 1 && tailLow == 0xffffL) {
+                    return findV4((int) v4);
+                }
+                words = 2;
+                bits = v4;
+                i = length;
+            } else {
+                if (i == groupStart) {
+                    return 0;
+                }
+                words = 1;
+                bits = value;
+            }
+            if (gapAt < 0) {
+                headHigh = (headHigh << (16 * words)) | (headLow >>> (64 - 16 * words));
+                headLow = (headLow << (16 * words)) | bits;
+            } else {
+                tailHigh = (tailHigh << (16 * words)) | (tailLow >>> (64 - 16 * words));
+                tailLow = (tailLow << (16 * words)) | bits;
+            }
+            groups += words;
+            if (i < length) {
+                i++; // ':'
+                if (i < length && ip.charAt(i) == ':') {
+                    if (gapAt >= 0) {
+                        return 0;
+                    }
+                    gapAt = groups;
+                    i++;
+                } else if (i == length) {
+                    return 0;
+                }
+            }
+        }
+        if (groups > 8 || (gapAt < 0 && groups != 8) || (gapAt >= 0 && groups == 8)) {
+            return 0;
+        }
+        if (gapAt >= 0) {
+            int shift = (8 - gapAt) * 16;
+            if (shift >= 128) {
+                headHigh = 0;
+                headLow = 0;
+            } else if (shift >= 64) {
+                headHigh = headLow << (shift - 64);
+                headLow = 0;
+            } else if (shift > 0) {
+                headHigh = (headHigh << shift) | (headLow >>> (64 - shift));
+                headLow = headLow << shift;
+            }
+            headHigh |= tailHigh;
+            headLow |= tailLow;
+        }
+        return findV6(headHigh, headLow);
+    }
+
+    private int findV6(long high, long low) {
+        int lo = 0;
+        int hi = v6Count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare128(v6Starts.get(2 * mid), v6Starts.get(2 * mid + 1), high, low) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (hi < 0 || compare128(high, low, v6Ends.get(2 * hi), v6Ends.get(2 * hi + 1)) > 0) {
+            return 0;
+        }
+        return v6Countries.get(hi);
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 literal into its 4 or 16 address bytes, or returns null when it is not one;
+     * never resolves a host name. Zone ids are not accepted.
+     */
+    static byte[] toBytes(CharSequence ip) {
+        int length = ip.length();
+        for (int i = 0; i < length; i++) {
+            if (ip.charAt(i) == ':') {
+                return toBytesV6(ip);
+            }
+        }
+        long address = parseV4(ip, 0, length);
+        return address < 0 ? null : new byte[] {
+                (byte) (address >>> 24), (byte) (address >>> 16), (byte) (address >>> 8), (byte) address};
+    }
+
+    private static byte[] toBytesV6(CharSequence ip) {
+        byte[] bytes = new byte[16];
+        int length = ip.length();
+        int words = 0;
+        int gapAt = -1;
+        int i = 0;
+        if (length >= 2 && ip.charAt(0) == ':' && ip.charAt(1) == ':') {
+            gapAt = 0;
+            i = 2;
+        }
+        while (i < length) {
+            if (words == 8) {
+                return null;
+            }
+            int groupStart = i;
+            int value = 0;
+            while (i < length && ip.charAt(i) != ':' && ip.charAt(i) != '.') {
+                int digit = Character.digit(ip.charAt(i), 16);
+                if (digit < 0 || i - groupStart == 4) {
+                    return null;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+            if (i < length && ip.charAt(i) == '.') {
+                // Trailing dotted IPv4, e.g. ::ffff:1.2.3.4.
+                long v4 = parseV4(ip, groupStart, length);
+                if (v4 < 0 || words > 6) {
+                    return null;
+                }
+                for (int b = 0; b < 4; b++) {
+                    bytes[2 * words + b] = (byte) (v4 >>> (24 - 8 * b));
+                }
+                words += 2;
+                break;
+            }
+            if (i == groupStart) {
+                return null;
+            }
+            bytes[2 * words] = (byte) (value >>> 8);
+            bytes[2 * words + 1] = (byte) value;
+            words++;
+            if (i < length) {
+                i++; // ':'
+                if (i < length && ip.charAt(i) == ':') {
+                    if (gapAt >= 0) {
+                        return null;
+                    }
+                    gapAt = words;
+                    i++;
+                } else if (i == length) {
+                    return null;
+                }
+            }
+        }
+        if (gapAt < 0) {
+            return words == 8 ? bytes : null;
+        }
+        if (words == 8) {
+            return null;
+        }
+        // Move the words after "::" to the end and zero the gap.
+        int tailBytes = 2 * (words - gapAt);
+        System.arraycopy(bytes, 2 * gapAt, bytes, 16 - tailBytes, tailBytes);
+        Arrays.fill(bytes, 2 * gapAt, 16 - tailBytes, (byte) 0);
+        return bytes;
+    }
+
+    /** Parses a dotted quad into the low 32 bits of the result, or returns -1. */
+    private static long parseV4(CharSequence ip, int from, int to) {
+        long address = 0;
+        int octets = 0;
+        int i = from;
+        while (i < to) {
+            int octetStart = i;
+            int octet = 0;
+            while (i < to && ip.charAt(i) != '.') {
+                char c = ip.charAt(i);
+                if (c < '0' || c > '9' || i - octetStart == 3) {
+                    return -1;
+                }
+                octet = octet * 10 + (c - '0');
+                i++;
+            }
+            if (i == octetStart || octet > 255 || ++octets > 4) {
+                return -1;
+            }
+            address = (address << 8) | octet;
+            if (i < to && ++i == to) {
+                return -1;
+            }
+        }
+        return octets == 4 ? address : -1;
+    }
+
+    private static int compare128(long highA, long lowA, long highB, long lowB) {
+        int high = Long.compareUnsigned(highA, highB);
+        return high != 0 ? high : Long.compareUnsigned(lowA, lowB);
+    }
+
+    private static int countryIndex(char first, char second) {
+        return (first - 'A') * 26 + (second - 'A') + 1;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static String unquote(String field) {
+        String trimmed = field.trim();
+        return trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")
+                ? trimmed.substring(1, trimmed.length() - 1)
+                : trimmed;
+    }
+
+    private static InetAddress parseLiteral(String literal, long lineNumber) {
+        byte[] address = toBytes(literal);
+        if (address == null) {
+            throw new IllegalArgumentException("Not an IP address on line " + lineNumber + ": " + literal);
+        }
+        try {
+            return InetAddress.getByAddress(address);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Not an IP address on line " + lineNumber + ": " + literal, e);
+        }
+    }
+
+    private static int size(int v4Count, int v6Count) {
+        return HEADER_BYTES + v4Count * (4 + 4 + 2) + v6Count * (16 + 16 + 2);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        return buffer.duplicate().position(offset).limit(offset + length).slice().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static ByteBuffer layout(RangeBuilder v4, RangeBuilder v6, ByteBuffer target) {
+        target.putInt(MAGIC).putInt(VERSION).putInt(v4.count).putInt(v6.count);
+        for (int i = 0; i < v4.count; i++) {
+            target.putInt((int) v4.startLow[i]);
+        }
+        for (int i = 0; i < v4.count; i++) {
+            target.putInt((int) v4.endLow[i]);
+        }
+        for (int i = 0; i < v6.count; i++) {
+            target.putLong(v6.startHigh[i]).putLong(v6.startLow[i]);
+        }
+        for (int i = 0; i < v6.count; i++) {
+            target.putLong(v6.endHigh[i]).putLong(v6.endLow[i]);
+        }
+        for (int i = 0; i < v4.count; i++) {
+            target.putShort(v4.countries[i]);
+        }
+        for (int i = 0; i < v6.count; i++) {
+            target.putShort(v6.countries[i]);
+        }
+        return target.flip();
+    }
+
+    /** Growable on-heap staging arrays, only used while building from CSV. */
+    private static final class RangeBuilder {
+        private long[] startHigh = new long[1024];
+        private long[] startLow = new long[1024];
+        private long[] endHigh = new long[1024];
+        private long[] endLow = new long[1024];
+        private short[] countries = new short[1024];
+        private int count;
+
+        void add(byte[] start, byte[] end, short country, long lineNumber) {
+            long sHigh = start.length == 16 ? toLong(start, 0) : 0;
+            long sLow = start.length == 16 ? toLong(start, 8) : toLong(start, 0) & 0xffffffffL;
+            long eHigh = end.length == 16 ? toLong(end, 0) : 0;
+            long eLow = end.length == 16 ? toLong(end, 8) : toLong(end, 0) & 0xffffffffL;
+            if (compare128(sHigh, sLow, eHigh, eLow) > 0) {
+                throw new IllegalArgumentException("Range start after end on line " + lineNumber);
+            }
+            if (count > 0 && compare128(endHigh[count - 1], endLow[count - 1], sHigh, sLow) >= 0) {
+                throw new IllegalArgumentException("Ranges not sorted or overlapping on line " + lineNumber);
+            }
+            if (count == countries.length) {
+                int capacity = count * 2;
+                startHigh = Arrays.copyOf(startHigh, capacity);
+                startLow = Arrays.copyOf(startLow, capacity);
+                endHigh = Arrays.copyOf(endHigh, capacity);
+                endLow = Arrays.copyOf(endLow, capacity);
+                countries = Arrays.copyOf(countries, capacity);
+            }
+            startHigh[count] = sHigh;
+            startLow[count] = sLow;
+            endHigh[count] = eHigh;
+            endLow[count] = eLow;
+            countries[count] = country;
+            count++;
+        }
+
+        private static long toLong(byte[] bytes, int offset) {
+            long value = 0;
+            for (int i = offset; i < Math.min(offset + 8, bytes.length); i++) {
+                value = (value << 8) | (bytes[i] & 0xff);
+            }
+            return value;
+        }
+    }
+}
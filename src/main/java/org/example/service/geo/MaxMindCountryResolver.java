@@ -0,0 +1,109 @@
+package org.example.service.geo;
+
+import com.maxmind.db.CHMCache;
+import com.maxmind.db.Reader;
+import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
+import com.maxmind.geoip2.model.CountryResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves countries from a local MaxMind Country database mapped into memory, so a lookup is a
+ * few page reads instead of an HTTP call. The file is reopened when its modification time changes;
+ * replace it with an atomic rename so the mapping being read is never truncated underneath.
+ * Addresses the database does not know, and every lookup while no database is loaded, go to
+ * {@link GeoIpService}.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "geoip.resolver", havingValue = "mmdb")
+public class MaxMindCountryResolver implements CountryResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaxMindCountryResolver.class);
+
+    private final GeoIpService fallback;
+    private final Path databasePath;
+
+    private volatile DatabaseReader reader;
+    private volatile FileTime loadedModifiedTime;
+
+    public MaxMindCountryResolver(
+            GeoIpService fallback,
+            @Value("${geoip.mmdb.path}") String databasePath
+    ) {
+        this.fallback = fallback;
+        this.databasePath = Path.of(databasePath);
+        reloadIfChanged();
+    }
+
+    @Override
+    public String getCountry(String ipAddress) {
+        String country = lookupLocally(ipAddress);
+        return country != null ? country : fallback.getCountry(ipAddress);
+    }
+
+    @Override
+    public CompletableFuture<String> getCountryAsync(String ipAddress) {
+        String country = lookupLocally(ipAddress);
+        return country != null ? CompletableFuture.completedFuture(country) : fallback.getCountryAsync(ipAddress);
+    }
+
+    private String lookupLocally(String ipAddress) {
+        DatabaseReader current = reader;
+        // Parsed here rather than by InetAddress.getByName, which would resolve anything else as a host name.
+        byte[] address = current == null ? null : IpRangeIndex.toBytes(ipAddress);
+        if (address == null) {
+            return null;
+        }
+        try {
+            Optional<CountryResponse> response = current.tryCountry(InetAddress.getByAddress(address));
+            return response.map(r -> r.getCountry().getIsoCode()).orElse(null);
+        } catch (IOException | GeoIp2Exception e) {
+            logger.warn("GeoIP database lookup failed for {}, falling back to HTTP: {}", ipAddress, e.getMessage());
+            return null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${geoip.mmdb.reload-interval-ms:60000}")
+    public void reloadIfChanged() {
+        FileTime modifiedTime;
+        try {
+            modifiedTime = Files.getLastModifiedTime(databasePath);
+        } catch (IOException e) {
+            if (reader == null) {
+                logger.warn("GeoIP database {} not readable, using HTTP lookups: {}", databasePath, e.getMessage());
+            }
+            return;
+        }
+        if (modifiedTime.equals(loadedModifiedTime)) {
+            return;
+        }
+        try {
+            reader = new DatabaseReader.Builder(databasePath.toFile())
+                    .fileMode(Reader.FileMode.MEMORY_MAPPED)
+                    .withCache(new CHMCache())
+                    .build();
+            loadedModifiedTime = modifiedTime;
+            logger.info("Loaded GeoIP database {} ({})", databasePath, modifiedTime);
+        } catch (IOException e) {
+            // Keep serving from the previous mapping; the next run retries.
+            logger.error("Failed to load GeoIP database {}: {}", databasePath, e.getMessage());
+        }
+        // The previous reader is not closed: lookups still running on it would fail, and the mapping
+        // is released once they drop their reference.
+    }
+}
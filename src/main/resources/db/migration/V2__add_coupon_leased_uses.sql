@@ -0,0 +1,3 @@
+-- Budget handed out to application nodes for hot-coupon redemption but not yet flushed into current_uses.
+-- Every path that checks the limit has to count it as spent: current_uses + leased_uses <= max_uses.
+ALTER TABLE coupons ADD COLUMN leased_uses INTEGER NOT NULL DEFAULT 0;
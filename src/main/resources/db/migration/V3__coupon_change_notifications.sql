@@ -0,0 +1,53 @@
+-- Publishes coupon metadata changes on the coupon_changed channel so every node can invalidate its
+-- in-memory catalog. Payload: an operation character followed by newline-separated upper-cased codes;
+-- '+' inserted, '~' code, country or max_uses updated, '-' deleted. Counter updates are not published.
+
+CREATE FUNCTION notify_coupons_inserted() RETURNS trigger AS $$
+DECLARE
+    batch TEXT := '';
+    inserted_code TEXT;
+BEGIN
+    -- One notification per ~8 KB of codes: NOTIFY payloads are capped at 8000 bytes.
+    FOR inserted_code IN SELECT UPPER(code) FROM inserted LOOP
+        IF octet_length(batch) + octet_length(inserted_code) + 2 > 7900 THEN
+            PERFORM pg_notify('coupon_changed', '+' || batch);
+            batch := '';
+        END IF;
+        batch := batch || CASE WHEN batch = '' THEN '' ELSE E'\n' END || inserted_code;
+    END LOOP;
+    IF batch <> '' THEN
+        PERFORM pg_notify('coupon_changed', '+' || batch);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER coupons_inserted_notify
+    AFTER INSERT ON coupons
+    REFERENCING NEW TABLE AS inserted
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_coupons_inserted();
+
+CREATE FUNCTION notify_coupon_changed() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM pg_notify('coupon_changed', '-' || UPPER(OLD.code));
+    ELSIF UPPER(OLD.code) <> UPPER(NEW.code) THEN
+        PERFORM pg_notify('coupon_changed', '~' || UPPER(OLD.code) || E'\n' || UPPER(NEW.code));
+    ELSE
+        PERFORM pg_notify('coupon_changed', '~' || UPPER(NEW.code));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER coupons_updated_notify
+    AFTER UPDATE OF code, country, max_uses ON coupons
+    FOR EACH ROW
+    WHEN (OLD.code IS DISTINCT FROM NEW.code
+          OR OLD.country IS DISTINCT FROM NEW.country
+          OR OLD.max_uses IS DISTINCT FROM NEW.max_uses)
+    EXECUTE FUNCTION notify_coupon_changed();
+
+CREATE TRIGGER coupons_deleted_notify
+    AFTER DELETE ON coupons
+    FOR EACH ROW EXECUTE FUNCTION notify_coupon_changed();
@@ -0,0 +1,21 @@
+-- Publishes the username of every user whose username, password or role changed, or who was deleted,
+-- on the user_changed channel so every node can evict it from its UserDetails cache.
+
+CREATE FUNCTION notify_user_changed() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('user_changed', OLD.username);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_updated_notify
+    AFTER UPDATE OF username, password, role ON users
+    FOR EACH ROW
+    WHEN (OLD.username IS DISTINCT FROM NEW.username
+          OR OLD.password IS DISTINCT FROM NEW.password
+          OR OLD.role IS DISTINCT FROM NEW.role)
+    EXECUTE FUNCTION notify_user_changed();
+
+CREATE TRIGGER users_deleted_notify
+    AFTER DELETE ON users
+    FOR EACH ROW EXECUTE FUNCTION notify_user_changed();
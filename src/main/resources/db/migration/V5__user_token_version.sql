@@ -0,0 +1,29 @@
+-- Tokens carry the token_version they were issued with; stateless JWT authentication rejects tokens
+-- whose version is no longer current. Changing the password or role revokes all of a user's tokens,
+-- and so does bumping the column by hand.
+
+ALTER TABLE users ADD COLUMN token_version INTEGER NOT NULL DEFAULT 0;
+
+CREATE FUNCTION bump_user_token_version() RETURNS trigger AS $$
+BEGIN
+    NEW.token_version := OLD.token_version + 1;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_token_version_bump
+    BEFORE UPDATE OF password, role ON users
+    FOR EACH ROW
+    WHEN (OLD.password IS DISTINCT FROM NEW.password OR OLD.role IS DISTINCT FROM NEW.role)
+    EXECUTE FUNCTION bump_user_token_version();
+
+DROP TRIGGER users_updated_notify ON users;
+
+CREATE TRIGGER users_updated_notify
+    AFTER UPDATE OF username, password, role, token_version ON users
+    FOR EACH ROW
+    WHEN (OLD.username IS DISTINCT FROM NEW.username
+          OR OLD.password IS DISTINCT FROM NEW.password
+          OR OLD.role IS DISTINCT FROM NEW.role
+          OR OLD.token_version IS DISTINCT FROM NEW.token_version)
+    EXECUTE FUNCTION notify_user_changed();
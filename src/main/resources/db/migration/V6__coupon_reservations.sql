@@ -0,0 +1,12 @@
+-- Checkout reservations. A reservation holds one use of the coupon's budget in leased_uses, which every
+-- limit check already counts as spent, until it is confirmed into coupon_usages, released or expires.
+CREATE TABLE coupon_reservations (
+    id UUID PRIMARY KEY,
+    coupon_id BIGINT NOT NULL REFERENCES coupons(id),
+    user_id VARCHAR(100) NOT NULL,
+    expires_at TIMESTAMPTZ NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_reservation_coupon_user UNIQUE (coupon_id, user_id)
+);
+
+CREATE INDEX idx_coupon_reservations_expires_at ON coupon_reservations (expires_at);
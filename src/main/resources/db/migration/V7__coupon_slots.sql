@@ -0,0 +1,17 @@
+-- Redemption slots for coupon.redemption.mode=SLOTS. A slotted coupon's remaining budget is split into
+-- at most coupon.slots.count rows of ceil(budget / count) uses, and moved into coupons.leased_uses, so
+-- every other path treats it as spent. Redeemers claim any free slot with FOR UPDATE SKIP LOCKED instead
+-- of queueing on the coupon row. capacity - remaining is what has been used but not yet rolled up into
+-- current_uses.
+CREATE TABLE coupon_slots (
+    coupon_id BIGINT NOT NULL REFERENCES coupons(id),
+    slot INTEGER NOT NULL,
+    capacity INTEGER NOT NULL,
+    remaining INTEGER NOT NULL,
+    PRIMARY KEY (coupon_id, slot),
+    CONSTRAINT ck_coupon_slots_remaining CHECK (remaining BETWEEN 0 AND capacity)
+);
+
+CREATE INDEX idx_coupon_slots_free ON coupon_slots (coupon_id, slot) WHERE remaining > 0;
+
+CREATE INDEX idx_coupon_slots_unsettled ON coupon_slots (coupon_id) WHERE capacity > remaining;
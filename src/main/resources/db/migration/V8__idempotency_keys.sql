@@ -0,0 +1,17 @@
+-- Results of redemptions made with an Idempotency-Key header, so that a retried request is answered with
+-- the original response instead of redeeming again. Keys are scoped to the user and deleted once expired.
+-- Keys are claimed before redeeming: a pending row carries only the requested code and a short expires_at,
+-- and gets the response columns once the redemption has committed.
+CREATE TABLE idempotency_keys (
+    user_id VARCHAR(100) NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    code VARCHAR(50) NOT NULL,
+    current_uses INTEGER,
+    max_uses INTEGER,
+    country CHAR(2),
+    coupon_created_at TIMESTAMPTZ,
+    expires_at TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,31 @@
+-- Write-behind of coupon usages. With coupon.usage.outbox.enabled, LOCKING redemptions record the usage here
+-- and a background flusher copies pending rows into coupon_usages in large batches. Flushed rows are kept
+-- for coupon.usage.outbox.retention-ms, so that every prior-use check can read both tables in one statement
+-- and never miss a usage while it moves; uq_outbox_coupon_user rejects a second redemption meanwhile.
+-- The table is also the redemption event stream: consumers read it in id order from their cursor in
+-- redemption_outbox_consumers, and rows are purged only once every consumer is past them.
+CREATE TABLE redemption_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    coupon_id BIGINT NOT NULL REFERENCES coupons(id),
+    user_id VARCHAR(100) NOT NULL,
+    used_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    flushed_at TIMESTAMPTZ,
+    CONSTRAINT uq_outbox_coupon_user UNIQUE (coupon_id, user_id)
+);
+
+CREATE INDEX idx_redemption_outbox_pending ON redemption_outbox (id) WHERE flushed_at IS NULL;
+
+CREATE INDEX idx_redemption_outbox_flushed_at ON redemption_outbox (flushed_at) WHERE flushed_at IS NOT NULL;
+
+CREATE TABLE redemption_outbox_consumers (
+    name VARCHAR(100) PRIMARY KEY,
+    last_id BIGINT NOT NULL DEFAULT 0,
+    acknowledged_at TIMESTAMPTZ
+);
+
+-- Coupon and CouponUsage take ids from these sequences in blocks of 50 (Hibernate's pooled optimizer),
+-- so their inserts can be JDBC-batched. Plain INSERTs keep using the column defaults: for each nextval n
+-- it fetches, Hibernate's pooled optimizer hands out n-49..n. The only value in that block the sequence
+-- ever returns is n itself, fetched by Hibernate, so no other nextval falls into it and they cannot collide.
+ALTER SEQUENCE coupons_id_seq INCREMENT BY 50;
+ALTER SEQUENCE coupon_usages_id_seq INCREMENT BY 50;
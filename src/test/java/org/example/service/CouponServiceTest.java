@@ -11,15 +11,25 @@ import org.example.exception.api.CouponUseLimitExceededException;
 import org.example.repository.CouponRepository;
 import org.example.repository.CouponUsageRepository;
 import org.example.service.coupon.CouponServiceImpl;
+import org.example.service.coupon.RedemptionMetrics;
+import org.example.service.coupon.catalog.CouponCatalog;
+import org.example.service.coupon.outbox.RedemptionOutbox;
+import org.example.service.coupon.redemption.LockingRedemptionStrategy;
+import org.example.service.coupon.redemption.RedemptionStrategy;
+import org.example.service.coupon.usage.CouponUsageFilter;
 import org.example.service.geo.CountryResolver;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.AdditionalAnswers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -40,9 +50,36 @@ class CouponServiceTest {
     @Mock
     private org.example.service.coupon.CouponMapper couponMapper;
 
+    @Mock
+    private CouponCatalog couponCatalog;
+
+    @Mock
+    private CouponUsageFilter couponUsageFilter;
+
+    @Mock
+    private RedemptionMetrics redemptionMetrics;
+
+    @Mock
+    private RedemptionOutbox redemptionOutbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private RedemptionStrategy redemptionStrategy;
+
+    @InjectMocks
+    private LockingRedemptionStrategy lockingRedemption;
+
     @InjectMocks
     private CouponServiceImpl couponService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(redemptionStrategy.redeem(any(), any(), any())).then(AdditionalAnswers.delegatesTo(lockingRedemption));
+        lenient().when(redemptionStrategy.spendsFromCouponRow()).thenReturn(true);
+    }
+
     @Test
     void shouldUseCouponSuccessfullyWhenAllConditionsMet() {
         Coupon coupon = Coupon.builder()
@@ -56,7 +93,7 @@ class CouponServiceTest {
         UseCouponRequest request = new UseCouponRequest("TEST", "1.2.3.4", "user123");
 
         when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
-        when(countryResolver.getCountry("1.2.3.4")).thenReturn("PL");
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
         when(couponUsageRepository.existsByCouponAndUserId(coupon, "user123")).thenReturn(false);
         when(couponRepository.save(any(Coupon.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(couponUsageRepository.save(any(CouponUsage.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -80,7 +117,7 @@ class CouponServiceTest {
         assertEquals("PL", response.getCountry());
 
         verify(couponRepository).findByCodeIgnoreCaseForUpdate("TEST");
-        verify(countryResolver).getCountry("1.2.3.4");
+        verify(countryResolver).getCountryAsync("1.2.3.4");
         verify(couponUsageRepository).existsByCouponAndUserId(coupon, "user123");
         verify(couponRepository).save(argThat(c -> c.getCurrentUses() == 1));
         verify(couponUsageRepository).save(any(CouponUsage.class));
@@ -96,6 +133,8 @@ class CouponServiceTest {
                 () -> couponService.useCoupon(request));
         assertEquals("Coupon not found: INVALID", ex.getMessage());
 
+        // The lookup is started up front but never awaited.
+        verify(countryResolver).getCountryAsync("1.2.3.4");
         verify(couponRepository).findByCodeIgnoreCaseForUpdate("INVALID");
         verifyNoMoreInteractions(countryResolver, couponUsageRepository, couponRepository);
     }
@@ -118,6 +157,8 @@ class CouponServiceTest {
                 () -> couponService.useCoupon(request));
         assertEquals("Coupon use limit exceeded for: TEST", ex.getMessage());
 
+        // The lookup is started up front but never awaited.
+        verify(countryResolver).getCountryAsync("1.2.3.4");
         verify(couponRepository).findByCodeIgnoreCaseForUpdate("TEST");
         verifyNoMoreInteractions(countryResolver, couponUsageRepository, couponRepository);
     }
@@ -134,7 +175,7 @@ class CouponServiceTest {
         UseCouponRequest request = new UseCouponRequest("TEST", "1.2.3.4", "user123");
 
         when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
-        when(countryResolver.getCountry("1.2.3.4")).thenReturn("PL");
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
         when(couponUsageRepository.existsByCouponAndUserId(coupon, "user123")).thenReturn(true);
 
         CouponAlreadyUsedByUserException ex = assertThrows(
@@ -143,7 +184,7 @@ class CouponServiceTest {
         assertEquals("User user123 has already used coupon: TEST", ex.getMessage());
 
         verify(couponRepository).findByCodeIgnoreCaseForUpdate("TEST");
-        verify(countryResolver).getCountry("1.2.3.4");
+        verify(countryResolver).getCountryAsync("1.2.3.4");
         verify(couponUsageRepository).existsByCouponAndUserId(coupon, "user123");
         verifyNoMoreInteractions(couponRepository, countryResolver, couponUsageRepository);
     }
@@ -160,7 +201,7 @@ class CouponServiceTest {
         UseCouponRequest request = new UseCouponRequest("TEST", "1.2.3.4", "user123");
 
         when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
-        when(countryResolver.getCountry("1.2.3.4")).thenReturn("US");
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("US"));
 
         CouponCountryNotAllowedException ex = assertThrows(
                 CouponCountryNotAllowedException.class,
@@ -168,7 +209,7 @@ class CouponServiceTest {
         assertEquals("Coupon 'TEST' not valid in country: US", ex.getMessage());
 
         verify(couponRepository).findByCodeIgnoreCaseForUpdate("TEST");
-        verify(countryResolver).getCountry("1.2.3.4");
+        verify(countryResolver).getCountryAsync("1.2.3.4");
         verifyNoMoreInteractions(couponRepository, countryResolver, couponUsageRepository);
     }
 }
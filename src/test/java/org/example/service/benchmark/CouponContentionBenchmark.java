@@ -0,0 +1,232 @@
+package org.example.service.benchmark;
+
+import org.example.api.v1.model.request.CreateCouponRequest;
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.service.coupon.CouponService;
+import org.example.service.coupon.hot.HotCouponBudget;
+import org.example.service.geo.GeoIpService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Closed-loop contention benchmark for {@link CouponService#useCoupon} against a real Postgres: 1, 8,
+ * 64 and 512 threads redeem either one coupon or spread over many. Each coupon allows half of the
+ * requests aimed at it, so both the success and the limit-exceeded paths are exercised. Reports
+ * throughput, p50/p99/p99.9 latency and lock wait, sampled from {@code pg_stat_activity}, and checks
+ * that no coupon is oversold. Run with {@code ./gradlew benchmark}, optionally with
+ * {@code -Dcoupon.redemption.mode=ATOMIC} or {@code HOT}.
+ */
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest
+class CouponContentionBenchmark {
+
+    private static final int[] THREADS = {1, 8, 64, 512};
+    private static final int REQUESTS = 4_000;
+    private static final int MANY_COUPONS = 100;
+    private static final long LOCK_SAMPLE_MILLIS = 5;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("logging.level.org.example", () -> "WARN");
+    }
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private CouponService couponService;
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private HotCouponBudget hotCouponBudget;
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SuppressWarnings("unused")
+    @MockBean
+    private GeoIpService geoIpService;
+
+    @BeforeEach
+    void setUp() {
+        when(geoIpService.getCountry(anyString())).thenReturn("PL");
+        when(geoIpService.getCountryAsync(anyString())).thenReturn(CompletableFuture.completedFuture("PL"));
+    }
+
+    @Test
+    void oneCouponVersusManyCoupons() throws Exception {
+        System.out.printf("%-7s %7s %12s %9s %9s %9s %14s%n",
+                "coupons", "threads", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "lock wait ms");
+        for (int coupons : new int[]{1, MANY_COUPONS}) {
+            for (int threads : THREADS) {
+                run(coupons, threads);
+            }
+        }
+    }
+
+    private void run(int coupons, int threads) throws Exception {
+        String prefix = "BENCH" + coupons + "X" + threads + "X";
+        int maxUses = REQUESTS / coupons / 2;
+        for (int i = 0; i < coupons; i++) {
+            CreateCouponRequest request = new CreateCouponRequest();
+            request.setCode(prefix + i);
+            request.setMaxUses(maxUses);
+            request.setCountry("PL");
+            couponService.createCoupon(request);
+        }
+
+        long[] latencies = new long[REQUESTS];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger redeemed = new AtomicInteger();
+        AtomicInteger unexpected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long elapsed;
+        long lockWaitMillis;
+        try (LockWaitSampler sampler = new LockWaitSampler()) {
+            long started = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < REQUESTS) {
+                        UseCouponRequest request = new UseCouponRequest(prefix + (i % coupons), "1.2.3.4", "user" + i);
+                        long begin = System.nanoTime();
+                        try {
+                            couponService.useCoupon(request);
+                            redeemed.incrementAndGet();
+                        } catch (CouponUseLimitExceededException expected) {
+                            // Half of the requests run into the limit by design.
+                        } catch (RuntimeException e) {
+                            unexpected.incrementAndGet();
+                        } finally {
+                            latencies[i] = System.nanoTime() - begin;
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+            elapsed = System.nanoTime() - started;
+            lockWaitMillis = sampler.stop();
+        }
+        hotCouponBudget.flush();
+
+        Arrays.sort(latencies);
+        System.out.printf("%-7d %7d %12.0f %9.2f %9.2f %9.2f %14d%n", coupons, threads,
+                REQUESTS * 1e9 / elapsed, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), lockWaitMillis);
+
+        assertThat(unexpected.get()).isZero();
+        assertThat(redeemed.get()).isEqualTo(coupons * maxUses);
+        verifyNotOversold(prefix, coupons, maxUses);
+    }
+
+    private void verifyNotOversold(String prefix, int coupons, int maxUses) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                SELECT c.code, c.current_uses, c.leased_uses, c.max_uses,
+                       (SELECT count(*) FROM coupon_usages u WHERE u.coupon_id = c.id) AS usages
+                  FROM coupons c
+                 WHERE c.code LIKE ?
+                """, prefix + "%");
+        assertThat(rows).hasSize(coupons);
+        for (Map<String, Object> row : rows) {
+            int currentUses = ((Number) row.get("current_uses")).intValue();
+            long usages = ((Number) row.get("usages")).longValue();
+            assertThat(currentUses).as("current_uses of %s", row.get("code")).isLessThanOrEqualTo(maxUses);
+            assertThat(usages).as("coupon_usages of %s", row.get("code")).isEqualTo(currentUses);
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.ceil(sorted.length * quantile) - 1] / 1e6;
+    }
+
+    /**
+     * Adds up, on its own connection, how long sessions of this database spent waiting on heavyweight
+     * locks (row locks included), by sampling {@code pg_stat_activity}.
+     */
+    private static final class LockWaitSampler implements AutoCloseable {
+
+        private static final String WAITING_SQL = "SELECT count(*) FROM pg_stat_activity "
+                + "WHERE datname = current_database() AND wait_event_type = 'Lock'";
+
+        private final Connection connection;
+        private final Thread thread;
+        private volatile boolean running = true;
+        private long waitNanos;
+
+        LockWaitSampler() throws SQLException {
+            connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+            thread = new Thread(this::sample, "lock-wait-sampler");
+            thread.start();
+        }
+
+        private void sample() {
+            long total = 0;
+            try (Statement statement = connection.createStatement()) {
+                long last = System.nanoTime();
+                while (running) {
+                    try (ResultSet rs = statement.executeQuery(WAITING_SQL)) {
+                        rs.next();
+                        long now = System.nanoTime();
+                        total += rs.getLong(1) * (now - last);
+                        last = now;
+                    }
+                    Thread.sleep(LOCK_SAMPLE_MILLIS);
+                }
+            } catch (SQLException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                waitNanos = total;
+            }
+        }
+
+        /** Lock wait summed over all sessions, in milliseconds. */
+        long stop() throws InterruptedException {
+            running = false;
+            thread.join();
+            return waitNanos / 1_000_000;
+        }
+
+        @Override
+        public void close() throws Exception {
+            running = false;
+            thread.join();
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.service.benchmark;
+
+import org.example.config.datasource.ConnectionLimitingDataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the two thread modes on a redemption-shaped workload: a GeoIP wait that holds no
+ * connection, then a short transaction on a 10-connection pool. Platform mode is Tomcat's default
+ * 200 workers in front of the pool; virtual mode is a thread per request in front of
+ * {@link ConnectionLimitingDataSource}. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class ThreadModeBenchmark {
+
+    private static final int POOL_SIZE = 10;
+    private static final int PLATFORM_WORKERS = 200;
+    private static final int REQUESTS = 20_000;
+    private static final long GEOIP_MILLIS = 20;
+    private static final long TRANSACTION_MILLIS = 1;
+
+    @Test
+    void platformThreadsVersusVirtualThreads() throws Exception {
+        ExecutorService platform = Executors.newFixedThreadPool(PLATFORM_WORKERS);
+        try {
+            report("platform", run(platform, new SimulatedPool(POOL_SIZE)));
+        } finally {
+            platform.shutdownNow();
+        }
+
+        DataSource limited = new ConnectionLimitingDataSource(new SimulatedPool(POOL_SIZE), POOL_SIZE, 30_000);
+        report("virtual", run(new VirtualThreadTaskExecutor("bench-"), limited));
+    }
+
+    private static Result run(Executor executor, DataSource dataSource) throws InterruptedException {
+        long[] latencies = new long[REQUESTS];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        long started = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            int request = i;
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(GEOIP_MILLIS);
+                    try (Connection ignored = dataSource.getConnection()) {
+                        Thread.sleep(TRANSACTION_MILLIS);
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    latencies[request] = System.nanoTime() - submitted;
+                    done.countDown();
+                }
+            });
+        }
+        assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+        long elapsed = System.nanoTime() - started;
+        assertThat(failures.get()).isZero();
+        Arrays.sort(latencies);
+        return new Result(REQUESTS * 1e9 / elapsed, latencies[(int) (REQUESTS * 0.99) - 1] / 1e6);
+    }
+
+    private static void report(String mode, Result result) {
+        System.out.printf("%-8s throughput %8.0f req/s   p99 %8.1f ms%n", mode, result.throughput, result.p99Millis);
+    }
+
+    private record Result(double throughput, double p99Millis) {
+    }
+
+    /** Stands in for Hikari: at most {@code size} connections, waiters block. */
+    private static final class SimulatedPool extends AbstractDataSource {
+        private final Semaphore connections;
+
+        SimulatedPool(int size) {
+            this.connections = new Semaphore(size);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            try {
+                connections.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException(e);
+            }
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close")) {
+                            connections.release();
+                        }
+                        return null;
+                    });
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.service.coupon;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.example.api.v1.model.request.CreateCouponRequest;
+import org.example.api.v1.model.response.BulkCreateCouponResponse;
+import org.example.api.v1.model.response.CouponImportResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponImportServiceImplTest {
+
+    @Mock
+    private CouponService couponService;
+
+    private final List<List<String>> batches = new ArrayList<>();
+
+    private CouponImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        importService = new CouponImportServiceImpl(couponService, validator, new ObjectMapper(), 2);
+        when(couponService.createCoupons(anyList())).thenAnswer(invocation -> {
+            List<CreateCouponRequest> requests = invocation.getArgument(0);
+            batches.add(requests.stream().map(CreateCouponRequest::getCode).toList());
+            return new BulkCreateCouponResponse(requests.size(), List.of());
+        });
+    }
+
+    @Test
+    void importCsv_SkipsHeaderAndReportsInvalidLines() {
+        String csv = """
+                code,maxUses,country
+                A1,10,PL
+
+                A2,x,PL
+                A3,5,PL
+                A4,5
+                A5,1,DE
+                """;
+
+        CouponImportResponse response = importService.importCsv(stream(csv));
+
+        assertEquals(5, response.getProcessed());
+        assertEquals(3, response.getCreated());
+        assertEquals(2, response.getRejected());
+        assertEquals(List.of(List.of("A1", "A3"), List.of("A5")), batches);
+        assertTrue(response.getErrors().get(0).startsWith("line 4:"));
+        assertTrue(response.getErrors().get(1).startsWith("line 6:"));
+    }
+
+    @Test
+    void importNdjson_ValidatesEachLine() {
+        String ndjson = """
+                {"code":"B1","maxUses":3,"country":"PL"}
+                {"code":"B2","maxUses":0,"country":"PL"}
+                not json
+                """;
+
+        CouponImportResponse response = importService.importNdjson(stream(ndjson));
+
+        assertEquals(3, response.getProcessed());
+        assertEquals(1, response.getCreated());
+        assertEquals(2, response.getRejected());
+        assertEquals("line 2: Max uses must be positive", response.getErrors().get(0));
+        assertEquals(List.of(List.of("B1")), batches);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.service.coupon;
+
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.api.v1.model.response.ReservationResponse;
+import org.example.entity.Coupon;
+import org.example.exception.api.CouponAlreadyReservedException;
+import org.example.exception.api.CouponAlreadyUsedByUserException;
+import org.example.exception.api.CouponReservationNotFoundException;
+import org.example.exception.api.CouponReservationUnsupportedException;
+import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.repository.CouponRepository;
+import org.example.repository.CouponReservation;
+import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.catalog.CouponCatalog;
+import org.example.service.coupon.redemption.RedemptionStrategy;
+import org.example.service.coupon.reservation.ReservationSweeper;
+import org.example.service.coupon.usage.CouponUsageFilter;
+import org.example.service.geo.CountryResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponServiceImplReservationTest {
+
+    private static final long TTL_MILLIS = 900_000;
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponUsageRepository couponUsageRepository;
+
+    @Mock
+    private CountryResolver countryResolver;
+
+    @Mock
+    private CouponMapper couponMapper;
+
+    @Mock
+    private CouponCatalog couponCatalog;
+
+    @Mock
+    private CouponUsageFilter couponUsageFilter;
+
+    @Mock
+    private RedemptionMetrics redemptionMetrics;
+
+    @Mock
+    private ReservationSweeper reservationSweeper;
+
+    @Mock
+    private RedemptionStrategy redemptionStrategy;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private CouponServiceImpl couponService;
+
+    private Coupon coupon;
+
+    private final Instant expiresAt = Instant.now().plusMillis(TTL_MILLIS);
+
+    @BeforeEach
+    void setUp() {
+        coupon = Coupon.builder()
+                .id(1L)
+                .code("TEST")
+                .maxUses(2)
+                .currentUses(0)
+                .leasedUses(1)
+                .country("PL")
+                .createdAt(Instant.now())
+                .build();
+        lenient().when(redemptionStrategy.spendsFromCouponRow()).thenReturn(true);
+        lenient().when(reservationSweeper.getTtlMillis()).thenReturn(TTL_MILLIS);
+        lenient().when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+    }
+
+    @Test
+    void reserveCoupon_SchedulesExpiry() {
+        when(couponRepository.reserve(any(UUID.class), eq("TEST"), eq("PL"), eq("user123"), eq(TTL_MILLIS)))
+                .thenAnswer(invocation -> Optional.of(
+                        new CouponReservation(invocation.getArgument(0), coupon, "user123", expiresAt, true)));
+
+        ReservationResponse response = couponService.reserveCoupon(new UseCouponRequest(" test ", "1.2.3.4", "user123"));
+
+        assertEquals("TEST", response.getCode());
+        assertEquals(expiresAt, response.getExpiresAt());
+        verify(reservationSweeper).schedule(response.getReservationId());
+        verify(redemptionMetrics).recordReservations("reserved", 1);
+    }
+
+    @Test
+    void reserveCoupon_ExplainsRejection() {
+        coupon.setLeasedUses(2);
+        when(couponRepository.reserve(any(UUID.class), eq("TEST"), eq("PL"), eq("user123"), anyLong()))
+                .thenReturn(Optional.empty());
+        when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.of(coupon));
+
+        assertThrows(CouponUseLimitExceededException.class,
+                () -> couponService.reserveCoupon(new UseCouponRequest("TEST", "1.2.3.4", "user123")));
+        verify(reservationSweeper, never()).schedule(any());
+    }
+
+    @Test
+    void reserveCoupon_ActiveReservationOfSameUserConflicts() {
+        when(couponRepository.reserve(any(UUID.class), eq("TEST"), eq("PL"), eq("user123"), anyLong()))
+                .thenAnswer(invocation -> Optional.of(
+                        new CouponReservation(invocation.getArgument(0), coupon, "user123", null, false)));
+        when(couponRepository.releaseExpiredReservation("TEST", "user123")).thenReturn(0);
+
+        assertThrows(CouponAlreadyReservedException.class,
+                () -> couponService.reserveCoupon(new UseCouponRequest("TEST", "1.2.3.4", "user123")));
+        verify(reservationSweeper, never()).schedule(any());
+    }
+
+    @Test
+    void reserveCoupon_ReplacesExpiredReservationOfSameUser() {
+        when(couponRepository.reserve(any(UUID.class), eq("TEST"), eq("PL"), eq("user123"), anyLong()))
+                .thenAnswer(invocation -> Optional.of(
+                        new CouponReservation(invocation.getArgument(0), coupon, "user123", null, false)))
+                .thenAnswer(invocation -> Optional.of(
+                        new CouponReservation(invocation.getArgument(0), coupon, "user123", expiresAt, true)));
+        when(couponRepository.releaseExpiredReservation("TEST", "user123")).thenReturn(1);
+
+        ReservationResponse response = couponService.reserveCoupon(new UseCouponRequest("TEST", "1.2.3.4", "user123"));
+
+        assertEquals(expiresAt, response.getExpiresAt());
+        verify(couponRepository, times(2)).reserve(any(UUID.class), eq("TEST"), eq("PL"), eq("user123"), anyLong());
+    }
+
+    @Test
+    void confirmReservation_RecordsUse() {
+        UUID id = UUID.randomUUID();
+        coupon.setCurrentUses(1);
+        coupon.setLeasedUses(0);
+        when(couponRepository.confirmReservation(id))
+                .thenReturn(Optional.of(new CouponReservation(id, coupon, "user123", expiresAt, true)));
+
+        couponService.confirmReservation(id);
+
+        verify(couponUsageFilter).recordUse(1L, "user123");
+        verify(couponMapper).toDto(coupon);
+        verify(redemptionMetrics).recordReservations("confirmed", 1);
+    }
+
+    @Test
+    void confirmReservation_ExpiredIsNotFound() {
+        UUID id = UUID.randomUUID();
+        when(couponRepository.confirmReservation(id)).thenReturn(Optional.empty());
+
+        assertThrows(CouponReservationNotFoundException.class, () -> couponService.confirmReservation(id));
+        verifyNoInteractions(couponUsageFilter);
+    }
+
+    @Test
+    void confirmReservation_AlreadyRedeemedReleasesReservation() {
+        UUID id = UUID.randomUUID();
+        when(couponRepository.confirmReservation(id))
+                .thenReturn(Optional.of(new CouponReservation(id, coupon, "user123", expiresAt, false)));
+        when(couponRepository.releaseReservations(List.of(id))).thenReturn(1);
+
+        assertThrows(CouponAlreadyUsedByUserException.class, () -> couponService.confirmReservation(id));
+        verify(couponRepository).releaseReservations(List.of(id));
+    }
+
+    @Test
+    void reserveCoupon_RejectedWhenBudgetIsNotOnCouponRow() {
+        when(redemptionStrategy.spendsFromCouponRow()).thenReturn(false);
+
+        assertThrows(CouponReservationUnsupportedException.class,
+                () -> couponService.reserveCoupon(new UseCouponRequest("TEST", "1.2.3.4", "user123")));
+        verify(couponRepository, never()).reserve(any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void confirmReservation_RejectedWhenBudgetIsNotOnCouponRow() {
+        when(redemptionStrategy.spendsFromCouponRow()).thenReturn(false);
+
+        assertThrows(CouponReservationUnsupportedException.class,
+                () -> couponService.confirmReservation(UUID.randomUUID()));
+        verify(couponRepository, never()).confirmReservation(any());
+    }
+
+    @Test
+    void releaseReservation_UnknownIsNotFound() {
+        UUID id = UUID.randomUUID();
+        when(couponRepository.releaseReservations(List.of(id))).thenReturn(0);
+
+        assertThrows(CouponReservationNotFoundException.class, () -> couponService.releaseReservation(id));
+    }
+}
@@ -2,6 +2,9 @@ package org.example.service.coupon;
 
 import org.example.api.v1.model.request.CreateCouponRequest;
 import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.api.v1.model.response.BatchRedeemItemResponse;
+import org.example.api.v1.model.response.BatchRedeemResponse;
+import org.example.api.v1.model.response.BulkCreateCouponResponse;
 import org.example.api.v1.model.response.CouponResponse;
 import org.example.entity.Coupon;
 import org.example.entity.CouponUsage;
@@ -10,17 +13,29 @@ import org.example.exception.api.CouponCodeAlreadyExistsException;
 import org.example.exception.api.CouponCountryNotAllowedException;
 import org.example.exception.api.CouponNotFoundException;
 import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.exception.api.GeoIpLookupException;
 import org.example.repository.CouponRepository;
 import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.catalog.CouponCatalog;
+import org.example.service.coupon.outbox.RedemptionOutbox;
+import org.example.service.coupon.redemption.LockingRedemptionStrategy;
+import org.example.service.coupon.redemption.RedemptionStrategy;
+import org.example.service.coupon.usage.CouponUsageFilter;
 import org.example.service.geo.CountryResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -41,6 +56,27 @@ class CouponServiceImplTest {
     @Mock
     private CouponMapper couponMapper;
 
+    @Mock
+    private CouponCatalog couponCatalog;
+
+    @Mock
+    private CouponUsageFilter couponUsageFilter;
+
+    @Mock
+    private RedemptionMetrics redemptionMetrics;
+
+    @Mock
+    private RedemptionOutbox redemptionOutbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private RedemptionStrategy redemptionStrategy;
+
+    @InjectMocks
+    private LockingRedemptionStrategy lockingRedemption;
+
     @InjectMocks
     private CouponServiceImpl couponService;
 
@@ -48,6 +84,8 @@ class CouponServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(redemptionStrategy.redeem(any(), any(), any())).then(AdditionalAnswers.delegatesTo(lockingRedemption));
+        lenient().when(redemptionStrategy.spendsFromCouponRow()).thenReturn(true);
         coupon = Coupon.builder()
                 .id(1L)
                 .code("TEST")
@@ -98,6 +136,7 @@ class CouponServiceImplTest {
                         c.getMaxUses() == 5 &&
                         c.getCountry().equals("PL")
         ));
+        verify(redemptionStrategy).onCreated(List.of("TEST"));
     }
 
     @Test
@@ -124,7 +163,7 @@ class CouponServiceImplTest {
         UseCouponRequest request = new UseCouponRequest("TEST", "1.2.3.4", "user123");
         when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST"))
                 .thenReturn(Optional.of(coupon));
-        when(countryResolver.getCountry("1.2.3.4")).thenReturn("PL");
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
         when(couponUsageRepository.existsByCouponAndUserId(coupon, "user123"))
                 .thenReturn(false);
         when(couponRepository.save(any(Coupon.class)))
@@ -151,13 +190,71 @@ class CouponServiceImplTest {
         assertEquals("PL", response.getCountry());
 
         InOrder inOrder = inOrder(couponRepository, countryResolver, couponUsageRepository);
+        inOrder.verify(countryResolver).getCountryAsync("1.2.3.4");
         inOrder.verify(couponRepository).findByCodeIgnoreCaseForUpdate("TEST");
-        inOrder.verify(countryResolver).getCountry("1.2.3.4");
         inOrder.verify(couponUsageRepository).existsByCouponAndUserId(coupon, "user123");
         inOrder.verify(couponRepository).save(argThat(c -> c.getCurrentUses() == 1));
         inOrder.verify(couponUsageRepository).save(any(CouponUsage.class));
     }
 
+    @Test
+    void useCoupon_OutboxRecordsUsageInsteadOfInserting() {
+        UseCouponRequest request = new UseCouponRequest("TEST", "1.2.3.4", "user123");
+        when(redemptionOutbox.isEnabled()).thenReturn(true);
+        when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+        when(couponUsageRepository.enqueueIfAbsent(1L, "user123")).thenReturn(1);
+
+        couponService.useCoupon(request);
+
+        assertEquals(1, coupon.getCurrentUses());
+        verify(couponUsageRepository, never()).existsByCouponAndUserId(any(), any());
+        verify(couponUsageRepository, never()).save(any(CouponUsage.class));
+        verify(couponUsageFilter).recordUse(1L, "user123");
+    }
+
+    @Test
+    void useCoupon_OutboxRejectsSecondUse() {
+        UseCouponRequest request = new UseCouponRequest("TEST", "1.2.3.4", "user123");
+        when(redemptionOutbox.isEnabled()).thenReturn(true);
+        when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+        when(couponUsageRepository.enqueueIfAbsent(1L, "user123")).thenReturn(0);
+
+        assertThrows(CouponAlreadyUsedByUserException.class, () -> couponService.useCoupon(request));
+        verify(transactionManager).rollback(any());
+        verify(couponUsageFilter, never()).recordUse(anyLong(), any());
+    }
+
+    @Test
+    void useCoupon_UsageFilterMissSkipsAlreadyUsedQuery() {
+        UseCouponRequest request = new UseCouponRequest("TEST", "1.2.3.4", "user123");
+        when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+        when(couponUsageFilter.definitelyNotUsed(coupon, "user123")).thenReturn(true);
+        when(couponUsageRepository.insertIfAbsent(1L, "user123")).thenReturn(1);
+
+        couponService.useCoupon(request);
+
+        verify(couponUsageRepository, never()).existsByCouponAndUserId(any(), any());
+        verify(couponRepository).save(argThat(c -> c.getCurrentUses() == 1));
+        verify(couponUsageFilter).recordUse(1L, "user123");
+    }
+
+    @Test
+    void useCoupon_UsageFilterMissStillRejectedByConstraint() {
+        UseCouponRequest request = new UseCouponRequest("TEST", "1.2.3.4", "user123");
+        when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+        when(couponUsageFilter.definitelyNotUsed(coupon, "user123")).thenReturn(true);
+        when(couponUsageRepository.insertIfAbsent(1L, "user123")).thenReturn(0);
+
+        assertThrows(CouponAlreadyUsedByUserException.class, () -> couponService.useCoupon(request));
+
+        verify(couponUsageRepository, never()).existsByCouponAndUserId(any(), any());
+        verify(couponUsageFilter, never()).recordUse(anyLong(), any());
+    }
+
     @Test
     void useCoupon_ThrowsNotFound() {
         UseCouponRequest request = new UseCouponRequest("MISSING", "1.2.3.4", "user123");
@@ -170,6 +267,9 @@ class CouponServiceImplTest {
         );
         assertEquals("Coupon not found: MISSING", ex.getMessage());
 
+        verify(redemptionMetrics).recordRedemption(eq(ex.getErrorCode()), anyLong());
+        // The lookup is started up front but never awaited.
+        verify(countryResolver).getCountryAsync("1.2.3.4");
         verify(couponRepository).findByCodeIgnoreCaseForUpdate("MISSING");
         verifyNoMoreInteractions(countryResolver, couponUsageRepository, couponRepository);
     }
@@ -189,6 +289,9 @@ class CouponServiceImplTest {
         );
         assertEquals("Coupon use limit exceeded for: TEST", ex.getMessage());
 
+        verify(redemptionMetrics).recordRedemption(eq(ex.getErrorCode()), anyLong());
+        // The lookup is started up front but never awaited.
+        verify(countryResolver).getCountryAsync("1.2.3.4");
         verify(couponRepository).findByCodeIgnoreCaseForUpdate("TEST");
         verifyNoMoreInteractions(countryResolver, couponUsageRepository, couponRepository);
     }
@@ -197,7 +300,7 @@ class CouponServiceImplTest {
     void useCoupon_ThrowsAlreadyUsedBySameUser() {
         when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST"))
                 .thenReturn(Optional.of(coupon));
-        when(countryResolver.getCountry("1.2.3.4")).thenReturn("PL");
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
         when(couponUsageRepository.existsByCouponAndUserId(coupon, "user123"))
                 .thenReturn(true);
 
@@ -209,7 +312,7 @@ class CouponServiceImplTest {
         assertEquals("User user123 has already used coupon: TEST", ex.getMessage());
 
         verify(couponRepository).findByCodeIgnoreCaseForUpdate("TEST");
-        verify(countryResolver).getCountry("1.2.3.4");
+        verify(countryResolver).getCountryAsync("1.2.3.4");
         verify(couponUsageRepository).existsByCouponAndUserId(coupon, "user123");
         verifyNoMoreInteractions(couponRepository, countryResolver, couponUsageRepository);
     }
@@ -218,7 +321,7 @@ class CouponServiceImplTest {
     void useCoupon_ThrowsCountryNotAllowed() {
         when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST"))
                 .thenReturn(Optional.of(coupon));
-        when(countryResolver.getCountry("1.2.3.4")).thenReturn("US");
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("US"));
 
         UseCouponRequest request = new UseCouponRequest("TEST", "1.2.3.4", "user123");
         CouponCountryNotAllowedException ex = assertThrows(
@@ -228,7 +331,165 @@ class CouponServiceImplTest {
         assertEquals("Coupon 'TEST' not valid in country: US", ex.getMessage());
 
         verify(couponRepository).findByCodeIgnoreCaseForUpdate("TEST");
-        verify(countryResolver).getCountry("1.2.3.4");
+        verify(countryResolver).getCountryAsync("1.2.3.4");
         verifyNoMoreInteractions(couponRepository, countryResolver, couponUsageRepository);
     }
+
+    @Test
+    void useCoupons_LocksEachCouponOnceAndInsertsUsagesInOneBatch() {
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+        when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
+        when(couponUsageRepository.findUserIdsByCouponAndUserIdIn(eq(coupon), anyCollection()))
+                .thenReturn(List.of("user3"));
+        when(couponMapper.toDto(any(Coupon.class))).thenAnswer(invocation -> {
+            Coupon c = invocation.getArgument(0);
+            return new CouponResponse(c.getCode(), c.getCurrentUses(), c.getMaxUses(), c.getCreatedAt(), c.getCountry());
+        });
+
+        BatchRedeemResponse response = couponService.useCoupons(List.of(
+                new UseCouponRequest("test", "1.2.3.4", "user1"),
+                new UseCouponRequest("TEST", "1.2.3.4", "user3"),
+                new UseCouponRequest("TEST", "1.2.3.4", "user2"),
+                new UseCouponRequest("TEST", "1.2.3.4", "user4")
+        ));
+
+        List<BatchRedeemItemResponse> results = response.getResults();
+        assertTrue(results.get(0).isRedeemed());
+        assertEquals(1, results.get(0).getCoupon().getCurrentUses());
+        assertEquals("CouponAlreadyUsed", results.get(1).getErrorCode());
+        assertTrue(results.get(2).isRedeemed());
+        assertEquals(2, results.get(2).getCoupon().getCurrentUses());
+        assertEquals("CouponUseLimitExceeded", results.get(3).getErrorCode());
+
+        verify(countryResolver, times(1)).getCountryAsync("1.2.3.4");
+        verify(couponRepository, times(1)).findByCodeIgnoreCaseForUpdate("TEST");
+        verify(couponRepository).save(argThat(c -> c.getCurrentUses() == 2));
+        verify(couponUsageRepository).insertAll(argThat(usages -> usages.size() == 2));
+    }
+
+    @Test
+    void useCoupons_ReportsPerItemFailures() {
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+        when(countryResolver.getCountryAsync("2.2.2.2")).thenReturn(CompletableFuture.completedFuture("US"));
+        when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
+        when(couponRepository.findByCodeIgnoreCaseForUpdate("MISSING")).thenReturn(Optional.empty());
+        when(couponUsageRepository.findUserIdsByCouponAndUserIdIn(eq(coupon), anyCollection())).thenReturn(List.of());
+
+        BatchRedeemResponse response = couponService.useCoupons(List.of(
+                new UseCouponRequest("MISSING", "1.2.3.4", "user1"),
+                new UseCouponRequest("TEST", "2.2.2.2", "user2")
+        ));
+
+        assertEquals("CouponNotFound", response.getResults().get(0).getErrorCode());
+        assertEquals("CouponCountryNotAllowed", response.getResults().get(1).getErrorCode());
+        verify(couponRepository, never()).save(any());
+        verify(couponUsageRepository).insertAll(List.of());
+    }
+
+    @Test
+    void useCoupons_RejectsUsersStillPendingInOutboxWhileItIsOff() {
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+        when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
+        when(couponUsageRepository.findUserIdsByCouponAndUserIdIn(eq(coupon), anyCollection())).thenReturn(List.of());
+        when(couponUsageRepository.findEnqueuedUserIds(eq(1L), anyCollection())).thenReturn(List.of("user1"));
+
+        BatchRedeemResponse response = couponService.useCoupons(List.of(
+                new UseCouponRequest("TEST", "1.2.3.4", "user1")
+        ));
+
+        assertEquals("CouponAlreadyUsed", response.getResults().get(0).getErrorCode());
+        verify(couponRepository, never()).save(any());
+        verify(couponUsageRepository).insertAll(List.of());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void useCoupons_RedeemsItemByItemWhenBudgetIsNotOnCouponRow() {
+        when(redemptionStrategy.spendsFromCouponRow()).thenReturn(false);
+        when(countryResolver.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+        when(countryResolver.getCountryAsync("9.9.9.9"))
+                .thenReturn(CompletableFuture.failedFuture(new GeoIpLookupException("9.9.9.9")));
+        doAnswer(invocation -> {
+            UseCouponRequest request = invocation.getArgument(1);
+            assertEquals("PL", ((Supplier<String>) invocation.getArgument(2)).get());
+            if (request.getUserId().equals("user2")) {
+                throw new CouponUseLimitExceededException("TEST");
+            }
+            return coupon;
+        }).when(redemptionStrategy).redeem(eq("TEST"), any(), any());
+        when(couponMapper.toDto(any(Coupon.class))).thenAnswer(invocation -> {
+            Coupon c = invocation.getArgument(0);
+            return new CouponResponse(c.getCode(), c.getCurrentUses(), c.getMaxUses(), c.getCreatedAt(), c.getCountry());
+        });
+
+        BatchRedeemResponse response = couponService.useCoupons(List.of(
+                new UseCouponRequest("test", "1.2.3.4", "user1"),
+                new UseCouponRequest("TEST", "1.2.3.4", "user2"),
+                new UseCouponRequest("TEST", "9.9.9.9", "user3")
+        ));
+
+        List<BatchRedeemItemResponse> results = response.getResults();
+        assertTrue(results.get(0).isRedeemed());
+        assertEquals("TEST", results.get(0).getCoupon().getCode());
+        assertEquals("CouponUseLimitExceeded", results.get(1).getErrorCode());
+        assertEquals(new GeoIpLookupException("9.9.9.9").getErrorCode(), results.get(2).getErrorCode());
+        verify(redemptionStrategy, times(3)).redeem(eq("TEST"), any(), any());
+        verify(couponRepository, never()).findByCodeIgnoreCaseForUpdate(any());
+        verifyNoInteractions(couponUsageRepository, transactionManager);
+    }
+
+    @Test
+    void createCoupons_ReportsDuplicatesFromConflicts() {
+        when(couponRepository.insertIgnoringDuplicates(anyList())).thenReturn(new HashSet<>(Set.of("NEW1", "NEW2")));
+
+        BulkCreateCouponResponse response = couponService.createCoupons(List.of(
+                new CreateCouponRequest(" new1 ", 5, "pl"),
+                new CreateCouponRequest("EXISTING", 5, "PL"),
+                new CreateCouponRequest("new2", 1, "DE"),
+                new CreateCouponRequest("NEW1", 3, "PL")
+        ));
+
+        assertEquals(2, response.getCreated());
+        assertEquals(List.of("EXISTING", "NEW1"), response.getDuplicates());
+        ArgumentCaptor<List<Coupon>> captor = ArgumentCaptor.forClass(List.class);
+        verify(couponRepository).insertIgnoringDuplicates(captor.capture());
+        assertEquals("NEW1", captor.getValue().get(0).getCode());
+        assertEquals("PL", captor.getValue().get(0).getCountry());
+        verify(couponRepository, never()).existsByCodeIgnoreCase(any());
+        verify(redemptionStrategy).onCreated(argThat(codes -> Set.copyOf(codes).equals(Set.of("NEW1", "NEW2"))));
+    }
+
+    @Test
+    void useCoupon_RethrowsGeoIpFailureFromAsyncLookup() {
+        when(countryResolver.getCountryAsync("1.2.3.4"))
+                .thenReturn(CompletableFuture.failedFuture(new GeoIpLookupException("1.2.3.4")));
+        when(couponRepository.findByCodeIgnoreCaseForUpdate("TEST")).thenReturn(Optional.of(coupon));
+
+        assertThrows(GeoIpLookupException.class,
+                () -> couponService.useCoupon(new UseCouponRequest("TEST", "1.2.3.4", "user123")));
+        verify(couponRepository, never()).save(any());
+    }
+
+    @Test
+    void reconcileCoupon_ReturnsRebuiltCounters() {
+        coupon.setCurrentUses(2);
+        when(couponRepository.reconcileUses("TEST")).thenReturn(Optional.of(coupon));
+        CouponResponse response = new CouponResponse("TEST", 2, 2, coupon.getCreatedAt(), "PL");
+        when(couponMapper.toDto(coupon)).thenReturn(response);
+
+        assertSame(response, couponService.reconcileCoupon(" test "));
+        verify(couponRepository).reconcileUses("TEST");
+    }
+
+    @Test
+    void reconcileCoupon_ThrowsNotFound() {
+        when(couponRepository.reconcileUses("MISSING")).thenReturn(Optional.empty());
+
+        CouponNotFoundException ex = assertThrows(
+                CouponNotFoundException.class,
+                () -> couponService.reconcileCoupon("missing")
+        );
+        assertEquals("Coupon not found: MISSING", ex.getMessage());
+        verifyNoInteractions(couponMapper);
+    }
 }
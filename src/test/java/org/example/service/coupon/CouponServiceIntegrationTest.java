@@ -6,6 +6,9 @@ import org.example.api.v1.model.response.CouponResponse;
 import org.example.exception.api.CouponAlreadyUsedByUserException;
 import org.example.exception.api.CouponCountryNotAllowedException;
 import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.repository.OutboxEvent;
+import org.example.service.coupon.outbox.RedemptionEventStream;
+import org.example.service.coupon.outbox.RedemptionOutbox;
 import org.example.service.geo.GeoIpService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +19,8 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 
 import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -36,10 +41,20 @@ class CouponServiceIntegrationTest {
     @Autowired
     private DataSource dataSource;
 
+    @SuppressWarnings("unused")
+    @Autowired
+    private RedemptionEventStream redemptionEventStream;
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private RedemptionOutbox redemptionOutbox;
+
     @BeforeEach
     void setUp() {
         when(geoIpService.getCountry("1.2.3.4")).thenReturn("PL");
         when(geoIpService.getCountry("2.2.2.2")).thenReturn("US");
+        when(geoIpService.getCountryAsync("1.2.3.4")).thenReturn(CompletableFuture.completedFuture("PL"));
+        when(geoIpService.getCountryAsync("2.2.2.2")).thenReturn(CompletableFuture.completedFuture("US"));
     }
 
     @Test
@@ -134,4 +149,51 @@ class CouponServiceIntegrationTest {
                 () -> couponService.useCoupon(useReq));
         assertEquals("Coupon 'TEST5' not valid in country: US", ex.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void userStillPendingInOutbox_ThrowsAlreadyUsedWithOutboxOff() {
+        CreateCouponRequest createReq = new CreateCouponRequest();
+        createReq.setCode("TEST6");
+        createReq.setMaxUses(2);
+        createReq.setCountry("PL");
+        couponService.createCoupon(createReq);
+
+        // Left over from before the outbox was switched off and not drained yet.
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO redemption_outbox (coupon_id, user_id) SELECT id, ? FROM coupons WHERE code = ?",
+                "user123", "TEST6");
+
+        UseCouponRequest useReq = new UseCouponRequest("TEST6", "1.2.3.4", "user123");
+        assertThrows(CouponAlreadyUsedByUserException.class, () -> couponService.useCoupon(useReq));
+        Integer currentUses = jdbcTemplate.queryForObject(
+                "SELECT current_uses FROM coupons WHERE code = ?", Integer.class, "TEST6");
+        assertEquals(0, currentUses);
+    }
+
+    @Test
+    void redemptionEvents_ArePurgedOnlyOnceAcknowledged() {
+        CreateCouponRequest createReq = new CreateCouponRequest();
+        createReq.setCode("TEST7");
+        createReq.setMaxUses(2);
+        createReq.setCountry("PL");
+        couponService.createCoupon(createReq);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String userId : List.of("user1", "user2")) {
+            jdbcTemplate.update("INSERT INTO redemption_outbox (coupon_id, user_id, flushed_at) "
+                    + "SELECT id, ?, NOW() - INTERVAL '1 day' FROM coupons WHERE code = ?", userId, "TEST7");
+        }
+
+        List<OutboxEvent> events = redemptionEventStream.poll("billing", 10);
+        assertEquals(List.of("user1", "user2"), events.stream().map(OutboxEvent::getUserId).toList());
+
+        redemptionOutbox.purge();
+        assertEquals(2, redemptionEventStream.poll("billing", 10).size());
+
+        redemptionEventStream.acknowledge("billing", events.get(0).getId());
+        redemptionOutbox.purge();
+        Integer left = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM redemption_outbox", Integer.class);
+        assertEquals(1, left);
+        assertEquals(List.of("user2"), redemptionEventStream.poll("billing", 10).stream().map(OutboxEvent::getUserId).toList());
+    }
+}
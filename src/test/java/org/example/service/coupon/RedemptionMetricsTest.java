@@ -0,0 +1,46 @@
+package org.example.service.coupon;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedemptionMetricsTest {
+
+    private SimpleMeterRegistry registry;
+
+    private RedemptionMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new RedemptionMetrics(registry, RedemptionMode.LOCKING);
+    }
+
+    @Test
+    void recordRedemption_TagsModeAndOutcome() {
+        metrics.recordRedemption(RedemptionMetrics.SUCCESS, TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.recordRedemption("CouponNotFound", TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.recordRedemption("CouponNotFound", TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertThat(registry.get("coupon.redemption").tags("mode", "LOCKING", "outcome", "SUCCESS").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get("coupon.redemption").tag("outcome", "CouponNotFound").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void recordStage_SeparatesStagesAndGeoIpWaits() {
+        metrics.recordStage(RedemptionMetrics.Stage.LOCK, TimeUnit.MILLISECONDS.toNanos(30));
+        metrics.recordGeoIpWait(false, TimeUnit.MILLISECONDS.toNanos(80));
+        metrics.recordUsageCheck(true);
+
+        assertThat(registry.get("coupon.redemption.stage").tag("stage", "lock").timer().totalTime(TimeUnit.MILLISECONDS))
+                .isEqualTo(30);
+        assertThat(registry.get("coupon.redemption.stage").tag("stage", "insert").timer().count()).isZero();
+        assertThat(registry.get("coupon.redemption.geoip.wait").tag("resolved", "waited").timer().count()).isEqualTo(1);
+        assertThat(registry.get("coupon.redemption.usage.check").tag("result", "skipped").counter().count()).isEqualTo(1);
+    }
+}
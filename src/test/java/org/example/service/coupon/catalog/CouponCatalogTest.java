@@ -0,0 +1,140 @@
+package org.example.service.coupon.catalog;
+
+import org.example.entity.Coupon;
+import org.example.exception.api.CouponCountryNotAllowedException;
+import org.example.exception.api.CouponNotFoundException;
+import org.example.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponCatalogTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private Supplier<String> userCountry;
+
+    @Mock
+    private CouponCodeFilter codeFilter;
+
+    private CouponCatalog catalog;
+
+    private Coupon coupon;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(codeFilter.mightExist(anyString())).thenReturn(true);
+        catalog = new CouponCatalog(couponRepository, codeFilter, true, 100, 600_000, 10_000);
+        coupon = Coupon.builder().id(1L).code("TEST").maxUses(5).currentUses(0).country("PL").build();
+    }
+
+    @Test
+    void checkRedeemable_ReadsThroughOnce() {
+        when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.of(coupon));
+        when(userCountry.get()).thenReturn("PL");
+
+        catalog.checkRedeemable("TEST", userCountry);
+        catalog.checkRedeemable("TEST", userCountry);
+
+        verify(couponRepository, times(1)).findByCodeIgnoreCase("TEST");
+    }
+
+    @Test
+    void checkRedeemable_UnknownCodeRejectedWithoutAskingForCountry() {
+        when(couponRepository.findByCodeIgnoreCase("MISSING")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> catalog.checkRedeemable("MISSING", userCountry))
+                .isInstanceOf(CouponNotFoundException.class);
+        assertThatThrownBy(() -> catalog.checkRedeemable("MISSING", userCountry))
+                .isInstanceOf(CouponNotFoundException.class);
+
+        verify(couponRepository, times(1)).findByCodeIgnoreCase("MISSING");
+        verify(codeFilter, times(2)).recordFalsePositive();
+        verifyNoInteractions(userCountry);
+    }
+
+    @Test
+    void checkRedeemable_FilterMissSkipsDatabase() {
+        when(codeFilter.mightExist("GUESS")).thenReturn(false);
+
+        assertThatThrownBy(() -> catalog.checkRedeemable("GUESS", userCountry))
+                .isInstanceOf(CouponNotFoundException.class);
+
+        verifyNoInteractions(couponRepository, userCountry);
+    }
+
+    @Test
+    void register_ForgetsCachedMiss() {
+        when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.empty(), Optional.of(coupon));
+        assertThat(catalog.find("TEST")).isEmpty();
+
+        catalog.register("TEST");
+
+        assertThat(catalog.find("TEST")).isPresent();
+        verify(codeFilter).add("TEST");
+    }
+
+    @Test
+    void checkRedeemable_WrongCountryRejected() {
+        when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.of(coupon));
+        when(userCountry.get()).thenReturn("US");
+
+        assertThatThrownBy(() -> catalog.checkRedeemable("TEST", userCountry))
+                .isInstanceOf(CouponCountryNotAllowedException.class)
+                .hasMessage("Coupon 'TEST' not valid in country: US");
+    }
+
+    @Test
+    void onCouponChanged_CreatedCodeIsNoLongerUnknown() {
+        when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.empty(), Optional.of(coupon));
+        assertThat(catalog.find("TEST")).isEmpty();
+
+        catalog.onCouponChanged(CouponChangedEvent.parse("+OTHER\nTEST"));
+
+        assertThat(catalog.find("TEST")).isPresent();
+    }
+
+    @Test
+    void onCouponChanged_ResyncDropsEverything() {
+        when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.of(coupon));
+        catalog.find("TEST");
+
+        catalog.onCouponChanged(CouponChangedEvent.resync());
+        catalog.find("TEST");
+
+        verify(couponRepository, times(2)).findByCodeIgnoreCase("TEST");
+    }
+
+    @Test
+    void parse_ReadsTriggerPayloads() {
+        CouponChangedEvent renamed = CouponChangedEvent.parse("~OLD\nNEW");
+
+        assertThat(renamed.getType()).isEqualTo(CouponChangedEvent.Type.UPDATED);
+        assertThat(renamed.getCodes()).isEqualTo(List.of("OLD", "NEW"));
+        assertThat(CouponChangedEvent.parse("-GONE").getType()).isEqualTo(CouponChangedEvent.Type.DELETED);
+        assertThat(CouponChangedEvent.parse("?")).isNull();
+    }
+
+    @Test
+    void checkRedeemable_DisabledCatalogDecidesNothing() {
+        CouponCatalog disabled = new CouponCatalog(couponRepository, codeFilter, false, 100, 600_000, 10_000);
+
+        disabled.checkRedeemable("ANY", userCountry);
+
+        verifyNoInteractions(couponRepository, userCountry);
+    }
+}
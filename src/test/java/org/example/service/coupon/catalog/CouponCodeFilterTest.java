@@ -0,0 +1,98 @@
+package org.example.service.coupon.catalog;
+
+import org.example.repository.CouponRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponCodeFilterTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CouponCodeFilter codeFilter;
+
+    @BeforeEach
+    void setUp() {
+        codeFilter = new CouponCodeFilter(couponRepository, transactionManager, true, 0.01);
+    }
+
+    @Test
+    void mightExist_EverythingUntilBuilt() {
+        assertThat(codeFilter.isBuilt()).isFalse();
+        assertThat(codeFilter.mightExist("ANY")).isTrue();
+    }
+
+    @Test
+    void rebuild_LoadsExistingCodesAndRejectsOthers() {
+        givenCodes("SUMMER", "WINTER");
+
+        codeFilter.rebuild();
+
+        assertThat(codeFilter.mightExist("SUMMER")).isTrue();
+        assertThat(codeFilter.mightExist("WINTER")).isTrue();
+        assertThat(codeFilter.mightExist("GUESS")).isFalse();
+        assertThat(codeFilter.getRejected()).isEqualTo(1);
+        assertThat(codeFilter.getMemoryBytes()).isPositive();
+    }
+
+    @Test
+    void onCouponChanged_CreatedCodesBecomeVisible() {
+        givenCodes();
+        codeFilter.rebuild();
+
+        codeFilter.onCouponChanged(new CouponChangedEvent(CouponChangedEvent.Type.CREATED, List.of("NEW")));
+
+        assertThat(codeFilter.mightExist("NEW")).isTrue();
+    }
+
+    @Test
+    void onCouponChanged_ResyncRescansOnceBuilt() {
+        givenCodes();
+
+        codeFilter.onCouponChanged(CouponChangedEvent.resync());
+        codeFilter.rebuild();
+        codeFilter.onCouponChanged(CouponChangedEvent.resync());
+
+        verify(couponRepository, times(2)).forEachCode(any());
+    }
+
+    @Test
+    void getObservedFpp_SharesOfMissesLetThrough() {
+        givenCodes();
+        codeFilter.rebuild();
+        codeFilter.mightExist("A");
+        codeFilter.mightExist("B");
+        codeFilter.mightExist("C");
+
+        codeFilter.recordFalsePositive();
+
+        assertThat(codeFilter.getObservedFpp()).isEqualTo(0.25);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenCodes(String... codes) {
+        when(couponRepository.count()).thenReturn((long) codes.length);
+        lenient().doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            for (String code : codes) {
+                action.accept(code);
+            }
+            return null;
+        }).when(couponRepository).forEachCode(any());
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.service.coupon.hot;
+
+import org.example.repository.CouponRepository;
+import org.example.repository.LeaseSettlement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotCouponBudgetTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HotCouponBudget budget;
+
+    @BeforeEach
+    void setUp() {
+        budget = new HotCouponBudget(couponRepository, transactionManager, 10, 4, 30000);
+    }
+
+    @Test
+    void tryAcquire_NeverHandsOutMoreThanTheRowGranted() throws InterruptedException {
+        AtomicInteger remainingInRow = new AtomicInteger(250);
+        when(couponRepository.leaseUses(eq(1L), anyInt())).thenAnswer(invocation -> {
+            int block = invocation.getArgument(1);
+            int granted = Math.min(block, remainingInRow.get());
+            remainingInRow.addAndGet(-granted);
+            return granted;
+        });
+
+        AtomicInteger acquired = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> {
+                if (budget.tryAcquire(1L)) {
+                    acquired.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(250, acquired.get());
+        assertEquals(0, remainingInRow.get());
+        assertEquals(250, budget.pendingUses(1L));
+    }
+
+    @Test
+    void flush_SettlesUsedAndKeepsUnusedLease() {
+        when(couponRepository.leaseUses(1L, 10)).thenReturn(10);
+
+        assertTrue(budget.tryAcquire(1L));
+        assertTrue(budget.tryAcquire(1L));
+        assertTrue(budget.tryAcquire(1L));
+        budget.release(1L);
+        budget.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LeaseSettlement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(couponRepository).settleLeases(captor.capture());
+        LeaseSettlement settlement = captor.getValue().get(0);
+        assertEquals(1L, settlement.getCouponId());
+        assertEquals(2, settlement.getUsed());
+        assertEquals(0, settlement.getReleased());
+        assertEquals(0, budget.pendingUses(1L));
+    }
+
+    @Test
+    void shutdown_ReturnsUnusedLease() {
+        when(couponRepository.leaseUses(1L, 10)).thenReturn(10);
+        assertTrue(budget.tryAcquire(1L));
+
+        budget.shutdown();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LeaseSettlement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(couponRepository).settleLeases(captor.capture());
+        LeaseSettlement settlement = captor.getValue().get(0);
+        assertEquals(1, settlement.getUsed());
+        assertEquals(9, settlement.getReleased());
+    }
+
+    @Test
+    void flush_FailureKeepsUsageForNextAttempt() {
+        when(couponRepository.leaseUses(1L, 10)).thenReturn(10);
+        doThrow(new IllegalStateException("db down")).doNothing().when(couponRepository).settleLeases(anyList());
+        assertTrue(budget.tryAcquire(1L));
+
+        budget.flush();
+        assertEquals(1, budget.pendingUses(1L));
+        budget.flush();
+        assertEquals(0, budget.pendingUses(1L));
+    }
+
+    @Test
+    void flush_EvictsSettledIdleLease() throws InterruptedException {
+        HotCouponBudget idleBudget = new HotCouponBudget(couponRepository, transactionManager, 10, 4, 0);
+        when(couponRepository.leaseUses(1L, 10)).thenReturn(10);
+        assertTrue(idleBudget.tryAcquire(1L));
+        Thread.sleep(5);
+
+        idleBudget.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<LeaseSettlement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(couponRepository).settleLeases(captor.capture());
+        assertEquals(1, captor.getValue().get(0).getUsed());
+        assertEquals(9, captor.getValue().get(0).getReleased());
+        assertEquals(0, idleBudget.leaseCount());
+    }
+
+    @Test
+    void flush_FailureKeepsIdleLease() throws InterruptedException {
+        HotCouponBudget idleBudget = new HotCouponBudget(couponRepository, transactionManager, 10, 4, 0);
+        when(couponRepository.leaseUses(1L, 10)).thenReturn(10);
+        doThrow(new IllegalStateException("db down")).when(couponRepository).settleLeases(anyList());
+        assertTrue(idleBudget.tryAcquire(1L));
+        Thread.sleep(5);
+
+        idleBudget.flush();
+
+        assertEquals(1, idleBudget.leaseCount());
+        assertEquals(1, idleBudget.pendingUses(1L));
+    }
+
+    @Test
+    void flush_EvictionRacingRedemptionsLosesNoUses() throws InterruptedException {
+        HotCouponBudget idleBudget = new HotCouponBudget(couponRepository, transactionManager, 10, 4, 0);
+        AtomicInteger leased = new AtomicInteger();
+        AtomicInteger settledUsed = new AtomicInteger();
+        AtomicInteger settledReleased = new AtomicInteger();
+        when(couponRepository.leaseUses(eq(1L), anyInt())).thenAnswer(invocation -> {
+            leased.addAndGet(10);
+            return 10;
+        });
+        doAnswer(invocation -> {
+            List<LeaseSettlement> settlements = invocation.getArgument(0);
+            settlements.forEach(s -> {
+                settledUsed.addAndGet(s.getUsed());
+                settledReleased.addAndGet(s.getReleased());
+            });
+            return null;
+        }).when(couponRepository).settleLeases(anyList());
+
+        AtomicInteger acquired = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(20_000);
+        for (int i = 0; i < 20_000; i++) {
+            executor.execute(() -> {
+                if (idleBudget.tryAcquire(1L)) {
+                    acquired.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        while (done.getCount() > 0) {
+            idleBudget.flush();
+        }
+        executor.shutdown();
+        idleBudget.shutdown();
+
+        assertEquals(acquired.get(), settledUsed.get());
+        assertEquals(leased.get(), settledUsed.get() + settledReleased.get());
+    }
+}
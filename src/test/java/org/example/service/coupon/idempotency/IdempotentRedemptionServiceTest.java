@@ -0,0 +1,178 @@
+package org.example.service.coupon.idempotency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.api.v1.model.response.CouponResponse;
+import org.example.exception.api.CouponAlreadyUsedByUserException;
+import org.example.exception.api.IdempotencyKeyReusedException;
+import org.example.exception.api.IdempotentRequestInProgressException;
+import org.example.exception.api.InvalidIdempotencyKeyException;
+import org.example.repository.IdempotencyKeyRepository;
+import org.example.repository.IdempotencyRecord;
+import org.example.service.coupon.CouponService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotentRedemptionServiceTest {
+
+    @Mock
+    private CouponService couponService;
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private IdempotentRedemptionService service;
+
+    private final UseCouponRequest request = new UseCouponRequest("test", "1.2.3.4", "user123");
+
+    private final CouponResponse response = new CouponResponse("TEST", 1, 10, Instant.now(), "PL");
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotentRedemptionService(couponService, idempotencyKeyRepository, 60_000, 200, 5, 100, 1000);
+        service.bindTo(registry);
+    }
+
+    @Test
+    void useCoupon_WithoutKeyDelegates() {
+        when(couponService.useCoupon(request)).thenReturn(response);
+
+        assertThat(service.useCoupon(request, null)).isSameAs(response);
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+
+    @Test
+    void useCoupon_ClaimsKeyBeforeRedeemingAndAnswersRetryFromCache() {
+        when(idempotencyKeyRepository.find("user123", "key-1")).thenReturn(Optional.empty());
+        when(idempotencyKeyRepository.claim("user123", "key-1", "TEST", 200)).thenReturn(true);
+        when(couponService.useCoupon(request)).thenReturn(response);
+
+        service.useCoupon(request, "key-1");
+        CouponResponse replayed = service.useCoupon(request, "key-1");
+
+        assertThat(replayed).isSameAs(response);
+        verify(couponService, times(1)).useCoupon(request);
+        verify(idempotencyKeyRepository, times(1)).find("user123", "key-1");
+        verify(idempotencyKeyRepository).complete("user123", "key-1", response, 60_000);
+        assertThat(registry.get("coupon.redemption.replayed").tag("source", "cache").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void useCoupon_RetryOnAnotherNodeIsAnsweredFromDatabase() {
+        when(idempotencyKeyRepository.find("user123", "key-1"))
+                .thenReturn(Optional.of(new IdempotencyRecord("TEST", response)));
+
+        assertThat(service.useCoupon(request, "key-1")).isSameAs(response);
+        verifyNoInteractions(couponService);
+        assertThat(registry.get("coupon.redemption.replayed").tag("source", "database").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void useCoupon_KeyReusedForAnotherCouponIsRejected() {
+        when(idempotencyKeyRepository.find("user123", "key-1"))
+                .thenReturn(Optional.of(new IdempotencyRecord("TEST", null)));
+
+        assertThatThrownBy(() -> service.useCoupon(new UseCouponRequest("OTHER", "1.2.3.4", "user123"), "key-1"))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        verifyNoInteractions(couponService);
+    }
+
+    @Test
+    void useCoupon_RetryWaitsForPendingClaim() {
+        when(idempotencyKeyRepository.find("user123", "key-1"))
+                .thenReturn(Optional.of(new IdempotencyRecord("TEST", null)))
+                .thenReturn(Optional.of(new IdempotencyRecord("TEST", null)))
+                .thenReturn(Optional.of(new IdempotencyRecord("TEST", response)));
+
+        assertThat(service.useCoupon(request, "key-1")).isSameAs(response);
+        verifyNoInteractions(couponService);
+        verify(idempotencyKeyRepository, never()).claim(anyString(), anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void useCoupon_RetryGivesUpOnClaimThatStaysPending() {
+        when(idempotencyKeyRepository.find("user123", "key-1"))
+                .thenReturn(Optional.of(new IdempotencyRecord("TEST", null)));
+
+        assertThatThrownBy(() -> service.useCoupon(request, "key-1"))
+                .isInstanceOf(IdempotentRequestInProgressException.class);
+        verifyNoInteractions(couponService);
+    }
+
+    @Test
+    void useCoupon_FailedRedemptionReleasesKey() {
+        when(idempotencyKeyRepository.find("user123", "key-1")).thenReturn(Optional.empty());
+        when(idempotencyKeyRepository.claim("user123", "key-1", "TEST", 200)).thenReturn(true);
+        when(couponService.useCoupon(request)).thenThrow(new CouponAlreadyUsedByUserException("user123", "TEST"));
+
+        assertThatThrownBy(() -> service.useCoupon(request, "key-1"))
+                .isInstanceOf(CouponAlreadyUsedByUserException.class);
+        verify(idempotencyKeyRepository).release("user123", "key-1");
+        verify(idempotencyKeyRepository, never()).complete(anyString(), anyString(), any(), anyLong());
+    }
+
+    @Test
+    void useCoupon_ConcurrentRequestsWithSameKeyRedeemOnce() throws Exception {
+        Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+        when(idempotencyKeyRepository.find(eq("user123"), anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(table.get(invocation.<String>getArgument(1))));
+        when(idempotencyKeyRepository.claim(eq("user123"), anyString(), eq("TEST"), eq(200L)))
+                .thenAnswer(invocation -> table.putIfAbsent(invocation.getArgument(1), new IdempotencyRecord("TEST", null)) == null);
+        doAnswer(invocation -> table.put(invocation.getArgument(1), new IdempotencyRecord("TEST", invocation.getArgument(2))))
+                .when(idempotencyKeyRepository).complete(eq("user123"), anyString(), any(), anyLong());
+        CountDownLatch redeeming = new CountDownLatch(1);
+        CountDownLatch retried = new CountDownLatch(1);
+        when(couponService.useCoupon(request)).thenAnswer(invocation -> {
+            redeeming.countDown();
+            assertThat(retried.await(5, TimeUnit.SECONDS)).isTrue();
+            return response;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<CouponResponse> first = executor.submit(() -> service.useCoupon(request, "key-1"));
+            assertThat(redeeming.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<CouponResponse> retry = executor.submit(() -> service.useCoupon(request, "key-1"));
+            // Let the retry see the pending claim before the first request completes.
+            Thread.sleep(20);
+            retried.countDown();
+
+            assertThat(List.of(first.get(5, TimeUnit.SECONDS), retry.get(5, TimeUnit.SECONDS)))
+                    .containsExactly(response, response);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(couponService, times(1)).useCoupon(request);
+    }
+
+    @Test
+    void useCoupon_OverlongKeyIsRejected() {
+        assertThatThrownBy(() -> service.useCoupon(request, "k".repeat(101)))
+                .isInstanceOf(InvalidIdempotencyKeyException.class);
+        verifyNoInteractions(couponService, idempotencyKeyRepository);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.service.coupon.outbox;
+
+import org.example.exception.api.RedemptionConsumerNotFoundException;
+import org.example.repository.CouponUsageRepository;
+import org.example.repository.OutboxEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedemptionEventStreamTest {
+
+    @Mock
+    private CouponUsageRepository couponUsageRepository;
+
+    @Test
+    void poll_ReadsUpToMarkTakenBeforeWaitingForWriters() {
+        RedemptionEventStream stream = new RedemptionEventStream(couponUsageRepository, 100);
+        List<OutboxEvent> events = List.of(new OutboxEvent(41, 1, "user123", Instant.now()));
+        when(couponUsageRepository.outboxHighWaterMark()).thenReturn(42L);
+        when(couponUsageRepository.readOutbox("billing", 42, 10)).thenReturn(events);
+
+        assertThat(stream.poll("billing", 10)).isSameAs(events);
+
+        InOrder inOrder = inOrder(couponUsageRepository);
+        inOrder.verify(couponUsageRepository).registerOutboxConsumer("billing");
+        inOrder.verify(couponUsageRepository).outboxHighWaterMark();
+        inOrder.verify(couponUsageRepository).awaitOutboxWriters();
+        inOrder.verify(couponUsageRepository).readOutbox("billing", 42, 10);
+    }
+
+    @Test
+    void poll_CapsLimitAtBatchSize() {
+        RedemptionEventStream stream = new RedemptionEventStream(couponUsageRepository, 100);
+
+        stream.poll("billing", 1_000_000);
+
+        verify(couponUsageRepository).readOutbox("billing", 0, 100);
+    }
+
+    @Test
+    void acknowledge_ThrowsForUnknownConsumer() {
+        RedemptionEventStream stream = new RedemptionEventStream(couponUsageRepository, 100);
+        when(couponUsageRepository.acknowledgeOutbox("billing", 7)).thenReturn(0);
+
+        assertThatThrownBy(() -> stream.acknowledge("billing", 7))
+                .isInstanceOf(RedemptionConsumerNotFoundException.class);
+    }
+}
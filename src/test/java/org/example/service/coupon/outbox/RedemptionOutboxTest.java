@@ -0,0 +1,61 @@
+package org.example.service.coupon.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.RedemptionMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedemptionOutboxTest {
+
+    @Mock
+    private CouponUsageRepository couponUsageRepository;
+
+    @Test
+    void flush_DrainsFullBatches() {
+        RedemptionOutbox outbox = new RedemptionOutbox(couponUsageRepository, true, 2, 60_000, RedemptionMode.LOCKING);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        outbox.bindTo(registry);
+        when(couponUsageRepository.flushOutbox(2)).thenReturn(2, 1);
+
+        outbox.flush();
+
+        verify(couponUsageRepository, times(2)).flushOutbox(2);
+        assertThat(registry.get("coupon.usage.outbox.flushed").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void flush_KeepsPollingWhileEnabled() {
+        RedemptionOutbox outbox = new RedemptionOutbox(couponUsageRepository, true, 100, 60_000, RedemptionMode.LOCKING);
+        when(couponUsageRepository.flushOutbox(100)).thenReturn(0);
+
+        outbox.flush();
+        outbox.flush();
+
+        verify(couponUsageRepository, times(2)).flushOutbox(100);
+    }
+
+    @Test
+    void flush_StopsPollingOnceDrainedWhileDisabled() {
+        RedemptionOutbox outbox = new RedemptionOutbox(couponUsageRepository, false, 2, 60_000, RedemptionMode.ATOMIC);
+        when(couponUsageRepository.flushOutbox(2)).thenReturn(2, 0);
+
+        outbox.flush();
+        outbox.flush();
+
+        verify(couponUsageRepository, times(2)).flushOutbox(2);
+    }
+
+    @Test
+    void constructor_RejectsModesThatBypassTheOutbox() {
+        assertThatThrownBy(() -> new RedemptionOutbox(couponUsageRepository, true, 100, 60_000, RedemptionMode.ATOMIC))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
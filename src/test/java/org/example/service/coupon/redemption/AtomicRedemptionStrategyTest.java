@@ -0,0 +1,129 @@
+package org.example.service.coupon.redemption;
+
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.entity.Coupon;
+import org.example.exception.api.CouponAlreadyUsedByUserException;
+import org.example.exception.api.CouponCountryNotAllowedException;
+import org.example.exception.api.CouponNotFoundException;
+import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.repository.AtomicRedemption;
+import org.example.repository.CouponRepository;
+import org.example.repository.CouponUsageRepository;
+import org.example.service.coupon.RedemptionMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AtomicRedemptionStrategyTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponUsageRepository couponUsageRepository;
+
+    @Mock
+    private RedemptionMetrics redemptionMetrics;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private AtomicRedemptionStrategy strategy;
+
+    private Coupon coupon;
+
+    @BeforeEach
+    void setUp() {
+        coupon = Coupon.builder()
+                .id(1L)
+                .code("TEST")
+                .maxUses(2)
+                .currentUses(0)
+                .country("PL")
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    @Test
+    void redeem_Success() {
+        coupon.setCurrentUses(1);
+        when(couponRepository.redeemAtomically("TEST", "PL", "user123"))
+                .thenReturn(Optional.of(new AtomicRedemption(coupon, true)));
+
+        Coupon redeemed = strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "PL");
+
+        assertEquals("TEST", redeemed.getCode());
+        assertEquals(1, redeemed.getCurrentUses());
+        verify(couponRepository).redeemAtomically("TEST", "PL", "user123");
+        verifyNoMoreInteractions(couponRepository);
+        verifyNoInteractions(couponUsageRepository);
+    }
+
+    @Test
+    void redeem_ThrowsAlreadyUsedWhenUsageInsertConflicts() {
+        when(couponRepository.redeemAtomically("TEST", "PL", "user123"))
+                .thenReturn(Optional.of(new AtomicRedemption(coupon, false)));
+
+        CouponAlreadyUsedByUserException ex = assertThrows(
+                CouponAlreadyUsedByUserException.class,
+                () -> strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "PL")
+        );
+        assertEquals("User user123 has already used coupon: TEST", ex.getMessage());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void redeem_ExplainsNotFound() {
+        when(couponRepository.redeemAtomically("MISSING", "PL", "user123")).thenReturn(Optional.empty());
+        when(couponRepository.findByCodeIgnoreCase("MISSING")).thenReturn(Optional.empty());
+
+        assertThrows(CouponNotFoundException.class,
+                () -> strategy.redeem("MISSING", new UseCouponRequest("MISSING", "1.2.3.4", "user123"), () -> "PL"));
+    }
+
+    @Test
+    void redeem_ExplainsUseLimitExceeded() {
+        coupon.setCurrentUses(2);
+        when(couponRepository.redeemAtomically("TEST", "PL", "user123")).thenReturn(Optional.empty());
+        when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.of(coupon));
+
+        assertThrows(CouponUseLimitExceededException.class,
+                () -> strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "PL"));
+        verifyNoInteractions(couponUsageRepository);
+    }
+
+    @Test
+    void redeem_ExplainsCountryNotAllowed() {
+        when(couponRepository.redeemAtomically("TEST", "US", "user123")).thenReturn(Optional.empty());
+        when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.of(coupon));
+
+        CouponCountryNotAllowedException ex = assertThrows(
+                CouponCountryNotAllowedException.class,
+                () -> strategy.redeem("TEST", new UseCouponRequest("TEST", "2.2.2.2", "user123"), () -> "US")
+        );
+        assertEquals("Coupon 'TEST' not valid in country: US", ex.getMessage());
+    }
+
+    @Test
+    void redeem_ExplainsAlreadyUsed() {
+        when(couponRepository.redeemAtomically("TEST", "PL", "user123")).thenReturn(Optional.empty());
+        when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.of(coupon));
+        when(couponUsageRepository.existsByCouponAndUserId(coupon, "user123")).thenReturn(true);
+
+        assertThrows(CouponAlreadyUsedByUserException.class,
+                () -> strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "PL"));
+    }
+}
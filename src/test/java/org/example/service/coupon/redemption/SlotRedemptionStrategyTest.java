@@ -0,0 +1,149 @@
+package org.example.service.coupon.redemption;
+
+import org.example.api.v1.model.request.UseCouponRequest;
+import org.example.entity.Coupon;
+import org.example.exception.api.CouponAlreadyUsedByUserException;
+import org.example.exception.api.CouponCountryNotAllowedException;
+import org.example.exception.api.CouponUseLimitExceededException;
+import org.example.repository.CouponRepository;
+import org.example.repository.SlotClaim;
+import org.example.service.coupon.RedemptionMetrics;
+import org.example.service.coupon.slots.CouponSlots;
+import org.example.service.coupon.usage.CouponUsageFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SlotRedemptionStrategyTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private CouponSlots couponSlots;
+
+    @Mock
+    private CouponUsageFilter couponUsageFilter;
+
+    @Mock
+    private RedemptionMetrics redemptionMetrics;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private SlotRedemptionStrategy strategy;
+
+    private Coupon coupon;
+
+    @BeforeEach
+    void setUp() {
+        coupon = Coupon.builder()
+                .id(1L)
+                .code("TEST")
+                .maxUses(10)
+                .currentUses(3)
+                .leasedUses(7)
+                .country("PL")
+                .createdAt(Instant.now())
+                .build();
+        lenient().when(couponRepository.findByCodeIgnoreCase("TEST")).thenReturn(Optional.of(coupon));
+    }
+
+    @Test
+    void redeem_ClaimsSlotAndReportsUnsettledUses() {
+        when(couponRepository.claimSlot(1L, "user123", true)).thenReturn(new SlotClaim(true, true, true, 2, 4));
+
+        strategy.redeem("TEST", new UseCouponRequest("test", "1.2.3.4", "user123"), () -> "PL");
+
+        assertEquals(5, coupon.getCurrentUses());
+        verify(couponUsageFilter).recordUse(1L, "user123");
+        verify(couponRepository, never()).findByCodeIgnoreCaseForUpdate(any());
+        verifyNoInteractions(couponSlots);
+    }
+
+    @Test
+    void redeem_NoFreeSlotExceedsLimit() {
+        when(couponRepository.claimSlot(1L, "user123", true)).thenReturn(new SlotClaim(false, false, true, 7, 0));
+
+        assertThrows(CouponUseLimitExceededException.class,
+                () -> strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "PL"));
+        verify(couponRepository, never()).claimSlot(1L, "user123", false);
+        verifyNoInteractions(couponUsageFilter);
+    }
+
+    @Test
+    void redeem_WaitsForLockedSlotsBeforeExceedingLimit() {
+        when(couponRepository.claimSlot(1L, "user123", true)).thenReturn(new SlotClaim(false, false, true, 6, 1));
+        when(couponRepository.claimSlot(1L, "user123", false)).thenReturn(new SlotClaim(true, true, true, 7, 0));
+
+        strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "PL");
+
+        verify(couponRepository).claimSlot(1L, "user123", false);
+        verify(couponUsageFilter).recordUse(1L, "user123");
+    }
+
+    @Test
+    void redeem_StopsWaitingForLockedSlotsAfterBoundedAttempts() {
+        when(couponRepository.claimSlot(eq(1L), eq("user123"), anyBoolean())).thenReturn(new SlotClaim(false, false, true, 6, 1));
+
+        assertThrows(CouponUseLimitExceededException.class,
+                () -> strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "PL"));
+        verify(couponRepository, times(3)).claimSlot(1L, "user123", false);
+    }
+
+    @Test
+    void redeem_SecondUseOfSameUserIsRejected() {
+        when(couponRepository.claimSlot(1L, "user123", true)).thenReturn(new SlotClaim(true, false, true, 1, 5));
+
+        assertThrows(CouponAlreadyUsedByUserException.class,
+                () -> strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "PL"));
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(couponUsageFilter);
+    }
+
+    @Test
+    void redeem_SlotsCouponWithoutSlotsAndRetries() {
+        when(couponRepository.claimSlot(1L, "user123", true))
+                .thenReturn(new SlotClaim(false, false, false, 0, 0))
+                .thenReturn(new SlotClaim(true, true, true, 1, 6));
+
+        strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "PL");
+
+        verify(couponSlots).create("TEST");
+        verify(couponRepository, times(2)).claimSlot(1L, "user123", true);
+    }
+
+    @Test
+    void redeem_WrongCountryClaimsNothing() {
+        assertThrows(CouponCountryNotAllowedException.class,
+                () -> strategy.redeem("TEST", new UseCouponRequest("TEST", "1.2.3.4", "user123"), () -> "DE"));
+        verify(couponRepository, never()).claimSlot(anyLong(), any(), anyBoolean());
+    }
+
+    @Test
+    void onCreated_FlushesAndSlotsCreatedCoupons() {
+        strategy.onCreated(List.of("NEW"));
+
+        InOrder inOrder = inOrder(couponRepository, couponSlots);
+        inOrder.verify(couponRepository).flush();
+        inOrder.verify(couponSlots).create(List.of("NEW"));
+    }
+}
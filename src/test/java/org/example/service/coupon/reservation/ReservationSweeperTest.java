@@ -0,0 +1,48 @@
+package org.example.service.coupon.reservation;
+
+import org.example.repository.CouponRepository;
+import org.example.service.coupon.RedemptionMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationSweeperTest {
+
+    @Mock
+    private CouponRepository couponRepository;
+
+    @Mock
+    private RedemptionMetrics redemptionMetrics;
+
+    @Test
+    void releaseDue_WaitsForTheTtlOnTheLocalClock() {
+        ReservationSweeper sweeper = new ReservationSweeper(couponRepository, redemptionMetrics, 60_000, 10, 64, 100);
+        sweeper.schedule(UUID.randomUUID());
+
+        sweeper.releaseDue();
+
+        verify(couponRepository, never()).releaseExpiredReservations(anyCollection());
+    }
+
+    @Test
+    void releaseDue_ReleasesOnceTheTtlHasPassed() throws InterruptedException {
+        ReservationSweeper sweeper = new ReservationSweeper(couponRepository, redemptionMetrics, 20, 10, 64, 100);
+        UUID id = UUID.randomUUID();
+        when(couponRepository.releaseExpiredReservations(List.of(id))).thenReturn(1);
+        sweeper.schedule(id);
+
+        Thread.sleep(50);
+        sweeper.releaseDue();
+
+        verify(couponRepository).releaseExpiredReservations(List.of(id));
+        verify(redemptionMetrics).recordReservations("expired", 1);
+    }
+}
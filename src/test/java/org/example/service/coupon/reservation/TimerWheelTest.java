@@ -0,0 +1,54 @@
+package org.example.service.coupon.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerWheelTest {
+
+    @Test
+    void advance_ReturnsItemsOnceTheirTickHasPassed() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 8, 0);
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 300);
+        wheel.schedule("c", 900);
+
+        assertThat(wheel.advance(299)).isEmpty();
+        assertThat(wheel.advance(300)).containsExactlyInAnyOrder("a", "b");
+        assertThat(wheel.advance(899)).isEmpty();
+        assertThat(wheel.advance(900)).containsExactly("c");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void advance_KeepsDeadlinesBeyondOneRevolution() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 8, 0);
+        // Same bucket as tick 2, but three revolutions later.
+        wheel.schedule("late", 2_600);
+
+        assertThat(wheel.advance(1_000)).isEmpty();
+        assertThat(wheel.advance(2_500)).isEmpty();
+        assertThat(wheel.advance(2_600)).containsExactly("late");
+    }
+
+    @Test
+    void advance_CatchesUpAfterLongPause() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 8, 0);
+        for (int i = 1; i <= 20; i++) {
+            wheel.schedule("item" + i, i * 100L);
+        }
+
+        assertThat(wheel.advance(10_000)).hasSize(20);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void schedule_PastDeadlineFiresOnNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 8, 0);
+        wheel.advance(500);
+
+        wheel.schedule("overdue", 100);
+
+        assertThat(wheel.advance(600)).containsExactly("overdue");
+    }
+}
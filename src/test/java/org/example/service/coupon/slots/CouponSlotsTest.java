@@ -0,0 +1,34 @@
+package org.example.service.coupon.slots;
+
+import org.example.repository.CouponRepository;
+import org.example.service.coupon.RedemptionMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CouponSlotsTest {
+
+    private final CouponRepository couponRepository = mock(CouponRepository.class);
+
+    @Test
+    void create_SplitsIntoConfiguredSlotCount() {
+        when(couponRepository.createSlots(List.of("TEST"), 64)).thenReturn(1);
+
+        assertEquals(1, new CouponSlots(couponRepository, 64, RedemptionMode.SLOTS).create("TEST"));
+    }
+
+    @Test
+    void constructor_RejectsNonPositiveSlotCount() {
+        assertThrows(IllegalArgumentException.class, () -> new CouponSlots(couponRepository, 0, RedemptionMode.SLOTS));
+    }
+
+    @Test
+    void rollUp_SkippedOutsideSlotsMode() {
+        new CouponSlots(couponRepository, 64, RedemptionMode.LOCKING).rollUp();
+
+        verifyNoInteractions(couponRepository);
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.service.coupon.usage;
+
+import org.example.entity.Coupon;
+import org.example.repository.CouponUsageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CouponUsageFilterTest {
+
+    @Mock
+    private CouponUsageRepository couponUsageRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+
+    private CouponUsageFilter usageFilter;
+
+    private Coupon coupon;
+
+    @BeforeEach
+    void setUp() {
+        usageFilter = new CouponUsageFilter(couponUsageRepository, transactionManager, true, 0.01, 1_000_000,
+                1 << 20, 600_000, pending::add);
+        coupon = Coupon.builder().id(1L).code("TEST").maxUses(1000).currentUses(0).country("PL").build();
+    }
+
+    @Test
+    void definitelyNotUsed_MaybeUntilLoaded() {
+        givenUsers("alice");
+
+        assertThat(usageFilter.definitelyNotUsed(coupon, "bob")).isFalse();
+        runAll();
+
+        assertThat(usageFilter.definitelyNotUsed(coupon, "bob")).isTrue();
+        assertThat(usageFilter.definitelyNotUsed(coupon, "alice")).isFalse();
+        verify(couponUsageRepository, times(1)).forEachUserId(eq(1L), any());
+    }
+
+    @Test
+    void recordUse_MakesUserMaybeUsed() {
+        givenUsers();
+        usageFilter.definitelyNotUsed(coupon, "bob");
+        runAll();
+
+        usageFilter.recordUse(1L, "bob");
+
+        assertThat(usageFilter.definitelyNotUsed(coupon, "bob")).isFalse();
+    }
+
+    @Test
+    void definitelyNotUsed_DisabledAlwaysDefersToQuery() {
+        CouponUsageFilter disabled = new CouponUsageFilter(couponUsageRepository, transactionManager, false, 0.01,
+                1_000_000, 1 << 20, 600_000, pending::add);
+
+        assertThat(disabled.definitelyNotUsed(coupon, "bob")).isFalse();
+        assertThat(pending).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenUsers(String... userIds) {
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(1);
+            for (String userId : userIds) {
+                action.accept(userId);
+            }
+            return null;
+        }).when(couponUsageRepository).forEachUserId(eq(1L), any());
+    }
+
+    private void runAll() {
+        Runnable task;
+        while ((task = pending.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.service.datasource;
+
+import org.example.config.datasource.ConnectionLimitingDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionLimitingDataSourceTest {
+
+    @Mock
+    private DataSource target;
+
+    @Mock
+    private Connection connection;
+
+    @Test
+    void getConnection_ReleasesPermitOnceOnClose() throws Exception {
+        when(target.getConnection()).thenReturn(connection);
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 2, 10);
+
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+        assertThat(dataSource.availablePermits()).isZero();
+
+        first.close();
+        first.close();
+
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void getConnection_TimesOutWhenAllPermitsAreTaken() throws Exception {
+        when(target.getConnection()).thenReturn(connection);
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, 10);
+        dataSource.getConnection();
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        verify(target, times(1)).getConnection();
+    }
+
+    @Test
+    void getConnection_ReturnsPermitWhenPoolFails() throws Exception {
+        when(target.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, 10);
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLException.class);
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+}
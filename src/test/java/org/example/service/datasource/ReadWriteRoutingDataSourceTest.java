@@ -0,0 +1,133 @@
+package org.example.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.config.datasource.ConnectionLimitingDataSource;
+import org.example.config.datasource.ReadReplica;
+import org.example.config.datasource.ReadWriteRoutingDataSource;
+import org.example.config.datasource.VirtualThreadDataSourceConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private HikariDataSource primary;
+
+    @Mock
+    private HikariDataSource replicaPool;
+
+    @Mock
+    private JdbcTemplate lagQuery;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ReadReplica replica;
+
+    private ReadWriteRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        replica = new ReadReplica(replicaPool, 1000, lagQuery);
+        replica.bindTo(registry);
+        dataSource = new ReadWriteRoutingDataSource(primary, replica);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        lenient().when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(replicaPool.getConnection()).thenReturn(replicaConnection);
+    }
+
+    @Test
+    void readOnlyConnection_UsesReplicaWhileCurrent() throws SQLException {
+        when(lagQuery.queryForObject(anyString(), eq(Long.class))).thenReturn(200L);
+        replica.checkLag();
+
+        assertThat(target(true)).isSameAs(replicaConnection);
+        assertThat(target(false)).isSameAs(primaryConnection);
+        assertThat(registry.get("db.replica.lag").gauge().value()).isEqualTo(200);
+    }
+
+    @Test
+    void readOnlyConnection_FallsBackWhileReplicaLags() throws SQLException {
+        when(lagQuery.queryForObject(anyString(), eq(Long.class))).thenReturn(5000L);
+        replica.checkLag();
+
+        assertThat(target(true)).isSameAs(primaryConnection);
+        assertThat(registry.get("db.replica.fallback").tag("reason", "lag").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyConnection_FallsBackWhileReplicaUnreachable() throws SQLException {
+        when(lagQuery.queryForObject(anyString(), eq(Long.class))).thenThrow(new QueryTimeoutException("timeout"));
+        replica.checkLag();
+
+        assertThat(replica.isUsable()).isFalse();
+        assertThat(target(true)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readOnlyConnection_FallsBackWhenReplicaPoolFails() throws SQLException {
+        when(lagQuery.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        replica.checkLag();
+        when(replicaPool.getConnection()).thenThrow(new SQLTransientConnectionException("pool exhausted"));
+
+        assertThat(target(true)).isSameAs(primaryConnection);
+        assertThat(registry.get("db.replica.fallback").tag("reason", "error").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void limitedPools_ReadOnlyWorkDoesNotWaitForPrimaryPermits() throws SQLException {
+        when(lagQuery.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        replica.checkLag();
+        dataSource = new ReadWriteRoutingDataSource(
+                primary, new ConnectionLimitingDataSource(primary, 1, 10, "primary"), replica);
+        dataSource.bindTo(registry);
+
+        target(false);
+
+        assertThat(target(true)).isSameAs(replicaConnection);
+        assertThat(registry.get("datasource.limiter.permits.available").tag("pool", "primary").gauge().value())
+                .isZero();
+        assertThatThrownBy(() -> target(false)).hasRootCauseInstanceOf(SQLTransientConnectionException.class);
+    }
+
+    @Test
+    void virtualThreadPostProcessor_LeavesRoutingDataSourceToItsPools() {
+        BeanPostProcessor postProcessor = VirtualThreadDataSourceConfig.connectionLimitingDataSourcePostProcessor(
+                new MockEnvironment());
+
+        assertThat(postProcessor.postProcessAfterInitialization(dataSource, "dataSource")).isSameAs(dataSource);
+    }
+
+    // The proxy only fetches the physical connection once it is needed, after setReadOnly.
+    private Connection target(boolean readOnly) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.setReadOnly(readOnly);
+        return ((ConnectionProxy) connection).getTargetConnection();
+    }
+}
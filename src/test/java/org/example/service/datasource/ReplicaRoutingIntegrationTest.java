@@ -0,0 +1,121 @@
+package org.example.service.datasource;
+
+import org.example.api.v1.model.request.CreateCouponRequest;
+import org.example.config.datasource.ReadReplica;
+import org.example.security.CachedUserDetailsService;
+import org.example.service.coupon.CouponService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two independent Postgres containers stand in for a primary and its replica, so that where a query ran can
+ * be told from the data it saw. There is no replication between them, so the "replica" never lags: the lag
+ * fallback is only covered by {@link ReadWriteRoutingDataSourceTest}. Needs Docker; skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest
+class ReplicaRoutingIntegrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    private static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("db.replica.enabled", () -> "true");
+        registry.add("db.replica.url", replica::getJdbcUrl);
+        registry.add("db.replica.username", replica::getUsername);
+        registry.add("db.replica.password", replica::getPassword);
+        registry.add("db.replica.lag-check-interval-ms", () -> "100");
+    }
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private CachedUserDetailsService userDetailsService;
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private CouponService couponService;
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private ReadReplica readReplica;
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrateReplica() {
+        Flyway.configure()
+                .dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+    }
+
+    @Test
+    void readOnlyLookupsRunOnReplica() {
+        waitUntil(readReplica::isUsable);
+        replicaJdbc().update("INSERT INTO users (username, password, role) VALUES ('replica-only', 'x', 'USER')");
+
+        assertThat(userDetailsService.loadUserByUsername("replica-only").getUsername()).isEqualTo("replica-only");
+    }
+
+    @Test
+    void writesRunOnPrimary() {
+        couponService.createCoupon(new CreateCouponRequest("ROUTED", 5, "PL"));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupons WHERE code = 'ROUTED'", Integer.class))
+                .isEqualTo(1);
+        assertThat(replicaJdbc().queryForObject("SELECT COUNT(*) FROM coupons WHERE code = 'ROUTED'", Integer.class))
+                .isZero();
+    }
+
+    @Test
+    void readOnlyLookupsFallBackToPrimaryWhileReplicaIsDown() {
+        jdbcTemplate.update("INSERT INTO users (username, password, role) VALUES ('primary-only', 'x', 'USER')");
+        String containerId = replica.getContainerId();
+        DockerClientFactory.instance().client().pauseContainerCmd(containerId).exec();
+        try {
+            waitUntil(() -> !readReplica.isUsable());
+
+            assertThat(userDetailsService.loadUserByUsername("primary-only").getUsername()).isEqualTo("primary-only");
+        } finally {
+            DockerClientFactory.instance().client().unpauseContainerCmd(containerId).exec();
+        }
+    }
+
+    private static JdbcTemplate replicaJdbc() {
+        return new JdbcTemplate(new DriverManagerDataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
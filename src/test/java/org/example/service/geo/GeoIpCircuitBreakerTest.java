@@ -0,0 +1,64 @@
+package org.example.service.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoIpCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private GeoIpCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new GeoIpCircuitBreaker(2, 1000, now::get);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(GeoIpCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.getTrips()).isEqualTo(1);
+    }
+
+    @Test
+    void allowsSingleTrialAfterOpenPeriodAndClosesOnSuccess() {
+        breaker.onFailure();
+        breaker.onFailure();
+        now.addAndGet(1000);
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(GeoIpCircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(GeoIpCircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void reopensWhenTrialFails() {
+        breaker.onFailure();
+        breaker.onFailure();
+        now.addAndGet(1000);
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onFailure();
+
+        assertThat(breaker.getState()).isEqualTo(GeoIpCircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.getTrips()).isEqualTo(2);
+    }
+}
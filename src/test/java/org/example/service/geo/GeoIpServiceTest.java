@@ -1,158 +1,210 @@
 package org.example.service.geo;
 
+import com.github.benmanes.caffeine.cache.Ticker;
 import org.example.exception.api.GeoIpLookupException;
+import org.example.exception.api.GeoIpUnavailableException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
-@SpringBootTest
+@ExtendWith(MockitoExtension.class)
 class GeoIpServiceTest {
 
-    @MockBean
-    @SuppressWarnings("unused")
+    private static final String URL = "http://dummy/8.8.8.8?fields=countryCode";
+    private static final long REFRESH_MILLIS = 60_000;
+    private static final long EXPIRE_MILLIS = 600_000;
+    private static final long NEGATIVE_TTL_MILLIS = 30_000;
+
+    @Mock
     private RestTemplate restTemplate;
 
-    @Autowired
-    @SuppressWarnings("unused")
-    private GeoIpService geoIpService;
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
 
-    private Cache cache;
+    private GeoIpCircuitBreaker circuitBreaker;
 
-    @Autowired
-    @SuppressWarnings("unused")
-    private CacheManager cacheManager;
+    private GeoIpService geoIpService;
 
     @BeforeEach
-    @SuppressWarnings("all")
-    //safe to use @SuppressWarnings("all") since the cache will not be null,
-        // the library implementation is protected from returning null
     void setUp() {
-        cache = cacheManager.getCache("geoIpCache");
-        cache.clear();
+        circuitBreaker = new GeoIpCircuitBreaker(3, 10_000, () -> TimeUnit.NANOSECONDS.toMillis(nanos.get()));
+        geoIpService = service(Runnable::run);
     }
 
     @Test
     void getCountry_ValidIp_ReturnsCountryCode() {
-        String ipAddress = "8.8.8.8";
-        Map<String, Object> responseBody = new HashMap<>();
-        responseBody.put("countryCode", "US");
-        ResponseEntity<Map> responseEntity = new ResponseEntity<>(responseBody, HttpStatus.OK);
-        when(restTemplate.getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class)))
-                .thenReturn(responseEntity);
+        when(restTemplate.getForEntity(eq(URL), eq(Map.class))).thenReturn(country("US"));
 
-        String countryCode = geoIpService.getCountry(ipAddress);
+        String countryCode = geoIpService.getCountry("8.8.8.8");
 
         assertThat(countryCode).isEqualTo("US");
-        verify(restTemplate, times(1)).getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class));
-        assertThat(cache.get(ipAddress, String.class)).isEqualTo("US");
+        verify(restTemplate, times(1)).getForEntity(eq(URL), eq(Map.class));
     }
 
     @Test
     void getCountry_CachedResult_ReturnsFromCacheWithoutApiCall() {
-        String ipAddress = "8.8.8.8";
-        Map<String, Object> responseBody = new HashMap<>();
-        responseBody.put("countryCode", "US");
-        ResponseEntity<Map> responseEntity = new ResponseEntity<>(responseBody, HttpStatus.OK);
-        when(restTemplate.getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class)))
-                .thenReturn(responseEntity);
+        when(restTemplate.getForEntity(eq(URL), eq(Map.class))).thenReturn(country("US"));
 
-        String countryCode1 = geoIpService.getCountry(ipAddress);
-        String countryCode2 = geoIpService.getCountry(ipAddress);
+        String countryCode1 = geoIpService.getCountry("8.8.8.8");
+        String countryCode2 = geoIpService.getCountry("8.8.8.8");
 
         assertThat(countryCode1).isEqualTo("US");
         assertThat(countryCode2).isEqualTo("US");
-        verify(restTemplate, times(1)).getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class));
-        assertThat(cache.get(ipAddress, String.class)).isEqualTo("US");
+        verify(restTemplate, times(1)).getForEntity(eq(URL), eq(Map.class));
     }
 
     @Test
     void getCountry_ApiThrowsException_ThrowsGeoIpLookupException() {
-        String ipAddress = "8.8.8.8";
-        when(restTemplate.getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class)))
-                .thenThrow(new RestClientException("API error"));
+        when(restTemplate.getForEntity(eq(URL), eq(Map.class))).thenThrow(new RestClientException("API error"));
 
-        assertThatThrownBy(() -> geoIpService.getCountry(ipAddress))
+        assertThatThrownBy(() -> geoIpService.getCountry("8.8.8.8"))
                 .isInstanceOf(GeoIpLookupException.class)
-                .hasMessageContaining(ipAddress);
-        verify(restTemplate, times(1)).getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class));
-        assertThat(cache.get(ipAddress)).isNull();
+                .hasMessageContaining("8.8.8.8");
+        // The failure is remembered for the negative TTL, then the provider is asked again.
+        assertThatThrownBy(() -> geoIpService.getCountry("8.8.8.8")).isInstanceOf(GeoIpLookupException.class);
+        verify(restTemplate, times(1)).getForEntity(eq(URL), eq(Map.class));
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(NEGATIVE_TTL_MILLIS + 1));
+
+        assertThatThrownBy(() -> geoIpService.getCountry("8.8.8.8")).isInstanceOf(GeoIpLookupException.class);
+        verify(restTemplate, times(2)).getForEntity(eq(URL), eq(Map.class));
+    }
+
+    @Test
+    void getCountry_OpenCircuitBreaker_FailsFastWithoutApiCall() {
+        when(restTemplate.getForEntity(anyString(), eq(Map.class))).thenThrow(new RestClientException("timeout"));
+        for (String ip : new String[]{"1.1.1.1", "2.2.2.2", "3.3.3.3"}) {
+            assertThatThrownBy(() -> geoIpService.getCountry(ip)).isInstanceOf(GeoIpLookupException.class);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(GeoIpCircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> geoIpService.getCountry("8.8.8.8")).isInstanceOf(GeoIpUnavailableException.class);
+        verify(restTemplate, times(3)).getForEntity(anyString(), eq(Map.class));
     }
 
     @Test
     void getCountry_NullResponseBody_ThrowsGeoIpLookupException() {
-        String ipAddress = "8.8.8.8";
-        ResponseEntity<Map> responseEntity = new ResponseEntity<>(null, HttpStatus.OK);
-        when(restTemplate.getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class)))
-                .thenReturn(responseEntity);
+        when(restTemplate.getForEntity(eq(URL), eq(Map.class))).thenReturn(new ResponseEntity<>(null, HttpStatus.OK));
 
-        assertThatThrownBy(() -> geoIpService.getCountry(ipAddress))
+        assertThatThrownBy(() -> geoIpService.getCountry("8.8.8.8"))
                 .isInstanceOf(GeoIpLookupException.class)
-                .hasMessageContaining(ipAddress);
-        verify(restTemplate, times(1)).getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class));
-        assertThat(cache.get(ipAddress)).isNull();
+                .hasMessageContaining("8.8.8.8");
+        verify(restTemplate, times(1)).getForEntity(eq(URL), eq(Map.class));
     }
 
     @Test
     void getCountry_MissingCountryCode_ThrowsGeoIpLookupException() {
-        String ipAddress = "8.8.8.8";
         Map<String, Object> responseBody = new HashMap<>();
         responseBody.put("otherField", "value");
-        ResponseEntity<Map> responseEntity = new ResponseEntity<>(responseBody, HttpStatus.OK);
-        when(restTemplate.getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class)))
-                .thenReturn(responseEntity);
+        when(restTemplate.getForEntity(eq(URL), eq(Map.class))).thenReturn(new ResponseEntity<>(responseBody, HttpStatus.OK));
 
-        assertThatThrownBy(() -> geoIpService.getCountry(ipAddress))
+        assertThatThrownBy(() -> geoIpService.getCountry("8.8.8.8"))
                 .isInstanceOf(GeoIpLookupException.class)
-                .hasMessageContaining(ipAddress);
-        verify(restTemplate, times(1)).getForEntity(eq("http://dummy/8.8.8.8?fields=countryCode"), eq(Map.class));
-        assertThat(cache.get(ipAddress)).isNull();
+                .hasMessageContaining("8.8.8.8");
+        verify(restTemplate, times(1)).getForEntity(eq(URL), eq(Map.class));
     }
 
     @Test
     void getCountry_EmptyIpAddress_ThrowsGeoIpLookupException() {
-        String ipAddress = "";
         when(restTemplate.getForEntity(eq("http://dummy/?fields=countryCode"), eq(Map.class)))
                 .thenThrow(new RestClientException("Invalid URL"));
 
-        assertThatThrownBy(() -> geoIpService.getCountry(ipAddress))
-                .isInstanceOf(GeoIpLookupException.class)
-                .hasMessageContaining(ipAddress);
+        assertThatThrownBy(() -> geoIpService.getCountry(""))
+                .isInstanceOf(GeoIpLookupException.class);
         verify(restTemplate, times(1)).getForEntity(eq("http://dummy/?fields=countryCode"), eq(Map.class));
-        assertThat(cache.get(ipAddress)).isNull();
     }
 
-    @Configuration
-    @EnableCaching(proxyTargetClass = true)
-    @SuppressWarnings("unused")
-    static class TestConfig {
-        @Bean
-        CacheManager cacheManager() {
-            return new ConcurrentMapCacheManager("geoIpCache");
-        }
+    @Test
+    void getCountryAsync_SharesCacheWithGetCountry() {
+        when(restTemplate.getForEntity(eq(URL), eq(Map.class))).thenReturn(country("US"));
+
+        assertThat(geoIpService.getCountryAsync("8.8.8.8").join()).isEqualTo("US");
+        assertThat(geoIpService.getCountry("8.8.8.8")).isEqualTo("US");
+        assertThat(geoIpService.getCountryAsync("8.8.8.8")).isCompletedWithValue("US");
+        verify(restTemplate, times(1)).getForEntity(eq(URL), eq(Map.class));
+    }
+
+    @Test
+    void getCountryAsync_ApiThrowsException_CompletesExceptionally() {
+        when(restTemplate.getForEntity(eq(URL), eq(Map.class))).thenThrow(new RestClientException("API error"));
+
+        assertThat(geoIpService.getCountryAsync("8.8.8.8"))
+                .failsWithin(Duration.ofSeconds(1))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(GeoIpLookupException.class);
+    }
+
+    @Test
+    void getCountryAsync_ConcurrentMissesShareOneLookup() {
+        Queue<Runnable> pending = new ArrayDeque<>();
+        GeoIpService deferred = service(pending::add);
+        when(restTemplate.getForEntity(eq(URL), eq(Map.class))).thenReturn(country("US"));
+
+        CompletableFuture<String> first = deferred.getCountryAsync("8.8.8.8");
+        CompletableFuture<String> second = deferred.getCountryAsync("8.8.8.8");
+        runAll(pending);
+
+        assertThat(first).isCompletedWithValue("US");
+        assertThat(second).isCompletedWithValue("US");
+        verify(restTemplate, times(1)).getForEntity(eq(URL), eq(Map.class));
+    }
 
-        @Bean
-        GeoIpService geoIpService(RestTemplate restTemplate) {
-            return new GeoIpService(restTemplate, "http://dummy/", "countryCode");
+    @Test
+    void getCountry_ServesStaleValueWhileRefreshing() {
+        Queue<Runnable> pending = new ArrayDeque<>();
+        GeoIpService deferred = service(pending::add);
+        when(restTemplate.getForEntity(eq(URL), eq(Map.class))).thenReturn(country("US"), country("PL"));
+        CompletableFuture<String> initial = deferred.getCountryAsync("8.8.8.8");
+        runAll(pending);
+        assertThat(initial).isCompletedWithValue("US");
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(REFRESH_MILLIS + 1));
+
+        assertThat(deferred.getCountryAsync("8.8.8.8")).isCompletedWithValue("US");
+        runAll(pending);
+        assertThat(deferred.getCountryAsync("8.8.8.8")).isCompletedWithValue("PL");
+        verify(restTemplate, times(2)).getForEntity(eq(URL), eq(Map.class));
+    }
+
+    private GeoIpService service(Executor executor) {
+        return new GeoIpService(restTemplate, "http://dummy/", "countryCode", 100, REFRESH_MILLIS, EXPIRE_MILLIS,
+                NEGATIVE_TTL_MILLIS, circuitBreaker, executor, ticker);
+    }
+
+    // The cache also schedules its own maintenance on the executor, so drain until nothing is left.
+    private static void runAll(Queue<Runnable> pending) {
+        Runnable task;
+        while ((task = pending.poll()) != null) {
+            task.run();
         }
     }
-}
\ No newline at end of file
+
+    private static ResponseEntity<Map> country(String countryCode) {
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("countryCode", countryCode);
+        return new ResponseEntity<>(responseBody, HttpStatus.OK);
+    }
+}
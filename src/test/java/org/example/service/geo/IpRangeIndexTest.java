@@ -0,0 +1,118 @@
+package org.example.service.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IpRangeIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path csv;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        csv = Files.writeString(tempDir.resolve("ranges.csv"), """
+                start,end,country
+                1.0.0.0,1.0.0.255,AU
+                8.8.8.0,8.8.8.255,US
+                "83.0.0.0","83.31.255.255","pl"
+                200.0.0.0,200.0.0.255,ZZZ
+                255.255.255.0,255.255.255.255,DE
+                2001:4860::,2001:4860:ffff:ffff:ffff:ffff:ffff:ffff,US
+                2a01:110::,2a01:110:ffff::,PL
+                """);
+    }
+
+    @Test
+    void lookup_FindsIpv4Ranges() throws Exception {
+        IpRangeIndex index = IpRangeIndex.fromCsv(csv);
+
+        assertThat(index.size()).isEqualTo(6);
+        assertThat(index.lookup("1.0.0.0")).isEqualTo("AU");
+        assertThat(index.lookup("8.8.8.8")).isEqualTo("US");
+        assertThat(index.lookup("83.20.1.1")).isEqualTo("PL");
+        assertThat(index.lookup("255.255.255.255")).isEqualTo("DE");
+        assertThat(index.lookup("1.0.1.0")).isNull();
+        assertThat(index.lookup("0.0.0.1")).isNull();
+        assertThat(index.lookup("200.0.0.1")).isNull();
+    }
+
+    @Test
+    void lookup_FindsIpv6RangesAndMappedIpv4() throws Exception {
+        IpRangeIndex index = IpRangeIndex.fromCsv(csv);
+
+        assertThat(index.lookup("2001:4860:4860::8888")).isEqualTo("US");
+        assertThat(index.lookup("2001:4860:4860:0:0:0:0:8888")).isEqualTo("US");
+        assertThat(index.lookup("2a01:110::1")).isEqualTo("PL");
+        assertThat(index.lookup("2a01:110:ffff:0:1::")).isNull();
+        assertThat(index.lookup("::ffff:8.8.8.8")).isEqualTo("US");
+        assertThat(index.lookup("::1")).isNull();
+    }
+
+    @Test
+    void lookup_RejectsMalformedAddresses() throws Exception {
+        IpRangeIndex index = IpRangeIndex.fromCsv(csv);
+
+        assertThat(index.lookup("")).isNull();
+        assertThat(index.lookup("8.8.8")).isNull();
+        assertThat(index.lookup("8.8.8.256")).isNull();
+        assertThat(index.lookup("8.8.8.8.")).isNull();
+        assertThat(index.lookup("example.com")).isNull();
+        assertThat(index.lookup("2001:4860:::1")).isNull();
+        assertThat(index.lookup("2001:4860:1:2:3:4:5:6:7")).isNull();
+    }
+
+    @Test
+    void toBytes_ParsesLiteralsWithoutResolvingNames() throws Exception {
+        assertThat(IpRangeIndex.toBytes("83.1.2.3")).isEqualTo(InetAddress.getByName("83.1.2.3").getAddress());
+        assertThat(IpRangeIndex.toBytes("2001:db8::1")).isEqualTo(InetAddress.getByName("2001:db8::1").getAddress());
+        assertThat(IpRangeIndex.toBytes("::")).isEqualTo(new byte[16]);
+        assertThat(IpRangeIndex.toBytes("1::")).isEqualTo(InetAddress.getByName("1::").getAddress());
+        assertThat(IpRangeIndex.toBytes("1:2:3:4:5:6:7:8")).isEqualTo(InetAddress.getByName("1:2:3:4:5:6:7:8").getAddress());
+        assertThat(IpRangeIndex.toBytes("::ffff:1.2.3.4"))
+                .isEqualTo(new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, -1, 1, 2, 3, 4});
+        assertThat(IpRangeIndex.toBytes("dead.beef.cafe")).isNull();
+        assertThat(IpRangeIndex.toBytes("cafe")).isNull();
+        assertThat(IpRangeIndex.toBytes("")).isNull();
+        assertThat(IpRangeIndex.toBytes("1.2.3")).isNull();
+        assertThat(IpRangeIndex.toBytes("1:2:3:4:5:6:7:8:9")).isNull();
+        assertThat(IpRangeIndex.toBytes("1::2::3")).isNull();
+        assertThat(IpRangeIndex.toBytes("1:2:3:4:5:6:7::8")).isNull();
+        assertThat(IpRangeIndex.toBytes("1:2:3:4:5:6:7:1.2.3.4")).isNull();
+        assertThat(IpRangeIndex.toBytes("1:")).isNull();
+        assertThat(IpRangeIndex.toBytes("fe80::1%eth0")).isNull();
+    }
+
+    @Test
+    void fromSnapshot_MatchesIndexBuiltFromCsv() throws Exception {
+        Path snapshot = tempDir.resolve("ranges.idx");
+        IpRangeIndex.fromCsv(csv).writeSnapshot(snapshot);
+
+        IpRangeIndex index = IpRangeIndex.fromSnapshot(snapshot);
+
+        assertThat(index.size()).isEqualTo(6);
+        assertThat(index.lookup("8.8.8.8")).isEqualTo("US");
+        assertThat(index.lookup("2a01:110::1")).isEqualTo("PL");
+    }
+
+    @Test
+    void fromCsv_RejectsOverlappingRanges() throws Exception {
+        Path overlapping = Files.writeString(tempDir.resolve("overlap.csv"), """
+                1.0.0.0,1.0.0.255,AU
+                1.0.0.128,1.0.1.255,CN
+                """);
+
+        assertThatThrownBy(() -> IpRangeIndex.fromCsv(overlapping))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2");
+    }
+}
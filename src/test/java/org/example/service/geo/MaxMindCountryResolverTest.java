@@ -0,0 +1,150 @@
+package org.example.service.geo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MaxMindCountryResolverTest {
+
+    @Mock
+    private GeoIpService geoIpService;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void getCountry_MissingDatabase_FallsBackToHttp() {
+        when(geoIpService.getCountry("8.8.8.8")).thenReturn("US");
+        MaxMindCountryResolver resolver = new MaxMindCountryResolver(geoIpService, tempDir.resolve("missing.mmdb").toString());
+
+        assertThat(resolver.getCountry("8.8.8.8")).isEqualTo("US");
+        verify(geoIpService).getCountry("8.8.8.8");
+    }
+
+    @Test
+    void getCountry_AnswersFromDatabase() throws Exception {
+        Path database = writeCountryDatabase(tempDir.resolve("GeoLite2-Country.mmdb"), "PL");
+        MaxMindCountryResolver resolver = new MaxMindCountryResolver(geoIpService, database.toString());
+
+        assertThat(resolver.getCountry("83.1.2.3")).isEqualTo("PL");
+        assertThat(resolver.getCountryAsync("83.1.2.3")).isCompletedWithValue("PL");
+        verifyNoInteractions(geoIpService);
+    }
+
+    @Test
+    void getCountry_HostNameIsNotResolvedAndFallsBackToHttp() throws Exception {
+        Path database = writeCountryDatabase(tempDir.resolve("GeoLite2-Country.mmdb"), "PL");
+        when(geoIpService.getCountry("dead.beef.cafe")).thenReturn("US");
+        MaxMindCountryResolver resolver = new MaxMindCountryResolver(geoIpService, database.toString());
+
+        assertThat(resolver.getCountry("dead.beef.cafe")).isEqualTo("US");
+        verify(geoIpService).getCountry("dead.beef.cafe");
+    }
+
+    @Test
+    void reloadIfChanged_PicksUpReplacedDatabase() throws Exception {
+        Path database = writeCountryDatabase(tempDir.resolve("GeoLite2-Country.mmdb"), "PL");
+        Files.setLastModifiedTime(database, FileTime.fromMillis(1_000_000));
+        MaxMindCountryResolver resolver = new MaxMindCountryResolver(geoIpService, database.toString());
+
+        Path replacement = writeCountryDatabase(tempDir.resolve("GeoLite2-Country.mmdb.tmp"), "DE");
+        Files.setLastModifiedTime(replacement, FileTime.fromMillis(2_000_000));
+        Files.move(replacement, database, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        assertThat(resolver.getCountry("83.1.2.3")).isEqualTo("PL");
+
+        resolver.reloadIfChanged();
+
+        assertThat(resolver.getCountry("83.1.2.3")).isEqualTo("DE");
+        verifyNoInteractions(geoIpService);
+    }
+
+    @Test
+    void reloadIfChanged_CorruptDatabase_KeepsFallingBack() throws Exception {
+        Path database = Files.writeString(tempDir.resolve("GeoLite2-Country.mmdb"), "not a maxmind database");
+        when(geoIpService.getCountry("1.2.3.4")).thenReturn("PL");
+        MaxMindCountryResolver resolver = new MaxMindCountryResolver(geoIpService, database.toString());
+
+        resolver.reloadIfChanged();
+
+        assertThat(resolver.getCountry("1.2.3.4")).isEqualTo("PL");
+    }
+
+    /**
+     * Writes the smallest valid MaxMind DB: an IPv4 search tree of one node whose both records point at a
+     * single {@code {"country": {"iso_code": ...}}} entry, so every address resolves to {@code isoCode}.
+     */
+    private static Path writeCountryDatabase(Path path, String isoCode) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int nodeCount = 1;
+        // 24-bit records; a record of nodeCount + 16 points at offset 0 of the data section.
+        int dataPointer = nodeCount + 16;
+        for (int record = 0; record < 2; record++) {
+            out.write(dataPointer >>> 16);
+            out.write(dataPointer >>> 8);
+            out.write(dataPointer);
+        }
+        out.write(new byte[16]);
+        writeMap(out, 1);
+        writeString(out, "country");
+        writeMap(out, 1);
+        writeString(out, "iso_code");
+        writeString(out, isoCode);
+
+        out.write(new byte[] {(byte) 0xAB, (byte) 0xCD, (byte) 0xEF});
+        out.write("MaxMind.com".getBytes(StandardCharsets.US_ASCII));
+        writeMap(out, 9);
+        writeString(out, "node_count");
+        writeUnsigned(out, 6, nodeCount, 4);
+        writeString(out, "record_size");
+        writeUnsigned(out, 5, 24, 2);
+        writeString(out, "ip_version");
+        writeUnsigned(out, 5, 4, 2);
+        writeString(out, "database_type");
+        writeString(out, "GeoLite2-Country");
+        writeString(out, "languages");
+        out.write(0); // array (extended type 11) of size 0
+        out.write(11 - 7);
+        writeString(out, "binary_format_major_version");
+        writeUnsigned(out, 5, 2, 2);
+        writeString(out, "binary_format_minor_version");
+        writeUnsigned(out, 5, 0, 2);
+        writeString(out, "build_epoch");
+        out.write(8); // uint64 (extended type 9) of 8 bytes
+        out.write(9 - 7);
+        out.write(new byte[8]);
+        writeString(out, "description");
+        writeMap(out, 0);
+        return Files.write(path, out.toByteArray());
+    }
+
+    private static void writeMap(ByteArrayOutputStream out, int entries) {
+        out.write((7 << 5) | entries);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write((2 << 5) | bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeUnsigned(ByteArrayOutputStream out, int type, long value, int size) {
+        out.write((type << 5) | size);
+        for (int i = size - 1; i >= 0; i--) {
+            out.write((int) (value >>> (8 * i)));
+        }
+    }
+}
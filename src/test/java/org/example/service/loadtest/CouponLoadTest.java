@@ -0,0 +1,157 @@
+package org.example.service.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the whole application against Testcontainers Postgres and a {@link FakeGeoIpServer}, then drives
+ * login, coupon creation and redemption over HTTP at fixed arrival rates for three GeoIP conditions:
+ * healthy, flaky (errors) and slow (beyond {@code geoip.read-timeout-ms}). Prints a latency summary per
+ * phase and writes HdrHistogram distributions to {@code build/reports/loadtest}. Needs Docker; run with
+ * {@code ./gradlew benchmark}. {@code -Dloadtest.redeem-rate} and {@code -Dloadtest.seconds} scale it.
+ */
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CouponLoadTest {
+
+    private static final int REDEEM_RATE = Integer.getInteger("loadtest.redeem-rate", 200);
+    private static final int SECONDS = Integer.getInteger("loadtest.seconds", 20);
+    private static final int LOGIN_RATE = 20;
+    private static final int CREATE_RATE = 20;
+    private static final int COUPONS = 50;
+    private static final int DISTINCT_IPS = 5_000;
+    private static final String PASSWORD = "load-test-password";
+    private static final Path REPORTS = Path.of("build", "reports", "loadtest");
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final FakeGeoIpServer geoIp = startGeoIp();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl() + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("geoip.base-url", geoIp::baseUrl);
+        registry.add("geoip.breaker.open-ms", () -> "5000");
+        registry.add("logging.level.org.example", () -> "WARN");
+    }
+
+    @SuppressWarnings("unused")
+    @LocalServerPort
+    private int port;
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SuppressWarnings("unused")
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @AfterAll
+    static void stopGeoIp() {
+        geoIp.close();
+    }
+
+    @Test
+    void healthyFlakyAndSlowGeoIp() throws Exception {
+        jdbcTemplate.update("INSERT INTO users (username, password, role) VALUES (?, ?, 'ADMIN')",
+                "loadtest-admin", passwordEncoder.encode(PASSWORD));
+        String token = login();
+
+        runScenario("healthy", 1, token, 20, 10, 0.0);
+        runScenario("flaky", 2, token, 20, 10, 0.1);
+        runScenario("slow", 3, token, 2_500, 500, 0.0);
+    }
+
+    private void runScenario(String name, int scenario, String token, long latencyMillis, long jitterMillis,
+                             double errorRate) throws Exception {
+        geoIp.configure(latencyMillis, jitterMillis, errorRate);
+        System.out.printf("%n== %s: GeoIP %d ms +%d ms jitter, %.0f%% errors, %d redemptions/s for %d s%n",
+                name, latencyMillis, jitterMillis, errorRate * 100, REDEEM_RATE, SECONDS);
+        String prefix = "LOAD" + scenario + "X";
+
+        OpenModelLoad login = new OpenModelLoad(client).run(LOGIN_RATE, 5, i -> post("/auth/login", null,
+                Map.of("username", "loadtest-admin", "password", PASSWORD)));
+        report(name, "login", login);
+
+        OpenModelLoad create = new OpenModelLoad(client).run(CREATE_RATE, COUPONS / CREATE_RATE, i -> post(
+                "/api/coupons", token, Map.of("code", prefix + i, "maxUses", 1_000_000, "country", "PL")));
+        report(name, "create", create);
+        assertThat(create.statuses()).containsOnlyKeys(200);
+
+        // Several redemptions per IP, so the GeoIP cache sees a realistic mix of hits and misses.
+        OpenModelLoad redeem = new OpenModelLoad(client).run(REDEEM_RATE, SECONDS, i -> post(
+                "/api/coupons/" + prefix + (i % COUPONS) + "/redeem", null, Map.of(
+                        "ipAddress", "10." + scenario + "." + (i % DISTINCT_IPS >> 8) + "." + (i % DISTINCT_IPS & 0xff),
+                        "userId", "user" + i)));
+        report(name, "redeem", redeem);
+        System.out.printf("%-28s %d GeoIP requests%n", name + " geoip", geoIp.requests());
+    }
+
+    private void report(String scenario, String phase, OpenModelLoad load) throws IOException {
+        load.report(scenario + " " + phase, System.out);
+        load.writeHgrm(REPORTS.resolve(scenario + "-" + phase + ".hgrm"));
+    }
+
+    private String login() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(post("/auth/login", null,
+                Map.of("username", "loadtest-admin", "password", PASSWORD)), HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return objectMapper.readTree(response.body()).get("token").asText();
+    }
+
+    private HttpRequest post(String path, String token, Map<String, Object> body) {
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+            if (token != null) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            return builder.build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static FakeGeoIpServer startGeoIp() {
+        try {
+            return new FakeGeoIpServer("PL", 20, 10, 0.0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
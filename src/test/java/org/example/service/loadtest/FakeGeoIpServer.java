@@ -0,0 +1,82 @@
+package org.example.service.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for ip-api.com. Answers every {@code GET} with {@code {"countryCode": ...}} after
+ * {@code latencyMillis} plus up to {@code jitterMillis}, and with HTTP 503 for {@code errorRate} of the
+ * requests. Settings can be changed while the server runs to script degradation.
+ */
+class FakeGeoIpServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String countryCode;
+    private final AtomicLong requests = new AtomicLong();
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double errorRate;
+
+    FakeGeoIpServer(String countryCode, long latencyMillis, long jitterMillis, double errorRate) throws IOException {
+        this.countryCode = countryCode;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // Requests sleep, so the pool has to cover rate x latency of them in flight.
+        this.executor = Executors.newFixedThreadPool(256);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** Base URL to configure as {@code geoip.base-url}; the IP is appended to it. */
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/json/";
+    }
+
+    void configure(long latencyMillis, long jitterMillis, double errorRate) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean fail = random.nextDouble() < errorRate;
+        byte[] body = (fail ? "{\"status\":\"fail\"}" : "{\"countryCode\":\"" + countryCode + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(fail ? 503 : 200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
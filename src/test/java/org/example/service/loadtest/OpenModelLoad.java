@@ -0,0 +1,102 @@
+package org.example.service.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Sends requests at a fixed arrival rate whether or not earlier ones have completed (an open model, as
+ * real clients behave), and records latency from each request's scheduled start, so that a stalled
+ * server shows up as queueing delay instead of fewer samples (no coordinated omission).
+ */
+class OpenModelLoad {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private final HttpClient client;
+    private final Histogram histogram = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final ConcurrentMap<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+    private final AtomicLong failures = new AtomicLong();
+
+    OpenModelLoad(HttpClient client) {
+        this.client = client;
+    }
+
+    /** Sends {@code ratePerSecond} requests per second for {@code seconds}; request {@code i} is built by {@code requests}. */
+    OpenModelLoad run(int ratePerSecond, int seconds, LongFunction<HttpRequest> requests) throws InterruptedException {
+        long total = (long) ratePerSecond * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long start = System.nanoTime();
+        CompletableFuture<?>[] inFlight = new CompletableFuture<?>[(int) total];
+        for (long i = 0; i < total; i++) {
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            inFlight[(int) i] = client.sendAsync(requests.apply(i), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        record(System.nanoTime() - scheduled);
+                        if (error != null) {
+                            failures.incrementAndGet();
+                        } else {
+                            statuses.computeIfAbsent(response.statusCode(), code -> new AtomicLong()).incrementAndGet();
+                        }
+                    });
+        }
+        CompletableFuture.allOf(inFlight).handle((ignored, error) -> null).join();
+        return this;
+    }
+
+    private synchronized void record(long nanos) {
+        histogram.recordValue(Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+    }
+
+    synchronized Histogram histogram() {
+        return histogram.copy();
+    }
+
+    Map<Integer, Long> statuses() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.get()));
+        return counts;
+    }
+
+    long failures() {
+        return failures.get();
+    }
+
+    void report(String name, PrintStream out) {
+        Histogram snapshot = histogram();
+        out.printf("%-28s n=%-7d p50 %8.1f ms  p99 %8.1f ms  p99.9 %8.1f ms  max %8.1f ms  statuses %s  errors %d%n",
+                name, snapshot.getTotalCount(), millis(snapshot.getValueAtPercentile(50)),
+                millis(snapshot.getValueAtPercentile(99)), millis(snapshot.getValueAtPercentile(99.9)),
+                millis(snapshot.getMaxValue()), statuses(), failures());
+    }
+
+    /** Writes the full percentile distribution in milliseconds, loadable by the HdrHistogram plotter. */
+    void writeHgrm(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram().outputPercentileDistribution(out, 1e6);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
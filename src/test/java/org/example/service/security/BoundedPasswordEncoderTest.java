@@ -0,0 +1,84 @@
+package org.example.service.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.exception.api.LoginOverloadedException;
+import org.example.security.BoundedPasswordEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.close();
+    }
+
+    @Test
+    void matches_RunsOnPoolAndRecordsTime() {
+        encoder = new BoundedPasswordEncoder(new PlainEncoder(null), 1, 1, registry);
+
+        assertThat(encoder.matches("secret", "{plain}secret")).isTrue();
+        assertThat(encoder.matches("wrong", "{plain}secret")).isFalse();
+
+        assertThat(registry.get("auth.password.hashing").tag("operation", "matches").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void matches_FullQueueFailsFast() {
+        encoder = new BoundedPasswordEncoder(new PlainEncoder(release), 1, 1, registry);
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> encoder.matches("a", "{plain}a"));
+        waitUntil(() -> registry.get("executor.active").tag("name", "bcrypt").gauge().value() == 1);
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "{plain}b"));
+        waitUntil(() -> registry.get("executor.queued").tag("name", "bcrypt").gauge().value() == 1);
+
+        assertThatThrownBy(() -> encoder.matches("c", "{plain}c")).isInstanceOf(LoginOverloadedException.class);
+        assertThat(registry.get("auth.password.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.join()).isTrue();
+        assertThat(queued.join()).isTrue();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    /** Compares {@code {plain}}-prefixed passwords, optionally blocking until released. */
+    private record PlainEncoder(CountDownLatch gate) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "{plain}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
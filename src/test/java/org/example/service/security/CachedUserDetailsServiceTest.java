@@ -0,0 +1,92 @@
+package org.example.service.security;
+
+import org.example.security.CachedUserDetailsService;
+import org.example.security.UserChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachedUserDetailsServiceTest {
+
+    @Mock
+    private UserDetailsService delegate;
+
+    private CachedUserDetailsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CachedUserDetailsService(delegate, 100, 60_000);
+    }
+
+    @Test
+    void loadUserByUsername_QueriesDelegateOnce() {
+        when(delegate.loadUserByUsername("admin")).thenReturn(user("ADMIN"));
+
+        service.loadUserByUsername("admin");
+        UserDetails second = service.loadUserByUsername("admin");
+
+        assertThat(second.getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN");
+        verify(delegate, times(1)).loadUserByUsername("admin");
+    }
+
+    @Test
+    void loadUserByUsername_ErasingCredentialsDoesNotAffectCache() {
+        when(delegate.loadUserByUsername("admin")).thenReturn(user("ADMIN"));
+
+        ((CredentialsContainer) service.loadUserByUsername("admin")).eraseCredentials();
+
+        assertThat(service.loadUserByUsername("admin").getPassword()).isEqualTo("hash");
+    }
+
+    @Test
+    void loadUserByUsername_UnknownUserIsNotCached() {
+        when(delegate.loadUserByUsername("ghost")).thenThrow(new UsernameNotFoundException("User not found: ghost"));
+
+        assertThatThrownBy(() -> service.loadUserByUsername("ghost")).isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> service.loadUserByUsername("ghost")).isInstanceOf(UsernameNotFoundException.class);
+
+        verify(delegate, times(2)).loadUserByUsername("ghost");
+    }
+
+    @Test
+    void onUserChanged_EvictsOnlyThatUser() {
+        when(delegate.loadUserByUsername("admin")).thenReturn(user("USER"), user("ADMIN"));
+        when(delegate.loadUserByUsername("other")).thenReturn(user("USER"));
+        service.loadUserByUsername("admin");
+        service.loadUserByUsername("other");
+
+        service.onUserChanged(UserChangedEvent.parse("admin"));
+
+        assertThat(service.loadUserByUsername("admin").getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN");
+        service.loadUserByUsername("other");
+        verify(delegate, times(2)).loadUserByUsername("admin");
+        verify(delegate, times(1)).loadUserByUsername("other");
+    }
+
+    @Test
+    void onUserChanged_ResyncEvictsEveryone() {
+        when(delegate.loadUserByUsername("admin")).thenReturn(user("ADMIN"));
+        service.loadUserByUsername("admin");
+
+        service.onUserChanged(UserChangedEvent.resync());
+        service.loadUserByUsername("admin");
+
+        verify(delegate, times(2)).loadUserByUsername("admin");
+    }
+
+    private static UserDetails user(String role) {
+        return User.withUsername("admin").password("hash").roles(role).build();
+    }
+}
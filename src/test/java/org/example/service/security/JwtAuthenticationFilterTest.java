@@ -0,0 +1,103 @@
+package org.example.service.security;
+
+import org.example.security.JwtAuthenticationFilter;
+import org.example.security.JwtAuthenticationMode;
+import org.example.security.JwtUtil;
+import org.example.security.TokenVersionTable;
+import org.example.security.VersionedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    private final JwtUtil jwtUtil = new JwtUtil("test-secret-key-that-is-at-least-32-bytes-long", 3600L);
+    private final UserDetails admin = User.withUsername("admin").password("hash").roles("ADMIN").build();
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private TokenVersionTable tokenVersions;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void lookup_LoadsUserOnce() throws Exception {
+        when(userDetailsService.loadUserByUsername("admin")).thenReturn(admin);
+
+        Authentication authentication = filter(JwtAuthenticationMode.LOOKUP, jwtUtil.generateToken(admin));
+
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN");
+        verify(userDetailsService, times(1)).loadUserByUsername("admin");
+    }
+
+    @Test
+    void lookup_DeletedUserIsNotAuthenticated() throws Exception {
+        when(userDetailsService.loadUserByUsername("admin")).thenThrow(new UsernameNotFoundException("User not found: admin"));
+
+        assertThat(filter(JwtAuthenticationMode.LOOKUP, jwtUtil.generateToken(admin))).isNull();
+    }
+
+    @Test
+    void stateless_AuthenticatesFromClaimsWithoutLookup() throws Exception {
+        when(tokenVersions.isLoaded()).thenReturn(true);
+        when(tokenVersions.isCurrent("admin", 2)).thenReturn(true);
+
+        Authentication authentication = filter(JwtAuthenticationMode.STATELESS, jwtUtil.generateToken(new VersionedUser(admin, 2)));
+
+        assertThat(authentication.getName()).isEqualTo("admin");
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN");
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void stateless_RejectsOutdatedVersion() throws Exception {
+        when(tokenVersions.isLoaded()).thenReturn(true);
+        when(tokenVersions.isCurrent("admin", 1)).thenReturn(false);
+
+        assertThat(filter(JwtAuthenticationMode.STATELESS, jwtUtil.generateToken(new VersionedUser(admin, 1)))).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void stateless_FallsBackToLookupUntilVersionsLoaded() throws Exception {
+        when(tokenVersions.isLoaded()).thenReturn(false);
+        when(userDetailsService.loadUserByUsername("admin")).thenReturn(admin);
+
+        assertThat(filter(JwtAuthenticationMode.STATELESS, jwtUtil.generateToken(new VersionedUser(admin, 0)))).isNotNull();
+        verify(userDetailsService).loadUserByUsername("admin");
+    }
+
+    @Test
+    void invalidTokenIsIgnored() throws Exception {
+        assertThat(filter(JwtAuthenticationMode.LOOKUP, "not-a-jwt")).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    private Authentication filter(JwtAuthenticationMode mode, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/coupons");
+        request.addHeader("Authorization", "Bearer " + token);
+        new JwtAuthenticationFilter(jwtUtil, userDetailsService, tokenVersions, mode)
+                .doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
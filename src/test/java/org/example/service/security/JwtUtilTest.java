@@ -0,0 +1,60 @@
+package org.example.service.security;
+
+import io.jsonwebtoken.Claims;
+import org.example.security.JwtUtil;
+import org.example.security.VersionedUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "test-secret-key-that-is-at-least-32-bytes-long";
+
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, 3600L);
+    private final UserDetails user = User.withUsername("admin").password("unused").roles("ADMIN").build();
+
+    @Test
+    void parseVerifiedClaims_ReturnsSubject() {
+        Claims claims = jwtUtil.parseVerifiedClaims(jwtUtil.generateToken(user));
+
+        assertThat(claims).isNotNull();
+        assertThat(claims.getSubject()).isEqualTo("admin");
+    }
+
+    @Test
+    void parseVerifiedClaims_RejectsTokenSignedWithAnotherKey() {
+        String foreign = new JwtUtil("another-secret-key-that-is-at-least-32-bytes", 3600L).generateToken(user);
+
+        assertThat(jwtUtil.parseVerifiedClaims(foreign)).isNull();
+    }
+
+    @Test
+    void parseVerifiedClaims_RejectsExpiredAndMalformedTokens() {
+        String expired = new JwtUtil(SECRET, -60L).generateToken(user);
+
+        assertThat(jwtUtil.parseVerifiedClaims(expired)).isNull();
+        assertThat(jwtUtil.parseVerifiedClaims("not-a-jwt")).isNull();
+        assertThat(jwtUtil.parseVerifiedClaims("")).isNull();
+    }
+
+    @Test
+    void generateToken_EmbedsRolesAndTokenVersion() {
+        Claims claims = jwtUtil.parseVerifiedClaims(jwtUtil.generateToken(new VersionedUser(user, 3)));
+
+        assertThat(claims.get(JwtUtil.ROLES_CLAIM, List.class)).containsExactly("ROLE_ADMIN");
+        assertThat(claims.get(JwtUtil.VERSION_CLAIM, Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void validateToken_ChecksSubject() {
+        String token = jwtUtil.generateToken(user);
+
+        assertThat(jwtUtil.validateToken(token, user)).isTrue();
+        assertThat(jwtUtil.validateToken(token, User.withUsername("other").password("unused").roles("USER").build())).isFalse();
+    }
+}
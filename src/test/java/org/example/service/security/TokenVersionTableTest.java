@@ -0,0 +1,97 @@
+package org.example.service.security;
+
+import org.example.repository.UserRepository;
+import org.example.security.JwtAuthenticationMode;
+import org.example.security.TokenVersionTable;
+import org.example.security.UserChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenVersionTableTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private TokenVersionTable table;
+
+    @BeforeEach
+    void setUp() {
+        table = new TokenVersionTable(userRepository, JwtAuthenticationMode.STATELESS);
+        when(userRepository.findAllTokenVersions()).thenReturn(List.of(
+                new Object[]{"admin", 1}, new Object[]{"other", 3}));
+        table.refresh();
+    }
+
+    @Test
+    void onUserChanged_UpdatesOnlyThatUser() {
+        when(userRepository.findTokenVersionByUsername("admin")).thenReturn(Optional.of(2));
+
+        table.onUserChanged(UserChangedEvent.parse("admin"));
+
+        assertThat(table.isCurrent("admin", 1)).isFalse();
+        assertThat(table.isCurrent("admin", 2)).isTrue();
+        assertThat(table.isCurrent("other", 3)).isTrue();
+        verify(userRepository, times(1)).findAllTokenVersions();
+    }
+
+    @Test
+    void onUserChanged_DeletedUserIsRemoved() {
+        when(userRepository.findTokenVersionByUsername("admin")).thenReturn(Optional.empty());
+
+        table.onUserChanged(UserChangedEvent.parse("admin"));
+
+        assertThat(table.isCurrent("admin", 1)).isFalse();
+        assertThat(table.isCurrent("other", 3)).isTrue();
+    }
+
+    @Test
+    void onUserChanged_FailedLookupRejectsThatUser() {
+        when(userRepository.findTokenVersionByUsername("admin")).thenThrow(new IllegalStateException("down"));
+
+        table.onUserChanged(UserChangedEvent.parse("admin"));
+
+        assertThat(table.isCurrent("admin", 1)).isFalse();
+        assertThat(table.isCurrent("other", 3)).isTrue();
+    }
+
+    @Test
+    void onUserChanged_ResyncReloadsEveryone() {
+        table.onUserChanged(UserChangedEvent.resync());
+
+        verify(userRepository, times(2)).findAllTokenVersions();
+        verify(userRepository, never()).findTokenVersionByUsername(any());
+    }
+
+    @Test
+    void onUserChanged_DuringRefreshIsNotLostBySwap() throws Exception {
+        when(userRepository.findTokenVersionByUsername("admin")).thenReturn(Optional.of(2));
+        AtomicReference<Thread> changer = new AtomicReference<>();
+        when(userRepository.findAllTokenVersions()).thenAnswer(invocation -> {
+            // The password change lands after the full load read admin's old version.
+            Thread thread = new Thread(() -> table.onUserChanged(UserChangedEvent.parse("admin")));
+            changer.set(thread);
+            thread.start();
+            while (thread.getState() != Thread.State.WAITING && thread.isAlive()) {
+                Thread.onSpinWait();
+            }
+            return List.of(new Object[]{"admin", 1}, new Object[]{"other", 3});
+        });
+
+        table.refresh();
+        changer.get().join();
+
+        assertThat(table.isCurrent("admin", 1)).isFalse();
+        assertThat(table.isCurrent("admin", 2)).isTrue();
+    }
+}
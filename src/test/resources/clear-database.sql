@@ -1,2 +1,4 @@
+DELETE FROM redemption_outbox_consumers;
+DELETE FROM redemption_outbox;
 DELETE FROM coupon_usages;
 DELETE FROM coupons;
\ No newline at end of file